@@ -1,9 +1,23 @@
 package com.exemplo.credito;
 
+import com.exemplo.credito.dto.ConsultaLoteResponse;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.ImportacaoResponse;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import com.exemplo.credito.dto.ResumoCreditosDTO;
+import com.exemplo.credito.dto.VersaoCreditos;
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.ResumoAuditoriaEvent;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+// Na imagem nativa: tipos serializados pelo ObjectMapper fora dos retornos dos controllers
+// (cache de respostas, auditoria) e instanciados pelas projeções do CreditoRepository
 @SpringBootApplication
+@RegisterReflectionForBinding({CreditoDTO.class, VersaoCreditos.class, PaginaCreditosResponse.class,
+		ConsultaLoteResponse.class, ResumoCreditosDTO.class, ImportacaoResponse.class, ConsultaAuditoriaEvent.class,
+		ResumoAuditoriaEvent.class, ResumoAuditoriaEvent.PorRota.class, ResumoAuditoriaEvent.PorCliente.class})
 public class CreditoApiApplication {
 
 	public static void main(String[] args) {
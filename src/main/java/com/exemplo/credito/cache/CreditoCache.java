@@ -0,0 +1,300 @@
+package com.exemplo.credito.cache;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.exemplo.credito.exception.ConsultaTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Cache em memória (read-through) para as consultas de créditos.
+ *
+ * Os registros da tabela credito praticamente não mudam depois de inseridos,
+ * então as consultas por NFS-e e por número do crédito são mantidas em caches
+ * Caffeine limitados por tamanho (eviction W-TinyLFU) e por TTL. Resultados
+ * vazios ("não encontrado") ficam no cache por um TTL bem menor.
+ *
+ * Os caches guardam futures ({@link AsyncCache}) para que a consulta ao banco num miss rode
+ * na thread chamadora fora dos locks internos do Caffeine (ver {@link #carregar}).
+ *
+ * Requisições simultâneas para a mesma chave são coalescidas numa única consulta (single-flight),
+ * inclusive com o cache desabilitado: nesse caso só as consultas em andamento ficam num mapa, de
+ * onde saem ao terminar. Quem espera a consulta de outra requisição desiste após
+ * credito.cache.timeout-espera; erros da consulta chegam a todos que a aguardavam.
+ */
+@Component
+@Slf4j
+public class CreditoCache {
+
+    public static final String CACHE_NFSE = "creditos.nfse";
+    public static final String CACHE_NUMERO_CREDITO = "creditos.numero-credito";
+
+    private final boolean enabled;
+    private final long timeoutEsperaNanos;
+    private final AsyncCache<String, List<CreditoDTO>> porNfse;
+    private final AsyncCache<String, Optional<CreditoDTO>> porNumeroCredito;
+
+    // Com o cache desabilitado, apenas as consultas em andamento, para a coalescência
+    private final ConcurrentMap<String, CompletableFuture<List<CreditoDTO>>> emAndamentoPorNfse =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Optional<CreditoDTO>>> emAndamentoPorNumeroCredito =
+            new ConcurrentHashMap<>();
+
+    private final Counter coalescidasNfse;
+    private final Counter coalescidasNumeroCredito;
+    private final Counter esperasExpiradas;
+
+    public CreditoCache(@Value("${credito.cache.enabled:true}") boolean enabled,
+                        @Value("${credito.cache.tamanho-maximo:10000}") long tamanhoMaximo,
+                        @Value("${credito.cache.ttl:PT10M}") Duration ttl,
+                        @Value("${credito.cache.ttl-nao-encontrado:PT30S}") Duration ttlNaoEncontrado,
+                        @Value("${credito.cache.timeout-espera:PT5S}") Duration timeoutEspera,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.timeoutEsperaNanos = timeoutEspera.toNanos();
+        this.porNfse = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new ExpiracaoPorResultado<List<CreditoDTO>>(ttl, ttlNaoEncontrado, List::isEmpty))
+                .recordStats()
+                .buildAsync();
+        this.porNumeroCredito = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfter(new ExpiracaoPorResultado<Optional<CreditoDTO>>(ttl, ttlNaoEncontrado, Optional::isEmpty))
+                .recordStats()
+                .buildAsync();
+
+        // Expõe hits, misses e evictions em /actuator/metrics/cache.*
+        CaffeineCacheMetrics.monitor(meterRegistry, porNfse, CACHE_NFSE);
+        CaffeineCacheMetrics.monitor(meterRegistry, porNumeroCredito, CACHE_NUMERO_CREDITO);
+        this.coalescidasNfse = contadorCoalescidas("nfse", "compartilhada", meterRegistry);
+        this.coalescidasNumeroCredito = contadorCoalescidas("numero-credito", "compartilhada", meterRegistry);
+        this.esperasExpiradas = contadorCoalescidas("todas", "expirada", meterRegistry);
+
+        log.info("Cache de créditos {} (tamanho máximo={}, ttl={}, ttl não encontrado={}, timeout de espera={})",
+                enabled ? "habilitado" : "desabilitado", tamanhoMaximo, ttl, ttlNaoEncontrado, timeoutEspera);
+    }
+
+    /**
+     * Requisições que aproveitaram a consulta já em andamento de outra, em vez de ir ao banco.
+     */
+    private static Counter contadorCoalescidas(String consulta, String resultado, MeterRegistry meterRegistry) {
+        return Counter.builder("creditos.consultas.coalescidas")
+                .description("Requisições atendidas pela consulta em andamento de outra requisição da mesma chave")
+                .tag("consulta", consulta)
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    public List<CreditoDTO> buscarPorNfse(String numeroNfse, Function<String, List<CreditoDTO>> carregador) {
+        if (!enabled) {
+            return carregar(emAndamentoPorNfse, emAndamentoPorNfse::get, true, numeroNfse, carregador,
+                    coalescidasNfse);
+        }
+        return carregar(porNfse.asMap(), porNfse::getIfPresent, false, numeroNfse,
+                chave -> List.copyOf(carregador.apply(chave)), coalescidasNfse);
+    }
+
+    public Optional<CreditoDTO> buscarPorNumeroCredito(String numeroCredito,
+                                                    Function<String, Optional<CreditoDTO>> carregador) {
+        if (!enabled) {
+            return carregar(emAndamentoPorNumeroCredito, emAndamentoPorNumeroCredito::get, true, numeroCredito,
+                    carregador, coalescidasNumeroCredito);
+        }
+        return carregar(porNumeroCredito.asMap(), porNumeroCredito::getIfPresent, false, numeroCredito,
+                carregador, coalescidasNumeroCredito);
+    }
+
+    /**
+     * Variante não bloqueante usada pela API reativa: num miss o carregador só dispara a consulta e
+     * devolve o future, que fica no cache e é compartilhado pelas requisições concorrentes da chave.
+     */
+    public CompletableFuture<List<CreditoDTO>> buscarPorNfseAssincrono(
+            String numeroNfse, Function<String, CompletableFuture<List<CreditoDTO>>> carregador) {
+        if (!enabled) {
+            return carregarAssincrono(emAndamentoPorNfse, numeroNfse, carregador, coalescidasNfse);
+        }
+        return porNfse.get(numeroNfse, (chave, executor) -> carregador.apply(chave).thenApply(List::copyOf));
+    }
+
+    public CompletableFuture<Optional<CreditoDTO>> buscarPorNumeroCreditoAssincrono(
+            String numeroCredito, Function<String, CompletableFuture<Optional<CreditoDTO>>> carregador) {
+        if (!enabled) {
+            return carregarAssincrono(emAndamentoPorNumeroCredito, numeroCredito, carregador, coalescidasNumeroCredito);
+        }
+        return porNumeroCredito.get(numeroCredito, (chave, executor) -> carregador.apply(chave));
+    }
+
+    /**
+     * Busca várias NFS-e de uma vez: as chaves ausentes do cache são carregadas juntas
+     * por um único chamado ao carregador, que deve devolver uma entrada para cada chave.
+     */
+    public Map<String, List<CreditoDTO>> buscarTodosPorNfse(Set<String> numerosNfse,
+                                                         Function<Set<String>, Map<String, List<CreditoDTO>>> carregador) {
+        if (!enabled) {
+            return carregador.apply(numerosNfse);
+        }
+        return aguardar(porNfse.getAll(numerosNfse, (chaves, executor) ->
+                CompletableFuture.completedFuture(carregador.apply(Set.copyOf(chaves)))));
+    }
+
+    public Map<String, Optional<CreditoDTO>> buscarTodosPorNumeroCredito(
+            Set<String> numerosCredito, Function<Set<String>, Map<String, Optional<CreditoDTO>>> carregador) {
+        if (!enabled) {
+            return carregador.apply(numerosCredito);
+        }
+        return aguardar(porNumeroCredito.getAll(numerosCredito, (chaves, executor) ->
+                CompletableFuture.completedFuture(carregador.apply(Set.copyOf(chaves)))));
+    }
+
+    public void invalidar() {
+        porNfse.synchronous().invalidateAll();
+        porNumeroCredito.synchronous().invalidateAll();
+    }
+
+    public CacheStats estatisticasNfse() {
+        return porNfse.synchronous().stats();
+    }
+
+    public CacheStats estatisticasNumeroCredito() {
+        return porNumeroCredito.synchronous().stats();
+    }
+
+    /**
+     * Read-through sem executar o carregador dentro do lock do mapa. O {@code Cache.get(chave, funcao)}
+     * do Caffeine chama a função dentro de {@code ConcurrentHashMap.compute}, um bloco synchronized:
+     * com threads virtuais isso prende a carrier durante toda a consulta JDBC. Aqui só o putIfAbsent
+     * do future passa pelo lock; a carga roda na thread chamadora e as requisições concorrentes para a
+     * mesma chave aguardam o mesmo future (o mesmo esquema que o Caffeine usa no getAll assíncrono).
+     *
+     * @param mapa         a visão de mapa do cache, ou o mapa de consultas em andamento
+     * @param consulta     leitura do mapa; no cache, o getIfPresent, que registra hits e misses
+     * @param removerAoFim true para o mapa de consultas em andamento, que não guarda resultados
+     */
+    private <V> V carregar(ConcurrentMap<String, CompletableFuture<V>> mapa,
+                           Function<String, CompletableFuture<V>> consulta, boolean removerAoFim, String chave,
+                           Function<String, V> carregador, Counter coalescidas) {
+        CompletableFuture<V> existente = consulta.apply(chave);
+        if (existente == null) {
+            CompletableFuture<V> novo = new CompletableFuture<>();
+            existente = mapa.putIfAbsent(chave, novo);
+            if (existente == null) {
+                try {
+                    V valor = carregador.apply(chave);
+                    novo.complete(valor);
+                    return valor;
+                } catch (RuntimeException | Error e) {
+                    // O Caffeine remove do cache futures concluídos com erro
+                    novo.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    if (removerAoFim) {
+                        mapa.remove(chave, novo);
+                    }
+                }
+            }
+        }
+        if (!existente.isDone()) {
+            coalescidas.increment();
+        }
+        return aguardar(existente, timeoutEsperaNanos);
+    }
+
+    private static <V> CompletableFuture<V> carregarAssincrono(ConcurrentMap<String, CompletableFuture<V>> emAndamento,
+                                                               String chave,
+                                                               Function<String, CompletableFuture<V>> carregador,
+                                                               Counter coalescidas) {
+        CompletableFuture<V> existente = emAndamento.get(chave);
+        if (existente != null) {
+            coalescidas.increment();
+            return existente;
+        }
+        // O carregador só dispara a consulta, então pode rodar dentro do computeIfAbsent
+        CompletableFuture<V> future = emAndamento.computeIfAbsent(chave, carregador);
+        future.whenComplete((valor, erro) -> emAndamento.remove(chave, future));
+        return future;
+    }
+
+    private <V> V aguardar(CompletableFuture<V> future, long timeoutNanos) {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            esperasExpiradas.increment();
+            throw new ConsultaTimeoutException("Tempo esgotado aguardando a consulta em andamento");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConsultaTimeoutException("Espera pela consulta em andamento interrompida");
+        } catch (ExecutionException e) {
+            throw propagar(e.getCause());
+        }
+    }
+
+    private static <V> V aguardar(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw propagar(e.getCause());
+        }
+    }
+
+    private static RuntimeException propagar(Throwable causa) {
+        if (causa instanceof RuntimeException excecao) {
+            return excecao;
+        }
+        if (causa instanceof Error erro) {
+            throw erro;
+        }
+        return new CompletionException(causa);
+    }
+
+    /**
+     * Usa o TTL normal para resultados encontrados e o TTL curto para resultados vazios.
+     */
+    private static final class ExpiracaoPorResultado<V> implements Expiry<String, V> {
+
+        private final long ttlNanos;
+        private final long ttlNaoEncontradoNanos;
+        private final Function<V, Boolean> vazio;
+
+        private ExpiracaoPorResultado(Duration ttl, Duration ttlNaoEncontrado, Function<V, Boolean> vazio) {
+            this.ttlNanos = ttl.toNanos();
+            this.ttlNaoEncontradoNanos = ttlNaoEncontrado.toNanos();
+            this.vazio = vazio;
+        }
+
+        @Override
+        public long expireAfterCreate(String chave, V valor, long tempoAtual) {
+            return vazio.apply(valor) ? ttlNaoEncontradoNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String chave, V valor, long tempoAtual, long duracaoAtual) {
+            return expireAfterCreate(chave, valor, tempoAtual);
+        }
+
+        @Override
+        public long expireAfterRead(String chave, V valor, long tempoAtual, long duracaoAtual) {
+            return duracaoAtual;
+        }
+    }
+}
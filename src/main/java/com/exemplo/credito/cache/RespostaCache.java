@@ -0,0 +1,161 @@
+package com.exemplo.credito.cache;
+
+import com.exemplo.credito.dto.VersaoCreditos;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache das respostas já serializadas das consultas por NFS-e e por número do crédito.
+ *
+ * Guarda os bytes finais do JSON e, acima de um tamanho mínimo, a variante gzip, para que as
+ * chaves mais consultadas não passem de novo pelo Jackson nem pela compressão do Tomcat. O limite
+ * é o total de bytes guardados (eviction W-TinyLFU por peso), não a quantidade de entradas.
+ *
+ * Cada entrada carrega a {@link VersaoCreditos} dos créditos de que foi gerada e só é servida se
+ * ela coincidir com a versão dos créditos atuais (vindos do {@link CreditoCache} ou do modo em
+ * memória): qualquer inclusão, alteração ou exclusão das linhas troca a versão e a entrada é refeita.
+ * É a mesma regra do ETag, então o mesmo ETag sempre corresponde aos mesmos bytes. Por isso não há
+ * invalidação explícita (nem na importação): a entrada desatualizada é refeita na consulta seguinte
+ * ou sai pelo limite de bytes.
+ */
+@Component
+@Profile("!reativo")
+@Slf4j
+public class RespostaCache {
+
+    public static final String CACHE_RESPOSTAS = "creditos.respostas";
+
+    /** Peso fixo por entrada (chave, versão, arrays), somado aos bytes do corpo. */
+    private static final int SOBRECARGA_ENTRADA = 200;
+
+    private final boolean enabled;
+    private final int tamanhoMinimoGzip;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, RespostaSerializada> respostas;
+
+    public RespostaCache(@Value("${credito.resposta-cache.enabled:true}") boolean enabled,
+                         @Value("${credito.resposta-cache.tamanho-maximo:64MB}") DataSize tamanhoMaximo,
+                         @Value("${credito.resposta-cache.tamanho-minimo-gzip:1KB}") DataSize tamanhoMinimoGzip,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.tamanhoMinimoGzip = (int) tamanhoMinimoGzip.toBytes();
+        this.objectMapper = objectMapper;
+        this.respostas = Caffeine.newBuilder()
+                .maximumWeight(tamanhoMaximo.toBytes())
+                .weigher((String chave, RespostaSerializada resposta) -> resposta.bytesOcupados())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, respostas, CACHE_RESPOSTAS);
+
+        log.info("Cache de respostas serializadas {} (tamanho máximo={}, gzip a partir de {})",
+                enabled ? "habilitado" : "desabilitado", tamanhoMaximo, tamanhoMinimoGzip);
+    }
+
+    /**
+     * Resposta serializada de {@code corpo}, reaproveitada enquanto a versão dos créditos não mudar.
+     *
+     * @param endpoint distingue as consultas que usam o mesmo valor de chave
+     * @param versao   versão calculada a partir de {@code corpo}
+     */
+    public RespostaSerializada obter(String endpoint, String chave, VersaoCreditos versao, Object corpo) {
+        if (!enabled) {
+            // Sem cache não vale comprimir aqui: a compressão do Tomcat, se ligada, cuida disso
+            return new RespostaSerializada(versao, serializar(corpo), null);
+        }
+        String chaveCache = endpoint + ':' + chave;
+        RespostaSerializada atual = respostas.getIfPresent(chaveCache);
+        if (atual != null && atual.versao().equals(versao)) {
+            return atual;
+        }
+        byte[] json = serializar(corpo);
+        RespostaSerializada nova = new RespostaSerializada(versao, json,
+                json.length >= tamanhoMinimoGzip ? comprimir(json) : null);
+        respostas.put(chaveCache, nova);
+        return nova;
+    }
+
+    long bytesOcupados() {
+        respostas.cleanUp();
+        return respostas.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private byte[] serializar(Object corpo) {
+        try {
+            return objectMapper.writeValueAsBytes(corpo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar a resposta", e);
+        }
+    }
+
+    static byte[] comprimir(byte[] json) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(saida, 8192)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Indica se o Accept-Encoding aceita gzip: "gzip" ou "*" sem q=0 (RFC 9110, seção 12.5.3).
+     */
+    public static boolean aceitaGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean curingaAceito = false;
+        for (String item : acceptEncoding.split(",")) {
+            int pontoEVirgula = item.indexOf(';');
+            String codificacao = (pontoEVirgula < 0 ? item : item.substring(0, pontoEVirgula)).trim();
+            boolean aceito = pontoEVirgula < 0 || !qualidadeZero(item.substring(pontoEVirgula + 1));
+            if (codificacao.equalsIgnoreCase("gzip") || codificacao.equalsIgnoreCase("x-gzip")) {
+                return aceito;
+            }
+            if (codificacao.equals("*")) {
+                curingaAceito = aceito;
+            }
+        }
+        return curingaAceito;
+    }
+
+    private static boolean qualidadeZero(String parametros) {
+        for (String parametro : parametros.split(";")) {
+            String valor = parametro.trim();
+            if (valor.startsWith("q=") || valor.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(valor.substring(2).trim()) == 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Corpo pronto para escrita: {@code gzip} é nulo quando o JSON é pequeno demais para compensar.
+     */
+    public record RespostaSerializada(VersaoCreditos versao, byte[] json, byte[] gzip) {
+
+        int bytesOcupados() {
+            return SOBRECARGA_ENTRADA + json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
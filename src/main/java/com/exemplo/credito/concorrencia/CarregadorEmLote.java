@@ -0,0 +1,212 @@
+package com.exemplo.credito.concorrencia;
+
+import io.micrometer.core.instrument.DistributionSummary;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Agrupa consultas de uma chave que chegam juntas numa única consulta de várias chaves
+ * (micro-batching, como o DataLoader do GraphQL).
+ *
+ * Sem outra consulta em andamento, a requisição consulta na hora, sem esperar. As que chegam
+ * enquanto uma consulta está em andamento entram num lote: a primeira delas espera até não haver
+ * mais consultas em andamento (ou até a janela, que limita a espera sob carga contínua), fecha o
+ * lote e executa a consulta na própria thread; as demais só aguardam o resultado. Se o lote atingir
+ * o tamanho máximo antes, quem o completou executa na hora. Não há thread própria: cada lote ocupa
+ * uma única conexão, da thread que o executa.
+ *
+ * Lotes com uma só chave usam a consulta individual, de plano mais simples. O lock só protege
+ * a troca do lote aberto (é um ReentrantLock para não prender a carrier de threads virtuais).
+ */
+public final class CarregadorEmLote<V> {
+
+    private final long janelaNanos;
+    private final int tamanhoMaximo;
+    private final Function<String, V> individual;
+    private final Function<Set<String>, Map<String, V>> emLote;
+    private final V ausente;
+    private final DistributionSummary tamanhos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Lote<V> aberto;
+    // Consultas executando; alterado com o lock, lido sem ele por quem espera a janela
+    private volatile int emAndamento;
+
+    /**
+     * @param emLote  deve devolver uma entrada por chave encontrada; as demais recebem {@code ausente}
+     * @param tamanhos registra quantas chaves cada lote levou ao banco
+     */
+    public CarregadorEmLote(Duration janela, int tamanhoMaximo, Function<String, V> individual,
+                            Function<Set<String>, Map<String, V>> emLote, V ausente, DistributionSummary tamanhos) {
+        if (tamanhoMaximo < 1) {
+            throw new IllegalArgumentException("O tamanho máximo do lote deve ser positivo");
+        }
+        this.janelaNanos = janela.toNanos();
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.individual = individual;
+        this.emLote = emLote;
+        this.ausente = ausente;
+        this.tamanhos = tamanhos;
+    }
+
+    public V carregar(String chave) {
+        Lote<V> lote = null;
+        CompletableFuture<V> resultado = null;
+        boolean dono = false;
+        boolean executarAgora = false;
+        boolean imediata = false;
+        lock.lock();
+        try {
+            if (emAndamento == 0 && aberto == null) {
+                // Ninguém consultando: não há com quem agrupar, então a consulta sai na hora, sem lote
+                imediata = true;
+                emAndamento++;
+            } else {
+                if (aberto == null) {
+                    aberto = new Lote<>(Thread.currentThread());
+                    dono = true;
+                }
+                lote = aberto;
+                // A mesma chave repetida no lote compartilha o resultado
+                resultado = lote.pendentes.computeIfAbsent(chave, k -> new CompletableFuture<>());
+                executarAgora = lote.pendentes.size() >= tamanhoMaximo;
+                if (executarAgora) {
+                    fechar(lote);
+                    emAndamento++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (imediata) {
+            tamanhos.record(1);
+            try {
+                return individual.apply(chave);
+            } finally {
+                concluir();
+            }
+        }
+        if (executarAgora) {
+            executar(lote);
+        } else if (dono) {
+            esperar(lote);
+            if (fecharSeAberto(lote)) {
+                executar(lote);
+            }
+        }
+        try {
+            return resultado.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error erro) {
+                throw erro;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Espera as consultas em andamento terminarem (quem termina acorda o dono do lote), o lote
+     * encher ou a janela passar.
+     */
+    private void esperar(Lote<V> lote) {
+        long limite = System.nanoTime() + janelaNanos;
+        long restante = janelaNanos;
+        while (restante > 0 && emAndamento > 0 && !lote.fechado) {
+            LockSupport.parkNanos(this, restante);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            restante = limite - System.nanoTime();
+        }
+    }
+
+    /** Chamado com o lock; acorda o dono se outra thread fechou o lote. */
+    private void fechar(Lote<V> lote) {
+        lote.fechado = true;
+        if (aberto == lote) {
+            aberto = null;
+        }
+        if (lote.dono != Thread.currentThread()) {
+            LockSupport.unpark(lote.dono);
+        }
+    }
+
+    /**
+     * Fecha o lote se ninguém o fechou por tamanho durante a janela.
+     *
+     * @return true se coube a quem chamou executá-lo
+     */
+    private boolean fecharSeAberto(Lote<V> lote) {
+        lock.lock();
+        try {
+            if (lote.fechado) {
+                return false;
+            }
+            fechar(lote);
+            emAndamento++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void executar(Lote<V> lote) {
+        // Depois de fechado o lote não muda mais, então é lido fora do lock
+        Map<String, CompletableFuture<V>> pendentes = lote.pendentes;
+        tamanhos.record(pendentes.size());
+        try {
+            if (pendentes.size() == 1) {
+                Map.Entry<String, CompletableFuture<V>> unica = pendentes.entrySet().iterator().next();
+                unica.getValue().complete(individual.apply(unica.getKey()));
+                return;
+            }
+            Map<String, V> encontrados = emLote.apply(pendentes.keySet());
+            for (Map.Entry<String, CompletableFuture<V>> pendente : pendentes.entrySet()) {
+                pendente.getValue().complete(encontrados.getOrDefault(pendente.getKey(), ausente));
+            }
+        } catch (RuntimeException | Error e) {
+            // A falha chega a todas as requisições do lote
+            for (CompletableFuture<V> pendente : pendentes.values()) {
+                pendente.completeExceptionally(e);
+            }
+        } finally {
+            concluir();
+        }
+    }
+
+    private void concluir() {
+        lock.lock();
+        try {
+            emAndamento--;
+            if (emAndamento == 0 && aberto != null) {
+                LockSupport.unpark(aberto.dono);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Lote<V> {
+
+        private final Map<String, CompletableFuture<V>> pendentes = new LinkedHashMap<>();
+        // Quem criou o lote e espera para executá-lo
+        private final Thread dono;
+        private volatile boolean fechado;
+
+        private Lote(Thread dono) {
+            this.dono = dono;
+        }
+    }
+}
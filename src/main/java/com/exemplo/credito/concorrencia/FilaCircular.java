@@ -0,0 +1,99 @@
+package com.exemplo.credito.concorrencia;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fila circular limitada e sem locks para múltiplos produtores e consumidores
+ * (algoritmo de D. Vyukov). Cada posição guarda um número de sequência que indica
+ * se está livre para escrita ou pronta para leitura, então produtores e consumidores
+ * só disputam um CAS no respectivo contador.
+ *
+ * A capacidade é arredondada para a próxima potência de dois.
+ */
+public final class FilaCircular<E> {
+
+    private final int capacidade;
+    private final int mascara;
+    private final AtomicReferenceArray<E> elementos;
+    private final AtomicLongArray sequencias;
+    private final AtomicLong posicaoEscrita = new AtomicLong();
+    private final AtomicLong posicaoLeitura = new AtomicLong();
+
+    public FilaCircular(int capacidadeMinima) {
+        if (capacidadeMinima < 2) {
+            throw new IllegalArgumentException("A capacidade da fila deve ser de pelo menos 2 elementos");
+        }
+        this.capacidade = Integer.highestOneBit(capacidadeMinima - 1) << 1;
+        this.mascara = capacidade - 1;
+        this.elementos = new AtomicReferenceArray<>(capacidade);
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    /**
+     * Insere o elemento; devolve {@code false} sem bloquear quando a fila está cheia.
+     */
+    public boolean offer(E elemento) {
+        long posicao = posicaoEscrita.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) {
+                if (posicaoEscrita.compareAndSet(posicao, posicao + 1)) {
+                    elementos.set(indice, elemento);
+                    sequencias.set(indice, posicao + 1);
+                    return true;
+                }
+                posicao = posicaoEscrita.get();
+            } else if (diferenca < 0) {
+                return false;
+            } else {
+                posicao = posicaoEscrita.get();
+            }
+        }
+    }
+
+    /**
+     * Remove o elemento mais antigo; devolve {@code null} quando a fila está vazia.
+     */
+    public E poll() {
+        long posicao = posicaoLeitura.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - (posicao + 1);
+            if (diferenca == 0) {
+                if (posicaoLeitura.compareAndSet(posicao, posicao + 1)) {
+                    E elemento = elementos.get(indice);
+                    elementos.set(indice, null);
+                    sequencias.set(indice, posicao + capacidade);
+                    return elemento;
+                }
+                posicao = posicaoLeitura.get();
+            } else if (diferenca < 0) {
+                return null;
+            } else {
+                posicao = posicaoLeitura.get();
+            }
+        }
+    }
+
+    /**
+     * Quantidade aproximada de elementos (exata apenas sem concorrência).
+     */
+    public int size() {
+        long tamanho = posicaoEscrita.get() - posicaoLeitura.get();
+        return (int) Math.max(0, Math.min(capacidade, tamanho));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacidade() {
+        return capacidade;
+    }
+}
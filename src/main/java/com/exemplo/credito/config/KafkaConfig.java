@@ -1,8 +1,14 @@
 package com.exemplo.credito.config;
 
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.ConsultaAuditoriaEventBinarioSerializer;
+import com.exemplo.credito.event.ConsultaAuditoriaEventJsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -11,8 +17,10 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,12 +32,18 @@ public class KafkaConfig {
     @Value("${kafka.bootstrap.servers}")
     private String bootstrapServers;
 
+    // json (padrão, formato original) ou binario (AuditoriaEventCodec)
+    @Value("${kafka.auditoria.formato:json}")
+    private String formatoAuditoria;
+
+    // Quanto um envio espera por metadata do broker; o primeiro timeout abre o circuito da auditoria
+    @Value("${kafka.auditoria.max-block:PT1S}")
+    private Duration maxBlockAuditoria;
+
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, ConsultaAuditoriaEvent> producerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         
         // Configurações de performance e confiabilidade
         props.put(ProducerConfig.ACKS_CONFIG, "-1"); // Aguarda confirmação de todas as réplicas
@@ -37,13 +51,52 @@ public class KafkaConfig {
         props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true); // Garante idempotência
         props.put(ProducerConfig.LINGER_MS_CONFIG, 1); // Aguarda 1ms para agrupar mensagens
         props.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384); // Tamanho do batch em bytes
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, (int) maxBlockAuditoria.toMillis()); // Limita o bloqueio da thread de publicação sem metadata do broker
         
-        return new DefaultKafkaProducerFactory<>(props);
+        DefaultKafkaProducerFactory<String, ConsultaAuditoriaEvent> factory =
+                new DefaultKafkaProducerFactory<>(props, new StringSerializer(), serializerAuditoria());
+        // Métricas do producer (kafka.producer.*), incluindo buffer.available.bytes e record.send.rate
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+
+    private Serializer<ConsultaAuditoriaEvent> serializerAuditoria() {
+        if ("binario".equalsIgnoreCase(formatoAuditoria)) {
+            return new ConsultaAuditoriaEventBinarioSerializer();
+        }
+        return new ConsultaAuditoriaEventJsonSerializer(objectMapper());
+    }
+
+    @Bean
+    public KafkaTemplate<String, ConsultaAuditoriaEvent> kafkaTemplate(
+            ProducerFactory<String, ConsultaAuditoriaEvent> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * Producer dos resumos do modo agregado da auditoria (AuditoriaAgregador): um registro JSON
+     * por janela, comprimido, sem disputar o batch dos eventos brutos.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "auditoria.agregacao.enabled", havingValue = "true")
+    public ProducerFactory<String, byte[]> producerFactoryResumo(MeterRegistry meterRegistry) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.ACKS_CONFIG, "-1");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "gzip");
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, (int) maxBlockAuditoria.toMillis());
+
+        DefaultKafkaProducerFactory<String, byte[]> factory =
+                new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new ByteArraySerializer());
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    @ConditionalOnProperty(name = "auditoria.agregacao.enabled", havingValue = "true")
+    public KafkaTemplate<String, byte[]> kafkaTemplateResumo(ProducerFactory<String, byte[]> producerFactoryResumo) {
+        return new KafkaTemplate<>(producerFactoryResumo);
     }
 
     @Bean
@@ -0,0 +1,84 @@
+package com.exemplo.credito.config;
+
+import com.exemplo.credito.replica.Balanceamento;
+import com.exemplo.credito.replica.ReplicasLeitura;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de leitura: as transações somente leitura (as consultas do CreditoRepository, os resumos e
+ * os modos em memória) vão para as réplicas; escritas e {@link com.exemplo.credito.replica.LeituraNoPrimario}
+ * ficam no primário, configurado por spring.datasource.*.
+ *
+ * O LazyConnectionDataSourceProxy só obtém a conexão física no primeiro comando, quando a transação
+ * já marcou a conexão como somente leitura, e então escolhe entre primário e réplicas.
+ */
+@Configuration
+@Profile("!reativo")
+@ConditionalOnProperty(name = "credito.replicas.enabled", havingValue = "true")
+public class ReplicasLeituraConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicasLeitura replicasLeitura(@Qualifier("dataSourcePrimario") DataSource primario,
+                                           @Value("${credito.replicas.urls}") List<String> urls,
+                                           @Value("${credito.replicas.username:${spring.datasource.username:}}") String usuario,
+                                           @Value("${credito.replicas.password:${spring.datasource.password:}}") String senha,
+                                           @Value("${credito.replicas.balanceamento:MENOS_CONEXOES}") Balanceamento balanceamento,
+                                           @Value("${credito.replicas.tamanho-pool:10}") int tamanhoPool,
+                                           @Value("${credito.replicas.timeout-conexao:PT1S}") Duration timeoutConexao,
+                                           @Value("${credito.replicas.atraso-maximo:PT10S}") Duration atrasoMaximo,
+                                           @Value("${credito.replicas.consulta-atraso}") String consultaAtraso,
+                                           @Value("${credito.replicas.intervalo-verificacao:PT5S}") Duration intervaloVerificacao,
+                                           MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(usuario);
+            config.setPassword(senha);
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(tamanhoPool);
+            config.setConnectionTimeout(timeoutConexao.toMillis());
+            // Réplica fora do ar na inicialização só fica fora do rodízio, sem impedir a subida
+            config.setInitializationFailTimeout(-1);
+            config.setMetricRegistry(meterRegistry);
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicasLeitura(replicas, primario, balanceamento, atrasoMaximo, consultaAtraso,
+                intervaloVerificacao, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("dataSourcePrimario") DataSource primario, ReplicasLeitura replicas) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primario);
+        dataSource.setReadOnlyDataSource(replicas);
+        return dataSource;
+    }
+}
@@ -3,11 +3,13 @@ package com.exemplo.credito.config;
 import com.exemplo.credito.interceptor.AuditoriaInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@Profile("!reativo")
 public class WebConfig implements WebMvcConfigurer {
 
     @Autowired
@@ -1,28 +1,243 @@
 package com.exemplo.credito.controller;
 
-import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.cache.RespostaCache;
+import com.exemplo.credito.dto.ConsultaLoteRequest;
+import com.exemplo.credito.dto.ConsultaLoteResponse;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import com.exemplo.credito.dto.VersaoCreditos;
+import com.exemplo.credito.interceptor.AuditoriaInterceptor;
 import com.exemplo.credito.service.CreditoService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 
 @RestController
+@Profile("!reativo")
 @RequestMapping("/api/creditos")
 @CrossOrigin(origins = {"http://localhost:4200", "http://127.0.0.1:4200", "http://frontend:4200"})
 @RequiredArgsConstructor
 public class CreditoController {
 
+    /** Respostas das chaves descartadas pelo filtro de existência, montadas sem consulta nem exceção. */
+    private static final byte[] LISTA_VAZIA = "[]".getBytes(StandardCharsets.UTF_8);
+    private static final VersaoCreditos VERSAO_VAZIA = VersaoCreditos.de(List.of());
+
     private final CreditoService service;
+    private final ObjectMapper objectMapper;
+    private final RespostaCache respostaCache;
+
+    /**
+     * max-age do Cache-Control das consultas com ETag. Com zero, CDN e navegador revalidam a cada uso,
+     * recebendo 304 enquanto nada mudar, e toda consulta continua passando pela auditoria.
+     */
+    @Value("${credito.http.cache-max-age:PT0S}")
+    private Duration cacheMaxAge = Duration.ZERO;
 
+    /**
+     * Com If-None-Match/If-Modified-Since, a versão vem de uma consulta só de agregados e a resposta
+     * 304 sai sem carregar nem serializar os créditos. As demais respostas saem do {@link RespostaCache}.
+     */
     @GetMapping("/{numeroNfse}")
-    public ResponseEntity<List<Credito>> getByNumeroNfse(@PathVariable String numeroNfse) {
-        return ResponseEntity.ok(service.buscarPorNfse(numeroNfse));
+    public ResponseEntity<byte[]> getByNumeroNfse(@PathVariable String numeroNfse,
+                                                  HttpServletRequest request) {
+        if (!service.podeExistirNfse(numeroNfse)) {
+            request.setAttribute(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE, 0);
+            return comVersao(ResponseEntity.ok(), VERSAO_VAZIA).contentType(MediaType.APPLICATION_JSON).body(LISTA_VAZIA);
+        }
+        if (condicional(request)) {
+            VersaoCreditos versao = service.versaoPorNfse(numeroNfse);
+            if (naoModificado(request, versao)) {
+                return comVersao(ResponseEntity.status(HttpStatus.NOT_MODIFIED), versao).build();
+            }
+        }
+        List<CreditoDTO> creditos = service.buscarPorNfse(numeroNfse);
+        return serializado("nfse", numeroNfse, creditos, VersaoCreditos.de(creditos), creditos.size(), request);
+    }
+
+    @GetMapping("/{numeroNfse}/paginado")
+    public ResponseEntity<PaginaCreditosResponse> getPaginaByNumeroNfse(
+            @PathVariable String numeroNfse,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int tamanho) {
+        return ResponseEntity.ok(service.buscarPaginaPorNfse(numeroNfse, cursor, tamanho));
+    }
+
+    /**
+     * Escreve o array JSON diretamente na resposta à medida que as linhas são lidas do banco,
+     * mantendo o uso de memória constante independente da quantidade de créditos da NFS-e.
+     */
+    @GetMapping("/{numeroNfse}/stream")
+    public void streamByNumeroNfse(@PathVariable String numeroNfse, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        int[] quantidade = new int[1];
+        try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            gerador.writeStartArray();
+            service.percorrerPorNfse(numeroNfse, credito -> {
+                try {
+                    gerador.writeObject(credito);
+                    quantidade[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            gerador.writeEndArray();
+        } finally {
+            // Sem corpo retornado, o ResponseBodyAdvice não participa; a contagem é feita aqui
+            request.setAttribute(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE, quantidade[0]);
+        }
     }
 
     @GetMapping("/credito/{numeroCredito}")
-    public ResponseEntity<Credito> getByNumeroCredito(@PathVariable String numeroCredito) {
-        return ResponseEntity.ok(service.buscarPorNumeroCredito(numeroCredito));
+    public ResponseEntity<byte[]> getByNumeroCredito(@PathVariable String numeroCredito,
+                                                     HttpServletRequest request) {
+        if (!service.podeExistirCredito(numeroCredito)) {
+            return creditoNaoEncontrado(request);
+        }
+        if (condicional(request)) {
+            VersaoCreditos versao = service.versaoPorNumeroCredito(numeroCredito);
+            // Crédito inexistente segue o caminho normal, que responde 404
+            if (versao.quantidade() > 0 && naoModificado(request, versao)) {
+                return comVersao(ResponseEntity.status(HttpStatus.NOT_MODIFIED), versao).build();
+            }
+        }
+        CreditoDTO credito = service.buscarPorNumeroCredito(numeroCredito);
+        return serializado("credito", numeroCredito, credito, VersaoCreditos.de(List.of(credito)), 1, request);
+    }
+
+    @PostMapping("/lote")
+    public ResponseEntity<ConsultaLoteResponse> buscarEmLote(@RequestBody ConsultaLoteRequest requisicao,
+                                                             HttpServletRequest request) {
+        // Um único evento de auditoria por lote, com quantidade e hash das chaves em vez da lista inteira
+        request.setAttribute(AuditoriaInterceptor.PARAMETRO_ATTRIBUTE, "nfse=" + resumir(requisicao.getNumerosNfse())
+                + ";credito=" + resumir(requisicao.getNumerosCredito()));
+        return ResponseEntity.ok(service.buscarEmLote(requisicao));
+    }
+
+    /**
+     * Escreve os bytes já serializados (gzip quando o cliente aceita e a variante existe). O byte[]
+     * vai direto para o output stream, e com Content-Encoding definido o Tomcat não comprime de novo.
+     */
+    private ResponseEntity<byte[]> serializado(String endpoint, String chave, Object corpo, VersaoCreditos versao,
+                                               int quantidade, HttpServletRequest request) {
+        RespostaCache.RespostaSerializada resposta = respostaCache.obter(endpoint, chave, versao, corpo);
+        // O corpo já é byte[], que o QuantidadeResultadosAdvice não sabe contar
+        request.setAttribute(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE, quantidade);
+
+        ResponseEntity.BodyBuilder builder = comVersao(ResponseEntity.ok(), versao)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (resposta.gzip() != null && RespostaCache.aceitaGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(resposta.gzip());
+        }
+        return builder.body(resposta.json());
+    }
+
+    /**
+     * Mesmo corpo do GlobalExceptionHandler para EntityNotFoundException, escrito pelo mesmo ObjectMapper
+     * (formato do timestamp inclusive), sem lançar a exceção; só path e timestamp mudam por requisição.
+     */
+    private ResponseEntity<byte[]> creditoNaoEncontrado(HttpServletRequest request) {
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.NOT_FOUND.value());
+        errorDetails.put("error", "Not Found");
+        errorDetails.put("message", "Crédito não encontrado");
+        errorDetails.put("path", request.getRequestURI());
+        try {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(objectMapper.writeValueAsBytes(errorDetails));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <B extends ResponseEntity.HeadersBuilder<B>> B comVersao(B resposta, VersaoCreditos versao) {
+        resposta.eTag(versao.etag())
+                .cacheControl(CacheControl.maxAge(cacheMaxAge).cachePublic().mustRevalidate());
+        if (versao.ultimaModificacao() != null) {
+            resposta.lastModified(versao.ultimaModificacao());
+        }
+        return resposta;
+    }
+
+    private static boolean condicional(HttpServletRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Precondições de um GET (RFC 9110): If-None-Match, quando presente, decide sozinho
+     * (comparação fraca); senão vale o If-Modified-Since, com precisão de segundos.
+     */
+    static boolean naoModificado(HttpServletRequest request, VersaoCreditos versao) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            String etag = versao.etag();
+            for (String candidato : ifNoneMatch.split(",")) {
+                String valor = candidato.trim();
+                if (valor.startsWith("W/")) {
+                    valor = valor.substring(2);
+                }
+                if (valor.equals("*") || valor.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (versao.ultimaModificacao() == null) {
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && versao.ultimaModificacao().getEpochSecond() * 1000 <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            // Data mal formada: a precondição é ignorada
+            return false;
+        }
+    }
+
+    /**
+     * Parâmetro de auditoria de uma lista de chaves do lote, de tamanho fixo qualquer que seja o lote:
+     * {@code <quantidade>:<hash>}, com os 16 primeiros dígitos hexadecimais do SHA-256 das chaves unidas
+     * por vírgula, na ordem da requisição; só {@code 0} para lista vazia.
+     */
+    static String resumir(List<String> chaves) {
+        if (chaves == null || chaves.isEmpty()) {
+            return "0";
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join(",", chaves).getBytes(StandardCharsets.UTF_8));
+            return chaves.size() + ":" + HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            // Toda JVM tem SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 }
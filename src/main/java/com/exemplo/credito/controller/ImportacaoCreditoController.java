@@ -0,0 +1,41 @@
+package com.exemplo.credito.controller;
+
+import com.exemplo.credito.dto.ImportacaoResponse;
+import com.exemplo.credito.service.ImportacaoCreditoService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Escrita em massa sem autenticação própria: só existe com credito.importacao.enabled=true,
+ * a ser ligado apenas onde o endpoint não fica exposto a clientes.
+ */
+@RestController
+@Profile("!reativo")
+@ConditionalOnProperty(name = "credito.importacao.enabled", havingValue = "true")
+@RequestMapping("/api/creditos")
+@RequiredArgsConstructor
+public class ImportacaoCreditoController {
+
+    private final ImportacaoCreditoService service;
+
+    /**
+     * Importa o arquivo enviado no corpo (text/csv ou application/x-ndjson), lido direto do stream
+     * da requisição, sem ser carregado inteiro em memória.
+     */
+    @PostMapping(value = "/importacao", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ImportacaoResponse> importar(@RequestParam(defaultValue = "0") long aPartirDe,
+                                                       HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(service.importar(request.getInputStream(),
+                MediaType.parseMediaType(request.getContentType()), aPartirDe));
+    }
+}
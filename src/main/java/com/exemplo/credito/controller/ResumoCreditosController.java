@@ -0,0 +1,55 @@
+package com.exemplo.credito.controller;
+
+import com.exemplo.credito.dto.ResumoCreditosDTO;
+import com.exemplo.credito.memoria.ResumoCreditos;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Totais de ISSQN, valor faturado e base de cálculo, servidos do {@link ResumoCreditos} sem
+ * varrer a tabela a cada requisição.
+ */
+@RestController
+@Profile("!reativo")
+@ConditionalOnProperty(name = "credito.resumo.enabled", havingValue = "true")
+@RequestMapping("/api/creditos/resumo")
+@CrossOrigin(origins = {"http://localhost:4200", "http://127.0.0.1:4200", "http://frontend:4200"})
+@RequiredArgsConstructor
+public class ResumoCreditosController {
+
+    private final ResumoCreditos resumo;
+
+    @GetMapping("/nfse/{numeroNfse}")
+    public ResponseEntity<ResumoCreditosDTO> getPorNfse(@PathVariable String numeroNfse) {
+        return ResponseEntity.ok(resumo.porNfse(numeroNfse));
+    }
+
+    @GetMapping("/tipo-credito")
+    public ResponseEntity<List<ResumoCreditosDTO>> getPorTipoCredito() {
+        return ResponseEntity.ok(resumo.porTipoCredito());
+    }
+
+    @GetMapping("/simples-nacional")
+    public ResponseEntity<List<ResumoCreditosDTO>> getPorSimplesNacional() {
+        return ResponseEntity.ok(resumo.porSimplesNacional());
+    }
+
+    @GetMapping("/mes")
+    public ResponseEntity<List<ResumoCreditosDTO>> getPorMes(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth de,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth ate) {
+        return ResponseEntity.ok(resumo.porMes(de, ate));
+    }
+}
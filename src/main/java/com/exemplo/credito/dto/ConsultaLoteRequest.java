@@ -0,0 +1,18 @@
+package com.exemplo.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsultaLoteRequest {
+
+    private List<String> numerosNfse;
+    private List<String> numerosCredito;
+}
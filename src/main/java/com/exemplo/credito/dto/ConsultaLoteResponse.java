@@ -0,0 +1,21 @@
+package com.exemplo.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsultaLoteResponse {
+
+    private Map<String, List<CreditoDTO>> creditosPorNfse;
+    private Map<String, CreditoDTO> creditosPorNumero;
+    private List<String> nfsesNaoEncontradas;
+    private List<String> creditosNaoEncontrados;
+}
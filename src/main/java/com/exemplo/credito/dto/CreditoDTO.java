@@ -0,0 +1,32 @@
+package com.exemplo.credito.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Projeção somente leitura de {@link com.exemplo.credito.entity.Credito} usada nas consultas.
+ *
+ * Carregada por expressão de construtor, não entra no contexto de persistência (sem snapshot
+ * para dirty checking) e serializa no mesmo formato JSON da entidade.
+ *
+ * {@code versao} e {@code atualizadoEm} ficam fora do JSON: servem para o ETag e o Last-Modified
+ * da resposta (ver {@link VersaoCreditos}).
+ */
+public record CreditoDTO(
+        Long id,
+        String numeroCredito,
+        String numeroNfse,
+        LocalDate dataConstituicao,
+        BigDecimal valorIssqn,
+        String tipoCredito,
+        boolean simplesNacional,
+        BigDecimal aliquota,
+        BigDecimal valorFaturado,
+        BigDecimal valorDeducao,
+        BigDecimal baseCalculo,
+        @JsonIgnore long versao,
+        @JsonIgnore Instant atualizadoEm) {
+}
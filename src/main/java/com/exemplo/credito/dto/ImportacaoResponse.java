@@ -0,0 +1,38 @@
+package com.exemplo.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacaoResponse {
+
+    /** Registros lidos do arquivo, incluindo os pulados por {@code aPartirDe}. */
+    private long registrosLidos;
+    private long registrosImportados;
+    private long registrosRejeitados;
+
+    /**
+     * Registros do arquivo já consumidos até o último chunk confirmado; numa nova tentativa com o
+     * mesmo arquivo, é o valor a passar em {@code aPartirDe}.
+     */
+    private long retomarAPartirDe;
+
+    /** Primeiros registros rejeitados na validação, com o motivo. */
+    private List<RegistroRejeitado> rejeitados;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RegistroRejeitado {
+        /** Posição do registro no arquivo, a partir de 1. */
+        private long registro;
+        private String motivo;
+    }
+}
@@ -0,0 +1,20 @@
+package com.exemplo.credito.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCreditosResponse {
+
+    private List<CreditoDTO> creditos;
+
+    /** Token opaco para buscar a próxima página; nulo quando não há mais registros. */
+    private String proximoCursor;
+}
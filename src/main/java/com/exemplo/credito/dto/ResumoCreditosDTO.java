@@ -0,0 +1,17 @@
+package com.exemplo.credito.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Totais dos créditos de um agrupamento (uma NFS-e, um tipo de crédito, um mês...).
+ *
+ * @param chave valor do agrupamento: o número da NFS-e, o tipo, {@code true}/{@code false} para o
+ *              Simples Nacional ou o mês no formato {@code yyyy-MM}
+ */
+public record ResumoCreditosDTO(
+        String chave,
+        long quantidade,
+        BigDecimal valorIssqn,
+        BigDecimal valorFaturado,
+        BigDecimal baseCalculo) {
+}
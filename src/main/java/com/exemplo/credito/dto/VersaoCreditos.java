@@ -0,0 +1,53 @@
+package com.exemplo.credito.dto;
+
+import java.time.Instant;
+import java.util.Collection;
+
+/**
+ * Versão de um resultado de consulta, usada como ETag e Last-Modified.
+ *
+ * Todos os componentes podem ser calculados tanto a partir dos créditos já carregados quanto por
+ * agregação no banco (COUNT/MAX/SUM), então a consulta de versão de um GET condicional chega ao
+ * mesmo ETag da resposta completa sem carregar as linhas. Atualizações mudam a soma das versões;
+ * inclusões e exclusões mudam a quantidade, o maior id ou a soma dos ids.
+ */
+public record VersaoCreditos(
+        long quantidade,
+        long maiorId,
+        long somaIds,
+        long somaVersoes,
+        Instant ultimaModificacao) {
+
+    /** Usado pela consulta JPQL, em que os agregados vêm nulos quando não há linhas. */
+    public VersaoCreditos(Long quantidade, Long maiorId, Long somaIds, Long somaVersoes, Instant ultimaModificacao) {
+        this(valor(quantidade), valor(maiorId), valor(somaIds), valor(somaVersoes), ultimaModificacao);
+    }
+
+    public static VersaoCreditos de(Collection<CreditoDTO> creditos) {
+        long maiorId = 0;
+        long somaIds = 0;
+        long somaVersoes = 0;
+        Instant ultimaModificacao = null;
+        for (CreditoDTO credito : creditos) {
+            long id = credito.id() == null ? 0 : credito.id();
+            maiorId = Math.max(maiorId, id);
+            somaIds += id;
+            somaVersoes += credito.versao();
+            if (credito.atualizadoEm() != null
+                    && (ultimaModificacao == null || credito.atualizadoEm().isAfter(ultimaModificacao))) {
+                ultimaModificacao = credito.atualizadoEm();
+            }
+        }
+        return new VersaoCreditos(creditos.size(), maiorId, somaIds, somaVersoes, ultimaModificacao);
+    }
+
+    /** ETag forte, já entre aspas. */
+    public String etag() {
+        return "\"" + Long.toHexString(quantidade) + '-' + Long.toHexString(maiorId) + '-'
+                + Long.toHexString(somaIds) + '-' + Long.toHexString(somaVersoes) + "\"";
+    }
+
+    private static long valor(Long agregado) {
+        return agregado == null ? 0 : agregado;
+    }
+}
@@ -2,8 +2,11 @@ package com.exemplo.credito.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 
 @Entity
@@ -24,4 +27,15 @@ public class Credito {
     private BigDecimal valorFaturado;
     private BigDecimal valorDeducao;
     private BigDecimal baseCalculo;
+
+    // Versão da linha: compõe o ETag das consultas. Os defaults cobrem inserts fora do JPA (data.sql, importação)
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long versao;
+
+    @UpdateTimestamp
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(nullable = false)
+    private Instant atualizadoEm;
 }
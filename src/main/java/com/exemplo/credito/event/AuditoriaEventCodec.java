@@ -0,0 +1,343 @@
+package com.exemplo.credito.event;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Codificação binária compacta e versionada de {@link ConsultaAuditoriaEvent}.
+ *
+ * Formato (versão 2; a versão 1 é idêntica, sem o campo tamanhoResposta):
+ * <pre>
+ * byte    versão
+ * varint  máscara de campos presentes (bit por campo, na ordem abaixo) + bit de id UUID
+ * id            16 bytes se for UUID, senão string
+ * endpoint      varint índice do prefixo conhecido (0 = nenhum) + string com o restante
+ * parametro     string
+ * metodo        varint índice do método HTTP (0 = string literal a seguir)
+ * status        varint
+ * quantidade    varint
+ * timestamp     varint zigzag, microssegundos desde a época (UTC)
+ * userAgent     string
+ * ipOrigem      string
+ * tempo         varint zigzag
+ * tamanho       varint zigzag, bytes do corpo da resposta
+ * </pre>
+ * Strings são gravadas como varint do tamanho em bytes + UTF-8.
+ *
+ * A codificação escreve num buffer reaproveitado por thread; só o array final de saída é alocado.
+ */
+public final class AuditoriaEventCodec {
+
+    public static final byte VERSAO = 2;
+    private static final byte VERSAO_SEM_TAMANHO = 1;
+
+    private static final String[] PREFIXOS_ENDPOINT = {
+            "", "/api/creditos/credito/", "/api/creditos/lote", "/api/creditos/"
+    };
+    private static final String[] METODOS = {
+            "", "GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS"
+    };
+
+    private static final int CAMPO_ID = 1;
+    private static final int CAMPO_ENDPOINT = 1 << 1;
+    private static final int CAMPO_PARAMETRO = 1 << 2;
+    private static final int CAMPO_METODO = 1 << 3;
+    private static final int CAMPO_STATUS = 1 << 4;
+    private static final int CAMPO_QUANTIDADE = 1 << 5;
+    private static final int CAMPO_TIMESTAMP = 1 << 6;
+    private static final int CAMPO_USER_AGENT = 1 << 7;
+    private static final int CAMPO_IP = 1 << 8;
+    private static final int CAMPO_TEMPO = 1 << 9;
+    private static final int ID_UUID = 1 << 10;
+    private static final int CAMPO_TAMANHO = 1 << 11;
+
+    private static final ThreadLocal<Escritor> ESCRITORES = ThreadLocal.withInitial(() -> new Escritor(256));
+
+    private AuditoriaEventCodec() {
+    }
+
+    public static byte[] codificar(ConsultaAuditoriaEvent evento) {
+        Escritor escritor = ESCRITORES.get();
+        escritor.reiniciar();
+        codificar(evento, escritor);
+        return escritor.copiar();
+    }
+
+    private static void codificar(ConsultaAuditoriaEvent evento, Escritor escritor) {
+        UUID uuid = comoUuid(evento.getId());
+        int mascara = (evento.getId() != null ? CAMPO_ID : 0)
+                | (uuid != null ? ID_UUID : 0)
+                | (evento.getEndpoint() != null ? CAMPO_ENDPOINT : 0)
+                | (evento.getParametro() != null ? CAMPO_PARAMETRO : 0)
+                | (evento.getMetodo() != null ? CAMPO_METODO : 0)
+                | (evento.getStatusResposta() != null ? CAMPO_STATUS : 0)
+                | (evento.getQuantidadeResultados() != null ? CAMPO_QUANTIDADE : 0)
+                | (evento.getTimestamp() != null ? CAMPO_TIMESTAMP : 0)
+                | (evento.getUserAgent() != null ? CAMPO_USER_AGENT : 0)
+                | (evento.getIpOrigemString() != null ? CAMPO_IP : 0)
+                | (evento.getTempoProcessamento() != null ? CAMPO_TEMPO : 0)
+                | (evento.getTamanhoResposta() != null ? CAMPO_TAMANHO : 0);
+
+        escritor.byteSimples(VERSAO);
+        escritor.varint(mascara);
+
+        if (uuid != null) {
+            escritor.longFixo(uuid.getMostSignificantBits());
+            escritor.longFixo(uuid.getLeastSignificantBits());
+        } else if (evento.getId() != null) {
+            escritor.string(evento.getId());
+        }
+        if (evento.getEndpoint() != null) {
+            String endpoint = evento.getEndpoint();
+            int prefixo = indicePrefixo(endpoint);
+            escritor.varint(prefixo);
+            escritor.string(endpoint, PREFIXOS_ENDPOINT[prefixo].length());
+        }
+        if (evento.getParametro() != null) {
+            escritor.string(evento.getParametro());
+        }
+        if (evento.getMetodo() != null) {
+            int metodo = indice(METODOS, evento.getMetodo());
+            escritor.varint(metodo);
+            if (metodo == 0) {
+                escritor.string(evento.getMetodo());
+            }
+        }
+        if (evento.getStatusResposta() != null) {
+            escritor.varint(evento.getStatusResposta());
+        }
+        if (evento.getQuantidadeResultados() != null) {
+            escritor.varint(evento.getQuantidadeResultados());
+        }
+        if (evento.getTimestamp() != null) {
+            LocalDateTime timestamp = evento.getTimestamp();
+            long micros = Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+                    timestamp.getNano() / 1_000);
+            escritor.varlongZigZag(micros);
+        }
+        if (evento.getUserAgent() != null) {
+            escritor.string(evento.getUserAgent());
+        }
+        if (evento.getIpOrigemString() != null) {
+            escritor.string(evento.getIpOrigemString());
+        }
+        if (evento.getTempoProcessamento() != null) {
+            escritor.varlongZigZag(evento.getTempoProcessamento());
+        }
+        if (evento.getTamanhoResposta() != null) {
+            escritor.varlongZigZag(evento.getTamanhoResposta());
+        }
+    }
+
+    public static ConsultaAuditoriaEvent decodificar(byte[] dados) {
+        Leitor leitor = new Leitor(dados);
+        byte versao = leitor.byteSimples();
+        if (versao != VERSAO && versao != VERSAO_SEM_TAMANHO) {
+            throw new IllegalArgumentException("Versão de evento de auditoria não suportada: " + versao);
+        }
+        int mascara = (int) leitor.varlong();
+
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        if ((mascara & ID_UUID) != 0) {
+            evento.setId(new UUID(leitor.longFixo(), leitor.longFixo()).toString());
+        } else if ((mascara & CAMPO_ID) != 0) {
+            evento.setId(leitor.string());
+        }
+        if ((mascara & CAMPO_ENDPOINT) != 0) {
+            String prefixo = PREFIXOS_ENDPOINT[(int) leitor.varlong()];
+            evento.setEndpoint(prefixo + leitor.string());
+        }
+        if ((mascara & CAMPO_PARAMETRO) != 0) {
+            evento.setParametro(leitor.string());
+        }
+        if ((mascara & CAMPO_METODO) != 0) {
+            int metodo = (int) leitor.varlong();
+            evento.setMetodo(metodo == 0 ? leitor.string() : METODOS[metodo]);
+        }
+        if ((mascara & CAMPO_STATUS) != 0) {
+            evento.setStatusResposta((int) leitor.varlong());
+        }
+        if ((mascara & CAMPO_QUANTIDADE) != 0) {
+            evento.setQuantidadeResultados((int) leitor.varlong());
+        }
+        if ((mascara & CAMPO_TIMESTAMP) != 0) {
+            long micros = leitor.varlongZigZag();
+            evento.setTimestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC));
+        }
+        if ((mascara & CAMPO_USER_AGENT) != 0) {
+            evento.setUserAgent(leitor.string());
+        }
+        if ((mascara & CAMPO_IP) != 0) {
+            evento.setIpOrigemString(leitor.string());
+        }
+        if ((mascara & CAMPO_TEMPO) != 0) {
+            evento.setTempoProcessamento(leitor.varlongZigZag());
+        }
+        if ((mascara & CAMPO_TAMANHO) != 0) {
+            evento.setTamanhoResposta(leitor.varlongZigZag());
+        }
+        return evento;
+    }
+
+    private static int indicePrefixo(String endpoint) {
+        // Os prefixos mais específicos vêm antes no dicionário
+        for (int i = 1; i < PREFIXOS_ENDPOINT.length; i++) {
+            if (endpoint.startsWith(PREFIXOS_ENDPOINT[i])) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int indice(String[] dicionario, String valor) {
+        for (int i = 1; i < dicionario.length; i++) {
+            if (dicionario[i].equals(valor)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static UUID comoUuid(String id) {
+        if (id == null || id.length() != 36 || id.charAt(8) != '-' || id.charAt(13) != '-'
+                || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            // Só usa a forma binária se a volta reproduz exatamente o texto original
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static final class Escritor {
+
+        private byte[] buffer;
+        private int posicao;
+
+        private Escritor(int capacidadeInicial) {
+            this.buffer = new byte[capacidadeInicial];
+        }
+
+        void reiniciar() {
+            posicao = 0;
+        }
+
+        byte[] copiar() {
+            return Arrays.copyOf(buffer, posicao);
+        }
+
+        void byteSimples(int valor) {
+            garantir(1);
+            buffer[posicao++] = (byte) valor;
+        }
+
+        void varint(int valor) {
+            varlong(valor & 0xFFFFFFFFL);
+        }
+
+        void varlongZigZag(long valor) {
+            varlong((valor << 1) ^ (valor >> 63));
+        }
+
+        void varlong(long valor) {
+            garantir(10);
+            while ((valor & ~0x7FL) != 0) {
+                buffer[posicao++] = (byte) ((valor & 0x7F) | 0x80);
+                valor >>>= 7;
+            }
+            buffer[posicao++] = (byte) valor;
+        }
+
+        void longFixo(long valor) {
+            garantir(8);
+            for (int deslocamento = 56; deslocamento >= 0; deslocamento -= 8) {
+                buffer[posicao++] = (byte) (valor >>> deslocamento);
+            }
+        }
+
+        void string(String valor) {
+            string(valor, 0);
+        }
+
+        void string(String valor, int inicio) {
+            int fim = valor.length();
+            boolean ascii = true;
+            for (int i = inicio; i < fim && ascii; i++) {
+                ascii = valor.charAt(i) < 0x80;
+            }
+            if (ascii) {
+                // Caminho comum (URIs, IPs, user agents): escreve os chars direto, sem array intermediário
+                varint(fim - inicio);
+                garantir(fim - inicio);
+                for (int i = inicio; i < fim; i++) {
+                    buffer[posicao++] = (byte) valor.charAt(i);
+                }
+            } else {
+                byte[] utf8 = valor.substring(inicio).getBytes(StandardCharsets.UTF_8);
+                varint(utf8.length);
+                garantir(utf8.length);
+                System.arraycopy(utf8, 0, buffer, posicao, utf8.length);
+                posicao += utf8.length;
+            }
+        }
+
+        private void garantir(int adicional) {
+            if (posicao + adicional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, posicao + adicional));
+            }
+        }
+    }
+
+    private static final class Leitor {
+
+        private final byte[] dados;
+        private int posicao;
+
+        private Leitor(byte[] dados) {
+            this.dados = dados;
+        }
+
+        byte byteSimples() {
+            return dados[posicao++];
+        }
+
+        long varlong() {
+            long resultado = 0;
+            for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+                byte atual = dados[posicao++];
+                resultado |= (long) (atual & 0x7F) << deslocamento;
+                if ((atual & 0x80) == 0) {
+                    return resultado;
+                }
+            }
+            throw new IllegalArgumentException("Varint malformado no evento de auditoria");
+        }
+
+        long varlongZigZag() {
+            long valor = varlong();
+            return (valor >>> 1) ^ -(valor & 1);
+        }
+
+        long longFixo() {
+            long valor = 0;
+            for (int i = 0; i < 8; i++) {
+                valor = (valor << 8) | (dados[posicao++] & 0xFF);
+            }
+            return valor;
+        }
+
+        String string() {
+            int tamanho = (int) varlong();
+            String valor = new String(dados, posicao, tamanho, StandardCharsets.UTF_8);
+            posicao += tamanho;
+            return valor;
+        }
+    }
+}
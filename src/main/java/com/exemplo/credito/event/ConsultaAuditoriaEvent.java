@@ -1,5 +1,6 @@
 package com.exemplo.credito.event;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,4 +24,13 @@ public class ConsultaAuditoriaEvent {
     private String userAgent;
     private String ipOrigemString;
     private Long tempoProcessamento;
+    private Long tamanhoResposta;
+
+    // System.nanoTime() da entrada na AuditoriaFila, só em memória (métrica auditoria.publicacao)
+    @JsonIgnore
+    private transient long enfileiradoEmNanos;
+
+    // Padrão da rota atendida (ex.: /api/creditos/{numeroNfse}), só em memória: chave do modo agregado
+    @JsonIgnore
+    private transient String rota;
 } 
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.exemplo.credito.event;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serializer Kafka que usa a codificação binária compacta de {@link AuditoriaEventCodec}.
+ */
+public class ConsultaAuditoriaEventBinarioSerializer implements Serializer<ConsultaAuditoriaEvent> {
+
+    @Override
+    public byte[] serialize(String topic, ConsultaAuditoriaEvent evento) {
+        return evento == null ? null : AuditoriaEventCodec.codificar(evento);
+    }
+}
@@ -0,0 +1,31 @@
+package com.exemplo.credito.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Serializer Kafka em JSON, compatível com o formato publicado originalmente no tópico de auditoria.
+ */
+public class ConsultaAuditoriaEventJsonSerializer implements Serializer<ConsultaAuditoriaEvent> {
+
+    private final ObjectMapper objectMapper;
+
+    public ConsultaAuditoriaEventJsonSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] serialize(String topic, ConsultaAuditoriaEvent evento) {
+        if (evento == null) {
+            return null;
+        }
+        try {
+            // Escreve direto em bytes, sem a String intermediária
+            return objectMapper.writeValueAsBytes(evento);
+        } catch (JsonProcessingException e) {
+            throw new SerializationException("Erro ao serializar evento de auditoria " + evento.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.exemplo.credito.event;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Gera ids de evento no formato UUID versão 7 (RFC 9562): 48 bits de milissegundos desde a
+ * época seguidos de bits aleatórios. Os ids ficam ordenados pelo tempo e a parte aleatória vem
+ * do {@link ThreadLocalRandom}, sem a contenção do {@code SecureRandom} compartilhado usado por
+ * {@link UUID#randomUUID()}. Não são ids imprevisíveis; servem apenas para identificar eventos.
+ */
+public final class GeradorIdEvento {
+
+    private GeradorIdEvento() {
+    }
+
+    public static String novoId() {
+        return novoId(System.currentTimeMillis());
+    }
+
+    /** Permite reaproveitar uma leitura de relógio já feita pelo chamador. */
+    public static String novoId(long epochMillis) {
+        return novoUuid(epochMillis).toString();
+    }
+
+    static UUID novoUuid(long epochMillis) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        long maisSignificativos = (epochMillis << 16) | 0x7000L | (aleatorio.nextInt() & 0x0FFFL);
+        long menosSignificativos = (aleatorio.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(maisSignificativos, menosSignificativos);
+    }
+}
@@ -0,0 +1,29 @@
+package com.exemplo.credito.event;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Resumo de uma janela do modo agregado da auditoria: um registro no Kafka no lugar de um por requisição.
+ *
+ * @param eventos    requisições auditadas na janela
+ * @param amostrados quantas delas também foram enviadas como {@link ConsultaAuditoriaEvent}
+ * @param rotas      contagem e latência por rota, método e status
+ * @param clientes   contagem por rota, status e cliente (IP de origem); acima do limite de chaves
+ *                   da janela, os clientes novos são somados em "outros"
+ */
+public record ResumoAuditoriaEvent(String id, Instant inicio, Instant fim, long eventos, long amostrados,
+                                   List<PorRota> rotas, List<PorCliente> clientes) {
+
+    /**
+     * Latências em milissegundos (tempoProcessamento). {@code histograma} é o HdrHistogram completo,
+     * comprimido e em Base64 ({@code Histogram.decodeFromCompressedByteBuffer}), para somar janelas
+     * e instâncias sem perder precisão nos percentis.
+     */
+    public record PorRota(String rota, String metodo, int status, long quantidade, long p50, long p90,
+                          long p99, long p999, long maximo, String histograma) {
+    }
+
+    public record PorCliente(String rota, String metodo, int status, String cliente, long quantidade) {
+    }
+}
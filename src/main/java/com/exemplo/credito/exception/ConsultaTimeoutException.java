@@ -0,0 +1,11 @@
+package com.exemplo.credito.exception;
+
+/**
+ * A requisição desistiu de aguardar a consulta de mesma chave já em andamento por outra requisição.
+ */
+public class ConsultaTimeoutException extends RuntimeException {
+
+    public ConsultaTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,8 @@
 package com.exemplo.credito.exception;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,6 +14,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 @RestControllerAdvice
+@Profile("!reativo")
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(EntityNotFoundException.class)
@@ -42,6 +45,38 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(ImportacaoInterrompidaException.class)
+    public ResponseEntity<Map<String, Object>> handleImportacaoInterrompida(
+            ImportacaoInterrompidaException ex, WebRequest request) {
+
+        HttpStatus status = ex.isErroNoArquivo() ? HttpStatus.BAD_REQUEST : HttpStatus.INTERNAL_SERVER_ERROR;
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", status.value());
+        errorDetails.put("error", status.getReasonPhrase());
+        errorDetails.put("message", ex.getMessage());
+        errorDetails.put("path", request.getDescription(false).replace("uri=", ""));
+        errorDetails.put("importacao", ex.getResultado());
+
+        return new ResponseEntity<>(errorDetails, status);
+    }
+
+    @ExceptionHandler(ConsultaTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleConsultaTimeout(
+            ConsultaTimeoutException ex, WebRequest request) {
+
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        errorDetails.put("error", "Service Unavailable");
+        errorDetails.put("message", ex.getMessage());
+        errorDetails.put("path", request.getDescription(false).replace("uri=", ""));
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(errorDetails);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(
             Exception ex, WebRequest request) {
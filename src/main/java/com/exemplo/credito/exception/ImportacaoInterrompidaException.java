@@ -0,0 +1,24 @@
+package com.exemplo.credito.exception;
+
+import com.exemplo.credito.dto.ImportacaoResponse;
+import lombok.Getter;
+
+/**
+ * Importação interrompida no meio do arquivo. Os chunks anteriores já foram confirmados e o
+ * {@link #getResultado() resultado parcial} indica de onde retomar.
+ */
+@Getter
+public class ImportacaoInterrompidaException extends RuntimeException {
+
+    private final transient ImportacaoResponse resultado;
+
+    /** Erro no conteúdo do arquivo (formato inválido), e não na gravação. */
+    private final boolean erroNoArquivo;
+
+    public ImportacaoInterrompidaException(String message, ImportacaoResponse resultado, boolean erroNoArquivo,
+                                           Throwable cause) {
+        super(message, cause);
+        this.resultado = resultado;
+        this.erroNoArquivo = erroNoArquivo;
+    }
+}
@@ -1,29 +1,48 @@
 package com.exemplo.credito.interceptor;
 
 import com.exemplo.credito.event.ConsultaAuditoriaEvent;
-import com.exemplo.credito.service.AuditoriaPublisher;
+import com.exemplo.credito.event.GeradorIdEvento;
+import com.exemplo.credito.service.AuditoriaFila;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.WebUtils;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
+@Profile("!reativo")
 @RequiredArgsConstructor
 @Slf4j
 public class AuditoriaInterceptor implements HandlerInterceptor {
 
-    private final AuditoriaPublisher auditoriaPublisher;
+    private final AuditoriaFila auditoriaFila;
     private static final String START_TIME_ATTRIBUTE = "startTime";
 
+    // Fuso resolvido uma vez: LocalDateTime.now() clona o TimeZone padrão a cada chamada
+    private static final ZoneId FUSO = ZoneId.systemDefault();
+
+    /** Permite ao controller informar o parâmetro auditado quando ele não está no path (ex.: consulta em lote). */
+    public static final String PARAMETRO_ATTRIBUTE = "auditoria.parametro";
+
+    /** Quantidade de créditos devolvida, preenchida pelo {@link QuantidadeResultadosAdvice} ou pelo endpoint de stream. */
+    public static final String QUANTIDADE_RESULTADOS_ATTRIBUTE = "auditoria.quantidadeResultados";
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        // Marca o tempo de início da requisição
-        request.setAttribute(START_TIME_ATTRIBUTE, System.currentTimeMillis());
+        // Com o ContagemBytesFilter o início já está marcado no wrapper da resposta, sem boxing
+        if (WebUtils.getNativeResponse(response, ContagemBytesFilter.RespostaContadora.class) == null) {
+            request.setAttribute(START_TIME_ATTRIBUTE, System.nanoTime());
+        }
         return true;
     }
 
@@ -32,59 +51,96 @@ public class AuditoriaInterceptor implements HandlerInterceptor {
                                Object handler, Exception ex) {
         
         // Só audita se for um endpoint da API de créditos
-        if (!request.getRequestURI().startsWith("/api/creditos")) {
+        String uri = request.getRequestURI();
+        if (!uri.startsWith("/api/creditos")) {
             return;
         }
 
         try {
-            Long startTime = (Long) request.getAttribute(START_TIME_ATTRIBUTE);
-            Long tempoProcessamento = startTime != null ? 
-                System.currentTimeMillis() - startTime : null;
-
-            String parametro = extrairParametro(request);
-            Integer quantidadeResultados = extrairQuantidadeResultados(response);
-
-            ConsultaAuditoriaEvent evento = ConsultaAuditoriaEvent.builder()
-                .id(UUID.randomUUID().toString())
-                .endpoint(request.getRequestURI())
-                .parametro(parametro)
-                .metodo(request.getMethod())
-                .statusResposta(response.getStatus())
-                .quantidadeResultados(quantidadeResultados)
-                .timestamp(LocalDateTime.now())
-                .userAgent(request.getHeader("User-Agent"))
-                .ipOrigemString(obterIpReal(request))
-                .tempoProcessamento(tempoProcessamento)
-                .build();
-
-            // Publica o evento de forma assíncrona
-            auditoriaPublisher.publicarEventoAuditoria(evento);
+            ContagemBytesFilter.RespostaContadora contadora =
+                    WebUtils.getNativeResponse(response, ContagemBytesFilter.RespostaContadora.class);
+
+            // Uma única leitura de relógio alimenta o id (UUIDv7) e o timestamp
+            Instant agora = Instant.now();
+
+            // Construção direta, sem o builder intermediário
+            ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+            evento.setId(GeradorIdEvento.novoId(agora.toEpochMilli()));
+            evento.setEndpoint(uri);
+            evento.setRota(extrairRota(request));
+            evento.setParametro(extrairParametro(request, uri));
+            evento.setMetodo(request.getMethod());
+            evento.setStatusResposta(response.getStatus());
+            evento.setQuantidadeResultados(extrairQuantidadeResultados(request, response));
+            evento.setTimestamp(LocalDateTime.ofInstant(agora, FUSO));
+            evento.setUserAgent(request.getHeader("User-Agent"));
+            evento.setIpOrigemString(obterIpReal(request));
+            evento.setTempoProcessamento(calcularTempoProcessamento(request, contadora));
+            evento.setTamanhoResposta(contadora != null ? contadora.getBytesEscritos() : null);
+
+            // Apenas enfileira: serialização e envio ao Kafka acontecem na thread da fila
+            auditoriaFila.enfileirar(evento);
 
         } catch (Exception e) {
             log.error("Erro ao processar auditoria: {}", e.getMessage());
         }
     }
 
-    private String extrairParametro(HttpServletRequest request) {
-        String uri = request.getRequestURI();
-        
-        // Extrai o parâmetro da URL (último segmento do path)
-        String[] segments = uri.split("/");
-        if (segments.length > 0) {
-            return segments[segments.length - 1];
+    private Long calcularTempoProcessamento(HttpServletRequest request,
+                                            ContagemBytesFilter.RespostaContadora contadora) {
+        long inicio;
+        if (contadora != null) {
+            inicio = contadora.getInicioNanos();
+        } else if (request.getAttribute(START_TIME_ATTRIBUTE) instanceof Long inicioAtributo) {
+            inicio = inicioAtributo;
+        } else {
+            return null;
         }
-        
-        return null;
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
     }
 
-    private Integer extrairQuantidadeResultados(HttpServletResponse response) {
-        // Em um cenário real, poderíamos interceptar o response body
-        // Por simplicidade, estamos retornando null aqui
-        // Poderia ser implementado com um ResponseBodyAdvice
-        return null;
+    private String extrairParametro(HttpServletRequest request, String uri) {
+        Object parametroInformado = request.getAttribute(PARAMETRO_ATTRIBUTE);
+        if (parametroInformado != null) {
+            return parametroInformado.toString();
+        }
+
+        // Variável do path da rota (ex.: /{numeroNfse}/paginado), quando o handler foi resolvido
+        Object variaveis = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variaveis instanceof Map<?, ?> mapa && mapa.size() == 1) {
+            return String.valueOf(mapa.values().iterator().next());
+        }
+        return ultimoSegmento(uri);
+    }
+
+    private String extrairRota(HttpServletRequest request) {
+        Object padrao = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return padrao != null ? padrao.toString() : null;
+    }
+
+    // Último segmento não vazio do path, localizado por índice (sem regex nem array)
+    static String ultimoSegmento(String uri) {
+        int fim = uri.length();
+        while (fim > 0 && uri.charAt(fim - 1) == '/') {
+            fim--;
+        }
+        if (fim == 0) {
+            return null;
+        }
+        return uri.substring(uri.lastIndexOf('/', fim - 1) + 1, fim);
+    }
+
+    private Integer extrairQuantidadeResultados(HttpServletRequest request, HttpServletResponse response) {
+        Object quantidade = request.getAttribute(QUANTIDADE_RESULTADOS_ATTRIBUTE);
+        if (quantidade instanceof Integer valor) {
+            return valor;
+        }
+        // Respostas de erro (ex.: crédito não encontrado) não devolvem créditos
+        return response.getStatus() >= 400 ? 0 : null;
     }
 
-    private String obterIpReal(HttpServletRequest request) {
+    // Também identifica o cliente no LimiteRequisicoesFilter
+    static String obterIpReal(HttpServletRequest request) {
         String ip = request.getHeader("X-Forwarded-For");
         if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
             ip = request.getHeader("X-Real-IP");
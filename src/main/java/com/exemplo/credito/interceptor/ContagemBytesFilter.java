@@ -0,0 +1,137 @@
+package com.exemplo.credito.interceptor;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+/**
+ * Conta os bytes do corpo escritos na resposta das consultas de créditos, repassando cada
+ * escrita direto ao stream original (sem bufferizar ou copiar o corpo como o
+ * ContentCachingResponseWrapper). O total é lido pelo {@link AuditoriaInterceptor}.
+ */
+@Component
+@Profile("!reativo")
+public class ContagemBytesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/creditos");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(request, new RespostaContadora(response));
+    }
+
+    /**
+     * Wrapper da resposta que acumula a quantidade de bytes escritos no corpo e guarda o
+     * instante de início da requisição, usado pelo interceptor para o tempo de processamento.
+     */
+    public static class RespostaContadora extends HttpServletResponseWrapper {
+
+        private final long inicioNanos = System.nanoTime();
+        private ServletOutputStreamContador saida;
+        private PrintWriter escritor;
+
+        public RespostaContadora(HttpServletResponse response) {
+            super(response);
+        }
+
+        public long getInicioNanos() {
+            return inicioNanos;
+        }
+
+        public long getBytesEscritos() {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            return saida == null ? 0 : saida.contador;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (escritor != null) {
+                throw new IllegalStateException("getWriter() já foi chamado para esta resposta");
+            }
+            if (saida == null) {
+                saida = new ServletOutputStreamContador(super.getOutputStream());
+            }
+            return saida;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (escritor == null) {
+                if (saida != null) {
+                    throw new IllegalStateException("getOutputStream() já foi chamado para esta resposta");
+                }
+                saida = new ServletOutputStreamContador(super.getOutputStream());
+                escritor = new PrintWriter(new OutputStreamWriter(saida, Charset.forName(getCharacterEncoding())));
+            }
+            return escritor;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (escritor != null) {
+                escritor.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+
+    private static final class ServletOutputStreamContador extends ServletOutputStream {
+
+        private final ServletOutputStream destino;
+        private long contador;
+
+        private ServletOutputStreamContador(ServletOutputStream destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            destino.write(b);
+            contador++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            destino.write(b, off, len);
+            contador += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            destino.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            destino.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return destino.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            destino.setWriteListener(writeListener);
+        }
+    }
+}
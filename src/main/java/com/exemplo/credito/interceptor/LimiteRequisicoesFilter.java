@@ -0,0 +1,245 @@
+package com.exemplo.credito.interceptor;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.GeradorIdEvento;
+import com.exemplo.credito.service.AuditoriaFila;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controle de admissão por cliente nas consultas de créditos: limite de taxa (token bucket) e de
+ * requisições simultâneas, para que um único parceiro não esgote o pool de conexões dos demais.
+ *
+ * O cliente é a chave de API, quando é uma das configuradas em credito.limite.chaves-api, ou o endereço
+ * remoto da conexão: uma chave desconhecida conta no bucket do IP, para que trocar de chave a cada
+ * requisição não renove a rajada nem encha o cache de clientes. Pelo mesmo motivo o X-Forwarded-For
+ * não é lido aqui; atrás de proxy, o Tomcat só troca o endereço remoto pelo do cabeçalho quando a
+ * conexão vem de um proxy confiável (server.forward-headers-strategy=native e
+ * server.tomcat.remoteip.internal-proxies). O estado de
+ * cada cliente fica num cache Caffeine limitado e que expira por inatividade; o bucket é um único
+ * AtomicLong atualizado por CAS (formulação GCRA do token bucket), sem locks nem thread de recarga.
+ *
+ * Requisições recusadas recebem 429 com Retry-After, são contadas em creditos.limite.rejeitadas e
+ * auditadas por amostragem: no máximo um evento por cliente a cada intervalo, com o total recusado.
+ */
+@Component
+@Profile("!reativo")
+// Depois do filtro de observação do Spring, para os 429 aparecerem em http.server.requests
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class LimiteRequisicoesFilter extends OncePerRequestFilter {
+
+    static final String MOTIVO_TAXA = "taxa";
+    static final String MOTIVO_CONCORRENCIA = "concorrencia";
+
+    private static final ZoneId FUSO = ZoneId.systemDefault();
+
+    private final boolean enabled;
+    private final long intervaloNanos;
+    private final long capacidadeNanos;
+    private final int concorrenciaMaxima;
+    private final String cabecalhoChaveApi;
+    private final Set<String> chavesApi;
+    private final long intervaloAuditoriaNanos;
+    private final Cache<String, EstadoCliente> clientes;
+    private final AuditoriaFila auditoriaFila;
+    private final ObjectMapper objectMapper;
+    private final Counter rejeitadasTaxa;
+    private final Counter rejeitadasConcorrencia;
+
+    public LimiteRequisicoesFilter(@Value("${credito.limite.enabled:true}") boolean enabled,
+                                   @Value("${credito.limite.requisicoes-por-segundo:200}") double requisicoesPorSegundo,
+                                   @Value("${credito.limite.rajada:400}") int rajada,
+                                   @Value("${credito.limite.concorrencia-maxima:50}") int concorrenciaMaxima,
+                                   @Value("${credito.limite.cabecalho-chave-api:X-API-Key}") String cabecalhoChaveApi,
+                                   @Value("${credito.limite.chaves-api:}") List<String> chavesApi,
+                                   @Value("${credito.limite.maximo-clientes:100000}") long maximoClientes,
+                                   @Value("${credito.limite.expiracao-cliente:PT10M}") Duration expiracaoCliente,
+                                   @Value("${credito.limite.intervalo-auditoria:PT1S}") Duration intervaloAuditoria,
+                                   AuditoriaFila auditoriaFila,
+                                   ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        if (requisicoesPorSegundo <= 0 || rajada < 1 || concorrenciaMaxima < 1) {
+            throw new IllegalArgumentException("Limites de requisição devem ser positivos");
+        }
+        this.enabled = enabled;
+        this.intervaloNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requisicoesPorSegundo);
+        this.capacidadeNanos = intervaloNanos * rajada;
+        this.concorrenciaMaxima = concorrenciaMaxima;
+        this.cabecalhoChaveApi = cabecalhoChaveApi;
+        this.chavesApi = Set.copyOf(chavesApi);
+        this.intervaloAuditoriaNanos = intervaloAuditoria.toNanos();
+        this.clientes = Caffeine.newBuilder()
+                .maximumSize(maximoClientes)
+                .expireAfterAccess(expiracaoCliente)
+                .build();
+        this.auditoriaFila = auditoriaFila;
+        this.objectMapper = objectMapper;
+        this.rejeitadasTaxa = contadorRejeitadas(MOTIVO_TAXA, meterRegistry);
+        this.rejeitadasConcorrencia = contadorRejeitadas(MOTIVO_CONCORRENCIA, meterRegistry);
+
+        log.info("Limite por cliente {} ({} req/s, rajada={}, simultâneas={})",
+                enabled ? "habilitado" : "desabilitado", requisicoesPorSegundo, rajada, concorrenciaMaxima);
+    }
+
+    private static Counter contadorRejeitadas(String motivo, MeterRegistry meterRegistry) {
+        return Counter.builder("creditos.limite.rejeitadas")
+                .description("Requisições recusadas com 429 pelo limite por cliente")
+                .tag("motivo", motivo)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/creditos");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EstadoCliente estado = clientes.get(identificarCliente(request), cliente -> new EstadoCliente(System.nanoTime()));
+
+        long esperaNanos = estado.consumir(System.nanoTime(), intervaloNanos, capacidadeNanos);
+        if (esperaNanos > 0) {
+            rejeitadasTaxa.increment();
+            rejeitar(request, response, estado, esperaNanos, "Limite de requisições por segundo excedido");
+            return;
+        }
+        if (estado.emAndamento.incrementAndGet() > concorrenciaMaxima) {
+            estado.emAndamento.decrementAndGet();
+            rejeitadasConcorrencia.increment();
+            rejeitar(request, response, estado, TimeUnit.SECONDS.toNanos(1), "Limite de requisições simultâneas excedido");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            estado.emAndamento.decrementAndGet();
+        }
+    }
+
+    private String identificarCliente(HttpServletRequest request) {
+        String chaveApi = request.getHeader(cabecalhoChaveApi);
+        if (chaveApi != null && chavesApi.contains(chaveApi)) {
+            return "chave:" + chaveApi;
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void rejeitar(HttpServletRequest request, HttpServletResponse response, EstadoCliente estado,
+                          long esperaNanos, String mensagem) throws IOException {
+        auditarPorAmostragem(request, estado);
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Retry-After em segundos inteiros, arredondado para cima
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        Map<String, Object> errorDetails = new LinkedHashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        errorDetails.put("error", HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase());
+        errorDetails.put("message", mensagem);
+        errorDetails.put("path", request.getRequestURI());
+        objectMapper.writeValue(response.getOutputStream(), errorDetails);
+    }
+
+    /**
+     * Um evento por cliente a cada intervalo de auditoria, levando quantas recusas ele representa;
+     * assim uma rajada recusada não expulsa da fila de auditoria os eventos das consultas atendidas.
+     */
+    private void auditarPorAmostragem(HttpServletRequest request, EstadoCliente estado) {
+        estado.rejeitadasNaoAuditadas.incrementAndGet();
+        long agora = System.nanoTime();
+        long proxima = estado.proximaAuditoriaNanos.get();
+        if (agora - proxima < 0 || !estado.proximaAuditoriaNanos.compareAndSet(proxima, agora + intervaloAuditoriaNanos)) {
+            return;
+        }
+        try {
+            String uri = request.getRequestURI();
+            Instant instante = Instant.now();
+            ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+            evento.setId(GeradorIdEvento.novoId(instante.toEpochMilli()));
+            evento.setEndpoint(uri);
+            evento.setParametro(AuditoriaInterceptor.ultimoSegmento(uri)
+                    + ";rejeitadas=" + estado.rejeitadasNaoAuditadas.getAndSet(0));
+            evento.setMetodo(request.getMethod());
+            evento.setStatusResposta(HttpStatus.TOO_MANY_REQUESTS.value());
+            evento.setQuantidadeResultados(0);
+            evento.setTimestamp(LocalDateTime.ofInstant(instante, FUSO));
+            evento.setUserAgent(request.getHeader(HttpHeaders.USER_AGENT));
+            evento.setIpOrigemString(AuditoriaInterceptor.obterIpReal(request));
+            auditoriaFila.enfileirar(evento);
+        } catch (Exception e) {
+            log.error("Erro ao auditar requisição recusada: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Estado de um cliente. {@code chegadaTeorica} é o instante (nanoTime) em que o bucket estaria
+     * cheio de novo: cada requisição o adianta de um intervalo, e ela é recusada se isso o levar além
+     * da capacidade da rajada. Equivale a um token bucket sem precisar de recarga periódica.
+     */
+    static final class EstadoCliente {
+
+        private final AtomicLong chegadaTeorica;
+        final AtomicInteger emAndamento = new AtomicInteger();
+        final AtomicLong rejeitadasNaoAuditadas = new AtomicLong();
+        final AtomicLong proximaAuditoriaNanos;
+
+        EstadoCliente(long agora) {
+            this.chegadaTeorica = new AtomicLong(agora);
+            this.proximaAuditoriaNanos = new AtomicLong(agora);
+        }
+
+        /**
+         * Consome um token.
+         *
+         * @return zero se admitida; senão, em nanos, quanto falta para haver um token
+         */
+        long consumir(long agora, long intervaloNanos, long capacidadeNanos) {
+            while (true) {
+                long atual = chegadaTeorica.get();
+                long nova = (atual - agora > 0 ? atual : agora) + intervaloNanos;
+                long espera = nova - agora - capacidadeNanos;
+                if (espera > 0) {
+                    return espera;
+                }
+                if (chegadaTeorica.compareAndSet(atual, nova)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.exemplo.credito.interceptor;
+
+import com.exemplo.credito.dto.ConsultaLoteResponse;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Registra a quantidade de créditos devolvida pelo controller como atributo da requisição,
+ * antes da serialização, para o {@link AuditoriaInterceptor} incluir no evento. Lê apenas
+ * o objeto de retorno; o corpo da resposta não é copiado nem bufferizado.
+ */
+@ControllerAdvice
+@Profile("!reativo")
+public class QuantidadeResultadosAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        Integer quantidade = contarResultados(body);
+        if (quantidade != null && request instanceof ServletServerHttpRequest servletRequest) {
+            servletRequest.getServletRequest()
+                    .setAttribute(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE, quantidade);
+        }
+        return body;
+    }
+
+    static Integer contarResultados(Object body) {
+        if (body instanceof CreditoDTO) {
+            return 1;
+        }
+        if (body instanceof Collection<?> colecao) {
+            return colecao.size();
+        }
+        if (body instanceof PaginaCreditosResponse pagina) {
+            return pagina.getCreditos() == null ? 0 : pagina.getCreditos().size();
+        }
+        if (body instanceof ConsultaLoteResponse lote) {
+            int quantidade = lote.getCreditosPorNumero() == null ? 0 : lote.getCreditosPorNumero().size();
+            if (lote.getCreditosPorNfse() != null) {
+                for (List<CreditoDTO> creditos : lote.getCreditosPorNfse().values()) {
+                    quantidade += creditos.size();
+                }
+            }
+            return quantidade;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,175 @@
+package com.exemplo.credito.memoria;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Modo em memória (credito.memoria.enabled=true): carrega a tabela credito inteira na inicialização
+ * para uma {@link TabelaCreditos} e passa a servir as consultas do CreditoService sem ir ao banco.
+ *
+ * A tabela só recebe inserções, então a atualização incremental busca as linhas novas a cada
+ * credito.memoria.intervalo-atualizacao, relendo a partir das lacunas de id ainda pendentes para não
+ * perder as confirmadas fora de ordem ({@link MarcaIncremental}). Alterações e exclusões de linhas
+ * já carregadas não são refletidas até o próximo restart.
+ */
+@Component
+@Profile("!reativo")
+@ConditionalOnProperty(name = "credito.memoria.enabled", havingValue = "true")
+@Slf4j
+public class CreditosEmMemoria {
+
+    static final String SELECT = "SELECT id, numero_credito, numero_nfse, data_constituicao, valor_issqn, "
+            + "tipo_credito, simples_nacional, aliquota, valor_faturado, valor_deducao, base_calculo, versao, "
+            + "atualizado_em FROM credito WHERE id > ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final Duration intervalo;
+    private final int tamanhoFetch;
+    private final TabelaCreditos tabela = new TabelaCreditos();
+    private final MarcaIncremental marca;
+    private ScheduledExecutorService agendador;
+
+    public CreditosEmMemoria(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${credito.memoria.intervalo-atualizacao:PT5S}") Duration intervalo,
+                             @Value("${credito.memoria.tamanho-fetch:1000}") int tamanhoFetch,
+                             @Value("${credito.memoria.janela-lacunas:PT1M}") Duration janelaLacunas,
+                             @Value("${credito.memoria.margem-lacunas:10000}") int margemLacunas) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.transacao.setReadOnly(true);
+        this.intervalo = intervalo;
+        this.tamanhoFetch = tamanhoFetch;
+        this.marca = new MarcaIncremental(janelaLacunas, margemLacunas);
+
+        Gauge.builder("creditos.memoria.linhas", tabela, TabelaCreditos::linhas)
+                .description("Créditos carregados no modo em memória")
+                .register(meterRegistry);
+        Gauge.builder("creditos.memoria.bytes", tabela, TabelaCreditos::bytesOcupados)
+                .description("Heap ocupado pelas colunas e índices do modo em memória")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        long inicio = System.nanoTime();
+        int carregadas = atualizar();
+        long bytes = tabela.bytesOcupados();
+        log.info("{} créditos carregados em memória em {} ms: {} KiB, {} bytes por linha",
+                carregadas, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), bytes / 1024,
+                carregadas == 0 ? 0 : bytes / carregadas);
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "creditos-memoria-atualizacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::executar, intervalo.toMillis(), intervalo.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+    }
+
+    /**
+     * Carrega as linhas novas (acima do último id ou em lacunas pendentes) e as publica para as consultas.
+     * Sincronizado porque a {@link TabelaCreditos} admite um único escritor.
+     *
+     * @return quantidade de linhas carregadas
+     */
+    public synchronized int atualizar() {
+        int antes = tabela.linhas();
+        try {
+            transacao.executeWithoutResult(status -> jdbcTemplate.query(conexao -> {
+                PreparedStatement consulta = conexao.prepareStatement(SELECT);
+                // Sem fetch size alguns drivers (o do PostgreSQL, por exemplo) trazem o resultado inteiro de uma vez
+                consulta.setFetchSize(tamanhoFetch);
+                consulta.setLong(1, marca.inicioLeitura());
+                return consulta;
+            }, linha -> {
+                // Na releitura a partir das lacunas, as linhas já carregadas são puladas
+                if (!marca.aceitar(linha.getLong("id"))) {
+                    return;
+                }
+                tabela.adicionar(new CreditoDTO(
+                        linha.getLong("id"),
+                        linha.getString("numero_credito"),
+                        linha.getString("numero_nfse"),
+                        linha.getObject("data_constituicao", LocalDate.class),
+                        linha.getBigDecimal("valor_issqn"),
+                        linha.getString("tipo_credito"),
+                        linha.getBoolean("simples_nacional"),
+                        linha.getBigDecimal("aliquota"),
+                        linha.getBigDecimal("valor_faturado"),
+                        linha.getBigDecimal("valor_deducao"),
+                        linha.getBigDecimal("base_calculo"),
+                        linha.getLong("versao"),
+                        instante(linha.getObject("atualizado_em", OffsetDateTime.class))));
+            }));
+        } finally {
+            // Publica o que chegou a ser adicionado; a próxima carga continua de onde a marca parou
+            tabela.publicar();
+        }
+        return tabela.linhas() - antes;
+    }
+
+    public List<CreditoDTO> buscarPorNfse(String numeroNfse) {
+        return tabela.buscarPorNfse(numeroNfse);
+    }
+
+    public Optional<CreditoDTO> buscarPorNumeroCredito(String numeroCredito) {
+        return tabela.buscarPorNumeroCredito(numeroCredito);
+    }
+
+    public List<CreditoDTO> buscarPaginaPorNfse(String numeroNfse, long depoisDoId, int limite) {
+        return tabela.buscarPaginaPorNfse(numeroNfse, depoisDoId, limite);
+    }
+
+    public void percorrerPorNfse(String numeroNfse, Consumer<CreditoDTO> consumidor) {
+        tabela.percorrerPorNfse(numeroNfse, consumidor);
+    }
+
+    private static Instant instante(OffsetDateTime momento) {
+        return momento != null ? momento.toInstant() : null;
+    }
+
+    private void executar() {
+        try {
+            int carregadas = atualizar();
+            if (carregadas > 0) {
+                log.debug("{} créditos novos carregados em memória", carregadas);
+            }
+        } catch (Exception e) {
+            log.error("Erro na atualização dos créditos em memória: {}", e.getMessage());
+        }
+    }
+}
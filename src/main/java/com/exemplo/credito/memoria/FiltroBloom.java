@@ -0,0 +1,123 @@
+package com.exemplo.credito.memoria;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de chaves textuais: responde "talvez exista" ou "com certeza não existe".
+ *
+ * Os k índices vêm de dois hashes de 64 bits combinados (h1 + i·h2, Kirsch-Mitzenmacher), calculados
+ * direto sobre os chars da String, sem alocar. Os bits ficam num AtomicLongArray: as inclusões usam
+ * CAS e podem correr em paralelo com as consultas, que nunca bloqueiam.
+ */
+public final class FiltroBloom {
+
+    private final AtomicLongArray palavras;
+    private final long quantidadeBits;
+    private final int funcoes;
+    private final AtomicLong elementos = new AtomicLong();
+
+    private FiltroBloom(long quantidadeBits, int funcoes) {
+        long quantidadePalavras = (quantidadeBits + 63) / 64;
+        if (quantidadePalavras > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Filtro de Bloom grande demais: " + quantidadeBits + " bits");
+        }
+        this.palavras = new AtomicLongArray((int) quantidadePalavras);
+        this.quantidadeBits = quantidadePalavras * 64;
+        this.funcoes = funcoes;
+    }
+
+    /**
+     * Dimensiona o filtro para a capacidade e a taxa de falsos positivos desejadas:
+     * m = -n·ln(p)/ln(2)² bits e k = m/n·ln(2) funções.
+     */
+    public static FiltroBloom dimensionar(long capacidade, double taxaFalsosPositivos) {
+        if (capacidade < 1 || taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva e a taxa estar entre 0 e 1");
+        }
+        long bits = (long) Math.ceil(-capacidade * Math.log(taxaFalsosPositivos) / (Math.log(2) * Math.log(2)));
+        int funcoes = Math.max(1, (int) Math.round((double) bits / capacidade * Math.log(2)));
+        return new FiltroBloom(bits, funcoes);
+    }
+
+    /**
+     * Só conta como elemento novo a inclusão que liga ao menos um bit: a chave repetida (várias linhas
+     * da mesma NFS-e, por exemplo) não infla a contagem nem a taxa estimada.
+     *
+     * @return true se algum bit foi ligado
+     */
+    public boolean adicionar(String chave) {
+        long h1 = hash(chave);
+        long h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean nova = false;
+        for (int i = 0; i < funcoes; i++) {
+            long indice = Long.remainderUnsigned(h1 + i * h2, quantidadeBits);
+            int palavra = (int) (indice >>> 6);
+            long mascara = 1L << indice;
+            long atual = palavras.get(palavra);
+            while ((atual & mascara) == 0) {
+                if (palavras.weakCompareAndSetVolatile(palavra, atual, atual | mascara)) {
+                    nova = true;
+                    break;
+                }
+                atual = palavras.get(palavra);
+            }
+        }
+        if (nova) {
+            elementos.incrementAndGet();
+        }
+        return nova;
+    }
+
+    /**
+     * @return false somente se a chave com certeza nunca foi adicionada
+     */
+    public boolean podeConter(String chave) {
+        long h1 = hash(chave);
+        long h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < funcoes; i++) {
+            long indice = Long.remainderUnsigned(h1 + i * h2, quantidadeBits);
+            if ((palavras.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Taxa de falsos positivos esperada para os elementos já adicionados: (1 - e^(-k·n/m))^k.
+     */
+    public double taxaFalsosPositivosEstimada() {
+        return Math.pow(1 - Math.exp(-(double) funcoes * elementos.get() / quantidadeBits), funcoes);
+    }
+
+    /**
+     * Chaves distintas adicionadas, menos as que já caíam num falso positivo (todos os bits ligados).
+     */
+    public long elementos() {
+        return elementos.get();
+    }
+
+    public long bytesOcupados() {
+        return quantidadeBits / 8;
+    }
+
+    // FNV-1a sobre os chars, seguido da mistura final do MurmurHash3 para espalhar os bits
+    private static long hash(String chave) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < chave.length(); i++) {
+            h ^= chave.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return misturar(h);
+    }
+
+    private static long misturar(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
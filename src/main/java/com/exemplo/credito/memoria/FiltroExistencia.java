@@ -0,0 +1,211 @@
+package com.exemplo.credito.memoria;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Índice de existência dos números de crédito e de NFS-e, em filtros de Bloom, para responder
+ * às consultas de chaves que não existem (erros de digitação, varreduras) sem ir ao banco.
+ *
+ * Os filtros são montados na inicialização; depois recebem as linhas novas a cada
+ * credito.filtro-existencia.intervalo-atualizacao e ao fim de cada importação, inclusive as confirmadas
+ * fora de ordem de id, relidas a partir da menor lacuna pendente ({@link MarcaIncremental}). A cada
+ * credito.filtro-existencia.intervalo-reconstrucao são refeitos do zero, dimensionados para a
+ * quantidade atual de linhas, e trocados de uma vez; assim o tamanho acompanha o crescimento da
+ * tabela e chaves excluídas ou alteradas deixam de contar.
+ *
+ * Linhas inseridas fora desta aplicação só são vistas na atualização seguinte; uma chave alterada numa
+ * linha já lida (a atualização só lê ids novos) só é vista na reconstrução seguinte. Até lá a consulta
+ * responderia "não encontrado"; por isso o índice é opcional, como o modo em memória. A contagem de
+ * elementos (e a taxa estimada) considera só as chaves distintas: várias linhas da mesma NFS-e contam uma vez.
+ */
+@Component
+@Profile("!reativo")
+@ConditionalOnProperty(name = "credito.filtro-existencia.enabled", havingValue = "true")
+@Slf4j
+public class FiltroExistencia {
+
+    static final String SELECT = "SELECT id, numero_credito, numero_nfse FROM credito WHERE id > ? ORDER BY id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final double taxaFalsosPositivos;
+    private final long capacidadeMinima;
+    private final Duration intervaloAtualizacao;
+    private final Duration intervaloReconstrucao;
+    private final int tamanhoFetch;
+    private final Duration janelaLacunas;
+    private final int margemLacunas;
+
+    private volatile Filtros filtros;
+    private ScheduledExecutorService agendador;
+
+    public FiltroExistencia(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            @Value("${credito.filtro-existencia.taxa-falsos-positivos:0.01}") double taxaFalsosPositivos,
+                            @Value("${credito.filtro-existencia.capacidade-minima:100000}") long capacidadeMinima,
+                            @Value("${credito.filtro-existencia.intervalo-atualizacao:PT5S}") Duration intervaloAtualizacao,
+                            @Value("${credito.filtro-existencia.intervalo-reconstrucao:PT1H}") Duration intervaloReconstrucao,
+                            @Value("${credito.memoria.tamanho-fetch:1000}") int tamanhoFetch,
+                            @Value("${credito.memoria.janela-lacunas:PT1M}") Duration janelaLacunas,
+                            @Value("${credito.memoria.margem-lacunas:10000}") int margemLacunas,
+                            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.transacao.setReadOnly(true);
+        this.taxaFalsosPositivos = taxaFalsosPositivos;
+        this.capacidadeMinima = capacidadeMinima;
+        this.intervaloAtualizacao = intervaloAtualizacao;
+        this.intervaloReconstrucao = intervaloReconstrucao;
+        this.tamanhoFetch = tamanhoFetch;
+        this.janelaLacunas = janelaLacunas;
+        this.margemLacunas = margemLacunas;
+
+        registrarMedidores("numero-credito", Filtros::porNumeroCredito, meterRegistry);
+        registrarMedidores("nfse", Filtros::porNfse, meterRegistry);
+    }
+
+    private void registrarMedidores(String chave, Function<Filtros, FiltroBloom> filtro,
+                                    MeterRegistry meterRegistry) {
+        medidor("creditos.filtro-existencia.bytes", "Memória ocupada pelo filtro de Bloom", chave,
+                atual -> filtro.apply(atual).bytesOcupados(), meterRegistry);
+        medidor("creditos.filtro-existencia.elementos", "Chaves adicionadas ao filtro de Bloom", chave,
+                atual -> filtro.apply(atual).elementos(), meterRegistry);
+        medidor("creditos.filtro-existencia.falsos-positivos", "Taxa de falsos positivos estimada do filtro", chave,
+                atual -> filtro.apply(atual).taxaFalsosPositivosEstimada(), meterRegistry);
+    }
+
+    private void medidor(String nome, String descricao, String chave, ToDoubleFunction<Filtros> valor,
+                         MeterRegistry meterRegistry) {
+        Gauge.builder(nome, this, indice -> indice.filtros == null ? 0 : valor.applyAsDouble(indice.filtros))
+                .description(descricao)
+                .tag("chave", chave)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        long inicio = System.nanoTime();
+        reconstruir();
+        log.info("Filtro de existência: {} créditos indexados em {} ms ({} KB por filtro)",
+                filtros.porNumeroCredito().elementos(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio),
+                filtros.porNumeroCredito().bytesOcupados() / 1024);
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "creditos-filtro-existencia");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(() -> executar(this::atualizar), intervaloAtualizacao.toMillis(),
+                intervaloAtualizacao.toMillis(), TimeUnit.MILLISECONDS);
+        agendador.scheduleWithFixedDelay(() -> executar(this::reconstruir), intervaloReconstrucao.toMillis(),
+                intervaloReconstrucao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+    }
+
+    /** false somente se nenhum crédito tem esse número. */
+    public boolean podeExistirCredito(String numeroCredito) {
+        return numeroCredito != null && filtros.porNumeroCredito().podeConter(numeroCredito);
+    }
+
+    /** false somente se nenhum crédito é dessa NFS-e. */
+    public boolean podeExistirNfse(String numeroNfse) {
+        return numeroNfse != null && filtros.porNfse().podeConter(numeroNfse);
+    }
+
+    /**
+     * Adiciona aos filtros as linhas ainda não lidas.
+     *
+     * @return quantidade de linhas lidas
+     */
+    public synchronized int atualizar() {
+        return carregar(filtros);
+    }
+
+    /**
+     * Monta filtros novos com todas as linhas e troca os atuais por eles.
+     */
+    public synchronized void reconstruir() {
+        Long linhas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM credito", Long.class);
+        // Folga para o crescimento até a próxima reconstrução sem passar da taxa configurada
+        long capacidade = Math.max(capacidadeMinima, 2 * (linhas == null ? 0 : linhas));
+        Filtros novos = new Filtros(FiltroBloom.dimensionar(capacidade, taxaFalsosPositivos),
+                FiltroBloom.dimensionar(capacidade, taxaFalsosPositivos), new MarcaIncremental(janelaLacunas, margemLacunas));
+        carregar(novos);
+        filtros = novos;
+    }
+
+    private int carregar(Filtros destino) {
+        int[] lidas = new int[1];
+        transacao.executeWithoutResult(status -> jdbcTemplate.query(conexao -> {
+            PreparedStatement consulta = conexao.prepareStatement(SELECT);
+            consulta.setFetchSize(tamanhoFetch);
+            consulta.setLong(1, destino.marca.inicioLeitura());
+            return consulta;
+        }, linha -> {
+            // A marca avança a cada linha: se a leitura falhar no meio, a próxima continua de onde parou
+            if (!destino.marca.aceitar(linha.getLong("id"))) {
+                return;
+            }
+            destino.porNumeroCredito().adicionar(linha.getString("numero_credito"));
+            destino.porNfse().adicionar(linha.getString("numero_nfse"));
+            lidas[0]++;
+        }));
+        return lidas[0];
+    }
+
+    private void executar(Runnable tarefa) {
+        try {
+            tarefa.run();
+        } catch (Exception e) {
+            log.error("Erro na atualização do filtro de existência: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Filtros de uma geração, com a marca da carga incremental; a reconstrução troca a geração inteira.
+     */
+    private static final class Filtros {
+
+        private final FiltroBloom porNumeroCredito;
+        private final FiltroBloom porNfse;
+        private final MarcaIncremental marca;
+
+        private Filtros(FiltroBloom porNumeroCredito, FiltroBloom porNfse, MarcaIncremental marca) {
+            this.porNumeroCredito = porNumeroCredito;
+            this.porNfse = porNfse;
+            this.marca = marca;
+        }
+
+        FiltroBloom porNumeroCredito() {
+            return porNumeroCredito;
+        }
+
+        FiltroBloom porNfse() {
+            return porNfse;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.exemplo.credito.memoria;
+
+import java.time.Duration;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Ponto de partida das cargas incrementais por id da tabela credito (modo em memória, filtro de
+ * existência, resumos).
+ *
+ * Os ids SERIAL são reservados na inserção, mas a linha só aparece no commit: importações
+ * simultâneas ou cargas externas podem confirmar um id menor depois de um maior já lido, e uma
+ * leitura só de "id > último" perderia essa linha para sempre. Cada salto de id visto fica como
+ * lacuna pendente; enquanto houver lacunas a leitura recomeça logo abaixo da menor delas e, abaixo
+ * do último id, só aceita as linhas que preenchem uma lacuna (as já lidas são puladas). Uma lacuna
+ * que passa da janela, ou fica mais de {@code margem} ids abaixo do último, é dada como id descartado
+ * (rollback, cache da sequência) e deixa de ser procurada; assim a releitura custa no máximo
+ * {@code margem} linhas.
+ *
+ * Não é thread-safe: cada dono a usa dentro dos seus métodos sincronizados.
+ */
+final class MarcaIncremental {
+
+    private final long janelaNanos;
+    private final int margem;
+    // Id ainda não visto -> System.nanoTime() a partir do qual deixa de ser procurado
+    private final NavigableMap<Long, Long> lacunas = new TreeMap<>();
+    private long ultimoId;
+
+    MarcaIncremental(Duration janela, int margem) {
+        this.janelaNanos = janela.toNanos();
+        this.margem = Math.max(0, margem);
+    }
+
+    /**
+     * Parâmetro da próxima leitura {@code WHERE id > ? ORDER BY id}.
+     */
+    long inicioLeitura() {
+        long agora = System.nanoTime();
+        lacunas.values().removeIf(prazo -> agora - prazo >= 0);
+        return lacunas.isEmpty() ? ultimoId : lacunas.firstKey() - 1;
+    }
+
+    /**
+     * Registra uma linha lida.
+     *
+     * @return {@code true} se a linha ainda não tinha sido lida: acima do último id ou preenchendo uma lacuna
+     */
+    boolean aceitar(long id) {
+        if (id > ultimoId) {
+            long prazo = System.nanoTime() + janelaNanos;
+            for (long lacuna = Math.max(ultimoId + 1, id - margem); lacuna < id; lacuna++) {
+                lacunas.put(lacuna, prazo);
+            }
+            ultimoId = id;
+            lacunas.headMap(ultimoId - margem, false).clear();
+            return true;
+        }
+        return lacunas.remove(id) != null;
+    }
+
+    long ultimoId() {
+        return ultimoId;
+    }
+
+    int lacunasPendentes() {
+        return lacunas.size();
+    }
+}
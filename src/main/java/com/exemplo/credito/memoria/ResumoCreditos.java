@@ -0,0 +1,239 @@
+package com.exemplo.credito.memoria;
+
+import com.exemplo.credito.dto.ResumoCreditosDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totais de ISSQN, valor faturado e base de cálculo por NFS-e, por tipo de crédito, por Simples
+ * Nacional e por mês de constituição, mantidos em memória (credito.resumo.enabled=true), com um
+ * registro por NFS-e no heap.
+ *
+ * Os grupos são somados do zero na inicialização e a cada credito.resumo.intervalo-reconstrucao;
+ * entre uma reconstrução e outra entram as linhas novas, a cada credito.resumo.intervalo-atualizacao
+ * e ao fim de cada importação, inclusive as confirmadas fora de ordem de id ({@link MarcaIncremental}).
+ * Alterações e exclusões de linhas já somadas aparecem na reconstrução seguinte.
+ */
+@Component
+@Profile("!reativo")
+@ConditionalOnProperty(name = "credito.resumo.enabled", havingValue = "true")
+@Slf4j
+public class ResumoCreditos {
+
+    static final String SELECT = "SELECT id, numero_nfse, data_constituicao, valor_issqn, tipo_credito, "
+            + "simples_nacional, valor_faturado, base_calculo FROM credito WHERE id > ? ORDER BY id";
+
+    private static final Totais ZERADOS = new Totais(0, 0, 0, 0);
+
+    private static final int ESCALA = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final Duration intervaloAtualizacao;
+    private final Duration intervaloReconstrucao;
+    private final int tamanhoFetch;
+    private final Duration janelaLacunas;
+    private final int margemLacunas;
+
+    private volatile Grupos grupos;
+    private ScheduledExecutorService agendador;
+
+    public ResumoCreditos(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          @Value("${credito.resumo.intervalo-atualizacao:PT5S}") Duration intervaloAtualizacao,
+                          @Value("${credito.resumo.intervalo-reconstrucao:PT10M}") Duration intervaloReconstrucao,
+                          @Value("${credito.memoria.tamanho-fetch:1000}") int tamanhoFetch,
+                          @Value("${credito.memoria.janela-lacunas:PT1M}") Duration janelaLacunas,
+                          @Value("${credito.memoria.margem-lacunas:10000}") int margemLacunas) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.transacao.setReadOnly(true);
+        this.intervaloAtualizacao = intervaloAtualizacao;
+        this.intervaloReconstrucao = intervaloReconstrucao;
+        this.tamanhoFetch = tamanhoFetch;
+        this.janelaLacunas = janelaLacunas;
+        this.margemLacunas = margemLacunas;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        long inicio = System.nanoTime();
+        int somadas = reconstruir();
+        log.info("Resumo de créditos: {} linhas somadas em {} ms ({} NFS-e, {} meses)", somadas,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio), grupos.porNfse.size(),
+                grupos.porMes.size());
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "creditos-resumo-atualizacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(() -> executar(this::atualizar), intervaloAtualizacao.toMillis(),
+                intervaloAtualizacao.toMillis(), TimeUnit.MILLISECONDS);
+        agendador.scheduleWithFixedDelay(() -> executar(this::reconstruir), intervaloReconstrucao.toMillis(),
+                intervaloReconstrucao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+    }
+
+    /**
+     * Soma aos totais as linhas ainda não somadas.
+     *
+     * @return quantidade de linhas somadas
+     */
+    public synchronized int atualizar() {
+        return carregar(grupos);
+    }
+
+    /**
+     * Soma a tabela inteira em totais novos e troca os atuais por eles.
+     *
+     * @return quantidade de linhas somadas
+     */
+    public synchronized int reconstruir() {
+        Grupos novos = new Grupos(new MarcaIncremental(janelaLacunas, margemLacunas));
+        int somadas = carregar(novos);
+        grupos = novos;
+        return somadas;
+    }
+
+    /**
+     * Totais de uma NFS-e; zerados quando ela não tem créditos somados.
+     */
+    public ResumoCreditosDTO porNfse(String numeroNfse) {
+        return grupos.porNfse.getOrDefault(numeroNfse, ZERADOS).paraDto(numeroNfse);
+    }
+
+    public List<ResumoCreditosDTO> porTipoCredito() {
+        return listar(grupos.porTipo);
+    }
+
+    public List<ResumoCreditosDTO> porSimplesNacional() {
+        return listar(grupos.porSimplesNacional);
+    }
+
+    /**
+     * Totais por mês de constituição, em ordem cronológica, entre {@code de} e {@code ate}
+     * (inclusive; nulos não limitam).
+     */
+    public List<ResumoCreditosDTO> porMes(YearMonth de, YearMonth ate) {
+        return grupos.porMes.entrySet().stream()
+                .filter(mes -> (de == null || !mes.getKey().isBefore(de)) && (ate == null || !mes.getKey().isAfter(ate)))
+                .sorted(Map.Entry.comparingByKey())
+                .map(mes -> mes.getValue().paraDto(mes.getKey().toString()))
+                .toList();
+    }
+
+    private int carregar(Grupos destino) {
+        int[] somadas = new int[1];
+        transacao.executeWithoutResult(status -> jdbcTemplate.query(conexao -> {
+            PreparedStatement consulta = conexao.prepareStatement(SELECT);
+            consulta.setFetchSize(tamanhoFetch);
+            consulta.setLong(1, destino.marca.inicioLeitura());
+            return consulta;
+        }, linha -> {
+            // A marca avança a cada linha: se a leitura falhar no meio, a próxima continua sem somar duas vezes
+            if (!destino.marca.aceitar(linha.getLong("id"))) {
+                return;
+            }
+            destino.somar(linha.getString("numero_nfse"), linha.getObject("data_constituicao", LocalDate.class),
+                    linha.getString("tipo_credito"), linha.getBoolean("simples_nacional"),
+                    new Totais(1, escalar(linha.getBigDecimal("valor_issqn")),
+                            escalar(linha.getBigDecimal("valor_faturado")),
+                            escalar(linha.getBigDecimal("base_calculo"))));
+            somadas[0]++;
+        }));
+        return somadas[0];
+    }
+
+    private static <K extends Comparable<K>> List<ResumoCreditosDTO> listar(Map<K, Totais> totais) {
+        return totais.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(grupo -> grupo.getValue().paraDto(String.valueOf(grupo.getKey())))
+                .toList();
+    }
+
+    private static long escalar(BigDecimal valor) {
+        return valor == null ? 0 : valor.setScale(ESCALA, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private void executar(Runnable tarefa) {
+        try {
+            tarefa.run();
+        } catch (Exception e) {
+            log.error("Erro na atualização do resumo de créditos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Totais de uma geração, com a marca da carga incremental; a reconstrução troca a geração inteira.
+     */
+    private static final class Grupos {
+
+        private final MarcaIncremental marca;
+        private final Map<String, Totais> porNfse = new ConcurrentHashMap<>();
+        private final Map<String, Totais> porTipo = new ConcurrentHashMap<>();
+        private final Map<Boolean, Totais> porSimplesNacional = new ConcurrentHashMap<>();
+        private final Map<YearMonth, Totais> porMes = new ConcurrentHashMap<>();
+
+        private Grupos(MarcaIncremental marca) {
+            this.marca = marca;
+        }
+
+        void somar(String numeroNfse, LocalDate dataConstituicao, String tipoCredito, boolean simplesNacional,
+                   Totais linha) {
+            // As colunas são NOT NULL no schema; a verificação só protege os mapas de chave nula
+            if (numeroNfse != null) {
+                porNfse.merge(numeroNfse, linha, Totais::somar);
+            }
+            if (tipoCredito != null) {
+                porTipo.merge(tipoCredito, linha, Totais::somar);
+            }
+            porSimplesNacional.merge(simplesNacional, linha, Totais::somar);
+            if (dataConstituicao != null) {
+                porMes.merge(YearMonth.from(dataConstituicao), linha, Totais::somar);
+            }
+        }
+    }
+
+    /**
+     * Totais imutáveis, com os valores em centavos; cada linha nova substitui o registro do grupo.
+     */
+    private record Totais(long quantidade, long valorIssqn, long valorFaturado, long baseCalculo) {
+
+        Totais somar(Totais outro) {
+            return new Totais(quantidade + outro.quantidade, valorIssqn + outro.valorIssqn,
+                    valorFaturado + outro.valorFaturado, baseCalculo + outro.baseCalculo);
+        }
+
+        ResumoCreditosDTO paraDto(String chave) {
+            return new ResumoCreditosDTO(chave, quantidade, BigDecimal.valueOf(valorIssqn, ESCALA),
+                    BigDecimal.valueOf(valorFaturado, ESCALA), BigDecimal.valueOf(baseCalculo, ESCALA));
+        }
+    }
+}
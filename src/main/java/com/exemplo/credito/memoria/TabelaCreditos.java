@@ -0,0 +1,536 @@
+package com.exemplo.credito.memoria;
+
+import com.exemplo.credito.dto.CreditoDTO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A tabela credito inteira em memória, em formato colunar.
+ *
+ * Cada coluna é um array primitivo indexado pela linha: valores monetários e a alíquota como
+ * {@code long} na escala 2 do schema (NUMERIC(15,2)/(5,2)), datas como dia da época (a última
+ * atualização, em milissegundos), o tipo do
+ * crédito por dicionário e os números de NFS-e e de crédito como bytes UTF-8 contíguos. Não há
+ * um objeto por linha; o {@link CreditoDTO} só é montado ao devolver o resultado.
+ *
+ * Os índices por NFS-e e por número do crédito são tabelas hash de endereçamento aberto que
+ * apontam para a primeira linha da chave; as demais linhas da mesma chave formam uma cadeia em
+ * ordem de inserção. Enquanto as linhas chegam em ordem de id essa é a ordem de id; depois que
+ * alguma chega fora de ordem (commit atrasado, ver {@link MarcaIncremental}) as buscas ordenam
+ * pelo id o que encontram na cadeia.
+ *
+ * Concorrência: um único escritor acrescenta linhas e chama {@link #publicar()}; os leitores usam
+ * a última {@link Versao} publicada, sem locks. Arrays só crescem por cópia e as cadeias só ganham
+ * elos no fim, então uma versão continua consistente enquanto o escritor acrescenta linhas além
+ * do seu limite: o que o leitor encontrar acima de {@code linhas} é ignorado.
+ */
+public final class TabelaCreditos {
+
+    private static final int ESCALA = 2;
+    private static final int NENHUMA = -1;
+    private static final long DECIMAL_NULO = Long.MIN_VALUE;
+    private static final int DATA_NULA = Integer.MIN_VALUE;
+    private static final long INSTANTE_NULO = Long.MIN_VALUE;
+
+    // Estado do escritor
+    private Colunas colunas;
+    private Indice indiceNfse;
+    private Indice indiceCredito;
+    private String[] tipos = new String[0];
+    private final Map<String, Short> codigosTipo = new HashMap<>();
+    private int linhas;
+    private long ultimoId;
+    private boolean emOrdem = true;
+
+    private volatile Versao versao;
+
+    public TabelaCreditos() {
+        this(1024);
+    }
+
+    TabelaCreditos(int capacidadeInicial) {
+        int capacidade = Math.max(capacidadeInicial, 16);
+        this.colunas = new Colunas(capacidade);
+        this.indiceNfse = new Indice(capacidade);
+        this.indiceCredito = new Indice(capacidade);
+        publicar();
+    }
+
+    /**
+     * Acrescenta uma linha (somente o escritor); só fica visível após {@link #publicar()}. As linhas
+     * normalmente chegam em ordem crescente de id; uma que chegue fora de ordem é aceita, e cada id
+     * deve ser adicionado uma única vez.
+     */
+    public void adicionar(CreditoDTO credito) {
+        if (credito.id() == null) {
+            throw new IllegalArgumentException("Crédito sem id");
+        }
+        if (credito.numeroCredito() == null || credito.numeroNfse() == null) {
+            throw new IllegalArgumentException("Crédito " + credito.id() + " sem número do crédito ou da NFS-e");
+        }
+
+        byte[] numeroCredito = credito.numeroCredito().getBytes(StandardCharsets.UTF_8);
+        byte[] numeroNfse = credito.numeroNfse().getBytes(StandardCharsets.UTF_8);
+        garantirCapacidade(numeroCredito.length, numeroNfse.length);
+
+        int linha = linhas;
+        Colunas c = colunas;
+        c.ids[linha] = credito.id();
+        c.datas[linha] = credito.dataConstituicao() != null
+                ? Math.toIntExact(credito.dataConstituicao().toEpochDay()) : DATA_NULA;
+        c.valoresIssqn[linha] = escalar(credito.valorIssqn());
+        c.aliquotas[linha] = escalar(credito.aliquota());
+        c.valoresFaturados[linha] = escalar(credito.valorFaturado());
+        c.valoresDeducao[linha] = escalar(credito.valorDeducao());
+        c.basesCalculo[linha] = escalar(credito.baseCalculo());
+        c.simplesNacional[linha] = credito.simplesNacional();
+        c.tipos[linha] = codigoTipo(credito.tipoCredito());
+        c.versoes[linha] = credito.versao();
+        c.atualizacoes[linha] = credito.atualizadoEm() != null ? credito.atualizadoEm().toEpochMilli() : INSTANTE_NULO;
+        c.numerosCredito.escrever(linha, numeroCredito);
+        c.numerosNfse.escrever(linha, numeroNfse);
+
+        indiceCredito.inserir(linha, c.numerosCredito);
+        indiceNfse.inserir(linha, c.numerosNfse);
+        if (indiceCredito.precisaCrescer()) {
+            indiceCredito = indiceCredito.redimensionar(c.numerosCredito);
+        }
+        if (indiceNfse.precisaCrescer()) {
+            indiceNfse = indiceNfse.redimensionar(c.numerosNfse);
+        }
+
+        if (linhas > 0 && credito.id() <= ultimoId) {
+            emOrdem = false;
+        }
+        linhas++;
+        ultimoId = Math.max(ultimoId, credito.id());
+    }
+
+    /**
+     * Torna visíveis aos leitores as linhas adicionadas até aqui.
+     */
+    public void publicar() {
+        versao = new Versao(linhas, ultimoId, emOrdem, colunas, indiceNfse, indiceCredito, tipos);
+    }
+
+    /** Maior id já adicionado (inclusive ainda não publicado). */
+    public long ultimoIdAdicionado() {
+        return ultimoId;
+    }
+
+    public int linhas() {
+        return versao.linhas;
+    }
+
+    /**
+     * Bytes de heap ocupados pelos arrays da versão publicada (capacidade alocada, não só a usada).
+     */
+    public long bytesOcupados() {
+        Versao v = versao;
+        long bytes = v.colunas.bytesOcupados() + v.nfse.bytesOcupados() + v.credito.bytesOcupados();
+        for (String tipo : v.tipos) {
+            bytes += tipo == null ? 0 : 40 + tipo.length();
+        }
+        return bytes;
+    }
+
+    public List<CreditoDTO> buscarPorNfse(String numeroNfse) {
+        List<CreditoDTO> creditos = new ArrayList<>();
+        percorrerPorNfse(numeroNfse, creditos::add);
+        return creditos;
+    }
+
+    public void percorrerPorNfse(String numeroNfse, Consumer<CreditoDTO> consumidor) {
+        Versao v = versao;
+        if (!v.emOrdem) {
+            linhasPorId(v, numeroNfse, Long.MIN_VALUE).forEach(linha -> consumidor.accept(v.materializar(linha)));
+            return;
+        }
+        for (int linha = v.primeira(v.nfse, v.colunas.numerosNfse, numeroNfse);
+             linha != NENHUMA; linha = v.proxima(v.nfse, linha)) {
+            consumidor.accept(v.materializar(linha));
+        }
+    }
+
+    /**
+     * Até {@code limite} créditos da NFS-e com id maior que {@code depoisDoId}, em ordem de id.
+     */
+    public List<CreditoDTO> buscarPaginaPorNfse(String numeroNfse, long depoisDoId, int limite) {
+        Versao v = versao;
+        List<CreditoDTO> creditos = new ArrayList<>(Math.min(limite, 64));
+        if (!v.emOrdem) {
+            linhasPorId(v, numeroNfse, depoisDoId).stream()
+                    .limit(limite)
+                    .forEach(linha -> creditos.add(v.materializar(linha)));
+            return creditos;
+        }
+        for (int linha = v.primeira(v.nfse, v.colunas.numerosNfse, numeroNfse);
+             linha != NENHUMA && creditos.size() < limite; linha = v.proxima(v.nfse, linha)) {
+            if (v.colunas.ids[linha] > depoisDoId) {
+                creditos.add(v.materializar(linha));
+            }
+        }
+        return creditos;
+    }
+
+    public Optional<CreditoDTO> buscarPorNumeroCredito(String numeroCredito) {
+        Versao v = versao;
+        int linha = v.primeira(v.credito, v.colunas.numerosCredito, numeroCredito);
+        if (!v.emOrdem) {
+            // A de menor id, como no caminho em ordem
+            for (int outra = linha == NENHUMA ? NENHUMA : v.proxima(v.credito, linha);
+                 outra != NENHUMA; outra = v.proxima(v.credito, outra)) {
+                if (v.colunas.ids[outra] < v.colunas.ids[linha]) {
+                    linha = outra;
+                }
+            }
+        }
+        return linha == NENHUMA ? Optional.empty() : Optional.of(v.materializar(linha));
+    }
+
+    /**
+     * Linhas da NFS-e com id maior que {@code depoisDoId}, ordenadas pelo id; caminho das versões
+     * com linhas fora de ordem.
+     */
+    private static List<Integer> linhasPorId(Versao v, String numeroNfse, long depoisDoId) {
+        List<Integer> encontradas = new ArrayList<>();
+        for (int linha = v.primeira(v.nfse, v.colunas.numerosNfse, numeroNfse);
+             linha != NENHUMA; linha = v.proxima(v.nfse, linha)) {
+            if (v.colunas.ids[linha] > depoisDoId) {
+                encontradas.add(linha);
+            }
+        }
+        encontradas.sort(Comparator.comparingLong(linha -> v.colunas.ids[linha]));
+        return encontradas;
+    }
+
+    private void garantirCapacidade(int bytesCredito, int bytesNfse) {
+        Colunas c = colunas;
+        if (linhas == c.capacidade()) {
+            int novaCapacidade = c.capacidade() + (c.capacidade() >> 1);
+            c = c.comCapacidade(novaCapacidade);
+            indiceNfse = indiceNfse.comCapacidadeLinhas(novaCapacidade);
+            indiceCredito = indiceCredito.comCapacidadeLinhas(novaCapacidade);
+        }
+        colunas = c.comTextos(c.numerosCredito.garantirBytes(linhas, bytesCredito),
+                c.numerosNfse.garantirBytes(linhas, bytesNfse));
+    }
+
+    private short codigoTipo(String tipo) {
+        Short codigo = codigosTipo.get(tipo);
+        if (codigo == null) {
+            if (tipos.length == Short.MAX_VALUE) {
+                throw new IllegalStateException("Tipos de crédito distintos demais para o dicionário");
+            }
+            codigo = (short) tipos.length;
+            String[] novos = Arrays.copyOf(tipos, tipos.length + 1);
+            novos[codigo] = tipo;
+            tipos = novos;
+            codigosTipo.put(tipo, codigo);
+        }
+        return codigo;
+    }
+
+    private static long escalar(BigDecimal valor) {
+        if (valor == null) {
+            return DECIMAL_NULO;
+        }
+        // Falha se o valor tiver mais casas que o schema: não há arredondamento silencioso
+        return valor.setScale(ESCALA, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal decimal(long escalado) {
+        return escalado == DECIMAL_NULO ? null : BigDecimal.valueOf(escalado, ESCALA);
+    }
+
+    private static int hash(byte[] bytes, int inicio, int fim) {
+        int h = 1;
+        for (int i = inicio; i < fim; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * O que um leitor enxerga: as linhas abaixo de {@code linhas} e os arrays da época da publicação.
+     */
+    private record Versao(int linhas, long ultimoId, boolean emOrdem, Colunas colunas, Indice nfse, Indice credito,
+                          String[] tipos) {
+
+        int primeira(Indice indice, ColunaTexto texto, String chave) {
+            if (chave == null || linhas == 0) {
+                return NENHUMA;
+            }
+            byte[] bytes = chave.getBytes(StandardCharsets.UTF_8);
+            int[] cabecas = indice.cabecas;
+            int slot = hash(bytes, 0, bytes.length) & (cabecas.length - 1);
+            while (true) {
+                int linha = cabecas[slot];
+                // Slot ocupado depois da publicação: a chave procurada não estaria além dele
+                if (linha == NENHUMA || linha >= linhas) {
+                    return NENHUMA;
+                }
+                if (texto.igual(linha, bytes)) {
+                    return linha;
+                }
+                slot = (slot + 1) & (cabecas.length - 1);
+            }
+        }
+
+        int proxima(Indice indice, int linha) {
+            int proxima = indice.proximas[linha];
+            return proxima == NENHUMA || proxima >= linhas ? NENHUMA : proxima;
+        }
+
+        CreditoDTO materializar(int linha) {
+            Colunas c = colunas;
+            int data = c.datas[linha];
+            return new CreditoDTO(
+                    c.ids[linha],
+                    c.numerosCredito.texto(linha),
+                    c.numerosNfse.texto(linha),
+                    data == DATA_NULA ? null : LocalDate.ofEpochDay(data),
+                    decimal(c.valoresIssqn[linha]),
+                    tipos[c.tipos[linha]],
+                    c.simplesNacional[linha],
+                    decimal(c.aliquotas[linha]),
+                    decimal(c.valoresFaturados[linha]),
+                    decimal(c.valoresDeducao[linha]),
+                    decimal(c.basesCalculo[linha]),
+                    c.versoes[linha],
+                    c.atualizacoes[linha] == INSTANTE_NULO ? null : Instant.ofEpochMilli(c.atualizacoes[linha]));
+        }
+    }
+
+    /**
+     * Arrays das colunas. Nunca são trocados no lugar: crescer gera um novo {@code Colunas} com cópias.
+     */
+    private static final class Colunas {
+
+        final long[] ids;
+        final int[] datas;
+        final long[] valoresIssqn;
+        final long[] aliquotas;
+        final long[] valoresFaturados;
+        final long[] valoresDeducao;
+        final long[] basesCalculo;
+        final boolean[] simplesNacional;
+        final short[] tipos;
+        final long[] versoes;
+        final long[] atualizacoes;
+        final ColunaTexto numerosCredito;
+        final ColunaTexto numerosNfse;
+
+        Colunas(int capacidade) {
+            this(new long[capacidade], new int[capacidade], new long[capacidade], new long[capacidade],
+                    new long[capacidade], new long[capacidade], new long[capacidade], new boolean[capacidade],
+                    new short[capacidade], new long[capacidade], new long[capacidade],
+                    new ColunaTexto(capacidade, capacidade * 8),
+                    new ColunaTexto(capacidade, capacidade * 8));
+        }
+
+        private Colunas(long[] ids, int[] datas, long[] valoresIssqn, long[] aliquotas, long[] valoresFaturados,
+                        long[] valoresDeducao, long[] basesCalculo, boolean[] simplesNacional, short[] tipos,
+                        long[] versoes, long[] atualizacoes, ColunaTexto numerosCredito, ColunaTexto numerosNfse) {
+            this.ids = ids;
+            this.datas = datas;
+            this.valoresIssqn = valoresIssqn;
+            this.aliquotas = aliquotas;
+            this.valoresFaturados = valoresFaturados;
+            this.valoresDeducao = valoresDeducao;
+            this.basesCalculo = basesCalculo;
+            this.simplesNacional = simplesNacional;
+            this.tipos = tipos;
+            this.versoes = versoes;
+            this.atualizacoes = atualizacoes;
+            this.numerosCredito = numerosCredito;
+            this.numerosNfse = numerosNfse;
+        }
+
+        int capacidade() {
+            return ids.length;
+        }
+
+        Colunas comCapacidade(int capacidade) {
+            return new Colunas(Arrays.copyOf(ids, capacidade), Arrays.copyOf(datas, capacidade),
+                    Arrays.copyOf(valoresIssqn, capacidade), Arrays.copyOf(aliquotas, capacidade),
+                    Arrays.copyOf(valoresFaturados, capacidade), Arrays.copyOf(valoresDeducao, capacidade),
+                    Arrays.copyOf(basesCalculo, capacidade), Arrays.copyOf(simplesNacional, capacidade),
+                    Arrays.copyOf(tipos, capacidade), Arrays.copyOf(versoes, capacidade),
+                    Arrays.copyOf(atualizacoes, capacidade), numerosCredito.comCapacidadeLinhas(capacidade),
+                    numerosNfse.comCapacidadeLinhas(capacidade));
+        }
+
+        Colunas comTextos(ColunaTexto numerosCredito, ColunaTexto numerosNfse) {
+            if (numerosCredito == this.numerosCredito && numerosNfse == this.numerosNfse) {
+                return this;
+            }
+            return new Colunas(ids, datas, valoresIssqn, aliquotas, valoresFaturados, valoresDeducao,
+                    basesCalculo, simplesNacional, tipos, versoes, atualizacoes, numerosCredito, numerosNfse);
+        }
+
+        long bytesOcupados() {
+            long capacidade = capacidade();
+            // 8 colunas long, 1 int, 1 short, 1 boolean e o cabeçalho de cada array
+            return capacidade * (8 * 8 + 4 + 2 + 1) + 11 * 16
+                    + numerosCredito.bytesOcupados() + numerosNfse.bytesOcupados();
+        }
+    }
+
+    /**
+     * Textos de uma coluna concatenados em UTF-8; a linha {@code i} ocupa {@code [inicios[i], inicios[i + 1])}.
+     */
+    private static final class ColunaTexto {
+
+        final byte[] bytes;
+        final int[] inicios;
+
+        ColunaTexto(int capacidadeLinhas, int capacidadeBytes) {
+            this(new byte[capacidadeBytes], new int[capacidadeLinhas + 1]);
+        }
+
+        private ColunaTexto(byte[] bytes, int[] inicios) {
+            this.bytes = bytes;
+            this.inicios = inicios;
+        }
+
+        ColunaTexto comCapacidadeLinhas(int capacidadeLinhas) {
+            return new ColunaTexto(bytes, Arrays.copyOf(inicios, capacidadeLinhas + 1));
+        }
+
+        ColunaTexto garantirBytes(int linha, int tamanho) {
+            int necessario = inicios[linha] + tamanho;
+            if (necessario <= bytes.length) {
+                return this;
+            }
+            int novaCapacidade = Math.max(necessario, bytes.length + (bytes.length >> 1));
+            return new ColunaTexto(Arrays.copyOf(bytes, novaCapacidade), inicios);
+        }
+
+        void escrever(int linha, byte[] valor) {
+            int inicio = inicios[linha];
+            System.arraycopy(valor, 0, bytes, inicio, valor.length);
+            inicios[linha + 1] = inicio + valor.length;
+        }
+
+        String texto(int linha) {
+            int inicio = inicios[linha];
+            return new String(bytes, inicio, inicios[linha + 1] - inicio, StandardCharsets.UTF_8);
+        }
+
+        boolean igual(int linha, byte[] valor) {
+            int inicio = inicios[linha];
+            return Arrays.equals(bytes, inicio, inicios[linha + 1], valor, 0, valor.length);
+        }
+
+        boolean iguais(int linha, int outra) {
+            return Arrays.equals(bytes, inicios[linha], inicios[linha + 1], bytes, inicios[outra], inicios[outra + 1]);
+        }
+
+        int hash(int linha) {
+            return TabelaCreditos.hash(bytes, inicios[linha], inicios[linha + 1]);
+        }
+
+        long bytesOcupados() {
+            return bytes.length + 4L * inicios.length + 2 * 16;
+        }
+    }
+
+    /**
+     * Índice hash de uma coluna de texto: {@code cabecas[slot]} é a primeira linha da chave e
+     * {@code proximas[linha]} a linha seguinte com a mesma chave. {@code caudas} e {@code chaves}
+     * só são usados pelo escritor.
+     */
+    private static final class Indice {
+
+        final int[] cabecas;
+        final int[] caudas;
+        final int[] proximas;
+        private int chaves;
+
+        Indice(int capacidadeLinhas) {
+            this(vazio(Integer.highestOneBit(Math.max(capacidadeLinhas, 8) - 1) << 2),
+                    vazio(Integer.highestOneBit(Math.max(capacidadeLinhas, 8) - 1) << 2),
+                    new int[capacidadeLinhas], 0);
+        }
+
+        private Indice(int[] cabecas, int[] caudas, int[] proximas, int chaves) {
+            this.cabecas = cabecas;
+            this.caudas = caudas;
+            this.proximas = proximas;
+            this.chaves = chaves;
+        }
+
+        void inserir(int linha, ColunaTexto texto) {
+            int mascara = cabecas.length - 1;
+            int slot = texto.hash(linha) & mascara;
+            proximas[linha] = NENHUMA;
+            while (true) {
+                int primeira = cabecas[slot];
+                if (primeira == NENHUMA) {
+                    caudas[slot] = linha;
+                    cabecas[slot] = linha;
+                    chaves++;
+                    return;
+                }
+                if (texto.iguais(primeira, linha)) {
+                    // Encadeia no fim: leitores de versões anteriores param antes deste elo
+                    proximas[caudas[slot]] = linha;
+                    caudas[slot] = linha;
+                    return;
+                }
+                slot = (slot + 1) & mascara;
+            }
+        }
+
+        boolean precisaCrescer() {
+            return chaves * 2 > cabecas.length;
+        }
+
+        /** Nova tabela com o dobro de slots; as cadeias (proximas) são reaproveitadas. */
+        Indice redimensionar(ColunaTexto texto) {
+            int[] novasCabecas = vazio(cabecas.length * 2);
+            int[] novasCaudas = vazio(cabecas.length * 2);
+            int mascara = novasCabecas.length - 1;
+            for (int i = 0; i < cabecas.length; i++) {
+                int primeira = cabecas[i];
+                if (primeira == NENHUMA) {
+                    continue;
+                }
+                int slot = texto.hash(primeira) & mascara;
+                while (novasCabecas[slot] != NENHUMA) {
+                    slot = (slot + 1) & mascara;
+                }
+                novasCabecas[slot] = primeira;
+                novasCaudas[slot] = caudas[i];
+            }
+            return new Indice(novasCabecas, novasCaudas, proximas, chaves);
+        }
+
+        Indice comCapacidadeLinhas(int capacidadeLinhas) {
+            return new Indice(cabecas, caudas, Arrays.copyOf(proximas, capacidadeLinhas), chaves);
+        }
+
+        long bytesOcupados() {
+            return 4L * (cabecas.length + caudas.length + proximas.length) + 3 * 16;
+        }
+
+        private static int[] vazio(int tamanho) {
+            int[] slots = new int[tamanho];
+            Arrays.fill(slots, NENHUMA);
+            return slots;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.exemplo.credito.replica;
+
+/**
+ * Como escolher a réplica de cada conexão de leitura entre as disponíveis.
+ */
+public enum Balanceamento {
+
+    /** Uma réplica por vez, em rodízio. */
+    ROUND_ROBIN,
+
+    /** A réplica com menos conexões em uso no pool; empates seguem o rodízio. */
+    MENOS_CONEXOES
+}
@@ -0,0 +1,31 @@
+package com.exemplo.credito.replica;
+
+/**
+ * Leituras que precisam ver o que acabou de ser gravado (read-your-writes): dentro de
+ * {@link #executar(Runnable)}, as transações somente leitura da thread também usam o primário.
+ */
+public final class LeituraNoPrimario {
+
+    private static final ThreadLocal<Boolean> ATIVA = new ThreadLocal<>();
+
+    private LeituraNoPrimario() {
+    }
+
+    public static void executar(Runnable leitura) {
+        Boolean anterior = ATIVA.get();
+        ATIVA.set(Boolean.TRUE);
+        try {
+            leitura.run();
+        } finally {
+            if (anterior == null) {
+                ATIVA.remove();
+            } else {
+                ATIVA.set(anterior);
+            }
+        }
+    }
+
+    static boolean ativa() {
+        return ATIVA.get() != null;
+    }
+}
@@ -0,0 +1,241 @@
+package com.exemplo.credito.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexões de leitura distribuídas entre as réplicas do banco, com retorno ao primário quando
+ * nenhuma está disponível.
+ *
+ * A cada intervalo de verificação, cada réplica precisa responder a uma conexão válida e à consulta
+ * de atraso da replicação dentro do limite configurado; a que falhar sai do rodízio até passar numa
+ * verificação seguinte. Uma réplica que recusar conexão também sai na hora, e a leitura tenta a próxima;
+ * já o pool de uma réplica sadia sem conexão livre no timeout só faz a leitura tentar a próxima, e a
+ * réplica continua no rodízio. A verificação usa o mesmo pool e também ignora o pool ocupado: a
+ * réplica só sai por conexão recusada, inválida ou atrasada.
+ *
+ * É o DataSource de leitura do LazyConnectionDataSourceProxy: só recebe as transações somente leitura
+ * que não estão em {@link LeituraNoPrimario}.
+ */
+@Slf4j
+public class ReplicasLeitura extends AbstractDataSource {
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final DataSource primario;
+    private final Balanceamento balanceamento;
+    private final double atrasoMaximoSegundos;
+    private final String consultaAtraso;
+    private final Duration intervaloVerificacao;
+    private final int timeoutVerificacaoSegundos;
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final Counter leiturasPropriasNoPrimario;
+    private final Counter indisponiveisNoPrimario;
+    private final Counter ocupadasNoPrimario;
+
+    private ScheduledExecutorService agendador;
+
+    public ReplicasLeitura(List<HikariDataSource> replicas, DataSource primario, Balanceamento balanceamento,
+                           Duration atrasoMaximo, String consultaAtraso, Duration intervaloVerificacao,
+                           MeterRegistry meterRegistry) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma réplica em credito.replicas.urls");
+        }
+        this.primario = primario;
+        this.balanceamento = balanceamento;
+        this.atrasoMaximoSegundos = atrasoMaximo.toMillis() / 1000.0;
+        this.consultaAtraso = consultaAtraso;
+        this.intervaloVerificacao = intervaloVerificacao;
+        this.timeoutVerificacaoSegundos = (int) Math.max(1, intervaloVerificacao.toSeconds());
+        for (HikariDataSource dataSource : replicas) {
+            Replica replica = new Replica(dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("creditos.replicas.disponivel", replica, r -> r.disponivel ? 1 : 0)
+                    .description("1 enquanto a réplica está no rodízio de leituras")
+                    .tag("replica", dataSource.getPoolName())
+                    .register(meterRegistry);
+            Gauge.builder("creditos.replicas.atraso", replica, r -> r.atrasoSegundos)
+                    .description("Atraso da replicação na última verificação, em segundos")
+                    .baseUnit("seconds")
+                    .tag("replica", dataSource.getPoolName())
+                    .register(meterRegistry);
+        }
+        this.leiturasPropriasNoPrimario = contadorPrimario("leitura-propria", meterRegistry);
+        this.indisponiveisNoPrimario = contadorPrimario("indisponivel", meterRegistry);
+        this.ocupadasNoPrimario = contadorPrimario("ocupada", meterRegistry);
+    }
+
+    private static Counter contadorPrimario(String motivo, MeterRegistry meterRegistry) {
+        return Counter.builder("creditos.replicas.leituras-no-primario")
+                .description("Conexões de leitura servidas pelo primário")
+                .tag("motivo", motivo)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        verificar();
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "creditos-replicas");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::verificar, intervaloVerificacao.toMillis(),
+                intervaloVerificacao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.dataSource.close();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (LeituraNoPrimario.ativa()) {
+            leiturasPropriasNoPrimario.increment();
+            return primario.getConnection();
+        }
+        // Cada réplica que falhar sai do rodízio ou, se só estava ocupada, desta escolha; então o laço termina
+        List<Replica> ocupadas = null;
+        for (Replica replica = escolher(ocupadas); replica != null; replica = escolher(ocupadas)) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                if (!poolOcupado(e)) {
+                    ejetar(replica, "conexão recusada: " + e.getMessage());
+                    continue;
+                }
+                if (ocupadas == null) {
+                    ocupadas = new ArrayList<>(replicas.size());
+                }
+                ocupadas.add(replica);
+            }
+        }
+        (ocupadas == null ? indisponiveisNoPrimario : ocupadasNoPrimario).increment();
+        return primario.getConnection();
+    }
+
+    /**
+     * Timeout do Hikari sem falha de conexão registrada: todas as conexões estavam em uso, mas o banco
+     * respondia. Quando a réplica recusa conexões, o Hikari anexa a última falha como causa.
+     */
+    private static boolean poolOcupado(SQLException e) {
+        return e instanceof SQLTransientConnectionException && e.getCause() == null;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("As réplicas usam as credenciais configuradas");
+    }
+
+    private Replica escolher(List<Replica> ignoradas) {
+        int inicio = Math.floorMod(proxima.getAndIncrement(), replicas.size());
+        Replica escolhida = null;
+        int menorUso = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((inicio + i) % replicas.size());
+            if (!replica.disponivel || (ignoradas != null && ignoradas.contains(replica))) {
+                continue;
+            }
+            if (balanceamento == Balanceamento.ROUND_ROBIN) {
+                return replica;
+            }
+            int emUso = replica.conexoesEmUso();
+            if (emUso < menorUso) {
+                escolhida = replica;
+                menorUso = emUso;
+            }
+        }
+        return escolhida;
+    }
+
+    /**
+     * Verifica conexão e atraso de cada réplica, tirando do rodízio ou devolvendo a ele. A réplica
+     * com o pool ocupado fica como está até a verificação seguinte.
+     */
+    public void verificar() {
+        for (Replica replica : replicas) {
+            try (Connection conexao = replica.dataSource.getConnection()) {
+                if (!conexao.isValid(timeoutVerificacaoSegundos)) {
+                    ejetar(replica, "conexão inválida");
+                    continue;
+                }
+                replica.atrasoSegundos = atraso(conexao);
+                if (replica.atrasoSegundos > atrasoMaximoSegundos) {
+                    ejetar(replica, "atraso de " + replica.atrasoSegundos + " s");
+                } else if (!replica.disponivel) {
+                    replica.disponivel = true;
+                    log.info("Réplica {} de volta ao rodízio de leituras", replica.dataSource.getPoolName());
+                }
+            } catch (SQLException e) {
+                // Pool sem conexão livre não diz nada da saúde da réplica: fica como estava
+                if (poolOcupado(e)) {
+                    log.debug("Verificação da réplica {} adiada: pool ocupado", replica.dataSource.getPoolName());
+                } else {
+                    ejetar(replica, e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                ejetar(replica, e.getMessage());
+            }
+        }
+    }
+
+    private double atraso(Connection conexao) throws SQLException {
+        try (Statement consulta = conexao.createStatement()) {
+            consulta.setQueryTimeout(timeoutVerificacaoSegundos);
+            try (ResultSet resultado = consulta.executeQuery(consultaAtraso)) {
+                // Sem linha ou nulo: a réplica não informa atraso (ex.: nada replicado ainda)
+                return resultado.next() ? resultado.getDouble(1) : 0;
+            }
+        }
+    }
+
+    private void ejetar(Replica replica, String motivo) {
+        if (replica.disponivel) {
+            replica.disponivel = false;
+            log.warn("Réplica {} fora do rodízio de leituras: {}", replica.dataSource.getPoolName(), motivo);
+        }
+    }
+
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean disponivel = true;
+        private volatile double atrasoSegundos;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        int conexoesEmUso() {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+    }
+}
@@ -1,12 +1,44 @@
 package com.exemplo.credito.repository;
 
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.VersaoCreditos;
 import com.exemplo.credito.entity.Credito;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// As consultas devolvem projeções (CreditoDTO), não entidades gerenciadas
+@Transactional(readOnly = true)
 public interface CreditoRepository extends JpaRepository<Credito, Long> {
-    List<Credito> findByNumeroNfse(String numeroNfse);
-    Optional<Credito> findByNumeroCredito(String numeroCredito);
+    List<CreditoDTO> findByNumeroNfse(String numeroNfse);
+    Optional<CreditoDTO> findByNumeroCredito(String numeroCredito);
+
+    List<CreditoDTO> findByNumeroNfseIn(Collection<String> numerosNfse);
+    List<CreditoDTO> findByNumeroCreditoIn(Collection<String> numerosCredito);
+
+    // Paginação por keyset: a próxima página começa depois do último id retornado
+    List<CreditoDTO> findByNumeroNfseAndIdGreaterThanOrderByIdAsc(String numeroNfse, Long id, Limit limit);
+
+    // Lê as linhas de um cursor JDBC (exige transação aberta enquanto o stream é consumido)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<CreditoDTO> streamByNumeroNfseOrderByIdAsc(String numeroNfse);
+
+    // Versões para GETs condicionais: só agregados, resolvidos pelos índices idx_credito_*_versao
+    @Query("SELECT new com.exemplo.credito.dto.VersaoCreditos(COUNT(c), MAX(c.id), SUM(c.id), SUM(c.versao), "
+            + "MAX(c.atualizadoEm)) FROM Credito c WHERE c.numeroNfse = :numeroNfse")
+    VersaoCreditos versaoPorNfse(@Param("numeroNfse") String numeroNfse);
+
+    @Query("SELECT new com.exemplo.credito.dto.VersaoCreditos(COUNT(c), MAX(c.id), SUM(c.id), SUM(c.versao), "
+            + "MAX(c.atualizadoEm)) FROM Credito c WHERE c.numeroCredito = :numeroCredito")
+    VersaoCreditos versaoPorNumeroCredito(@Param("numeroCredito") String numeroCredito);
 }
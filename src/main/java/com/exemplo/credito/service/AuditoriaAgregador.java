@@ -0,0 +1,247 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.GeradorIdEvento;
+import com.exemplo.credito.event.ResumoAuditoriaEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.AtomicHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.WriterReaderPhaser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo agregado da auditoria: em vez de um registro no Kafka por requisição, contadores e
+ * histogramas de latência acumulados em memória e publicados como um {@link ResumoAuditoriaEvent}
+ * por janela. Uma fração configurável dos eventos continua indo bruta pela {@link AuditoriaFila}.
+ *
+ * O registro roda na thread da requisição e não bloqueia: contadores em LongAdder, latências em
+ * AtomicHistogram repartidos em faixas por thread, e a troca de janela coordenada por um
+ * WriterReaderPhaser (quem registra só incrementa um contador; quem fecha a janela espera os
+ * registros em andamento terminarem antes de ler).
+ *
+ * Os histogramas são por rota, método e status; a contagem por cliente é limitada a
+ * auditoria.agregacao.maximo-chaves por janela, o que passar disso é somado em "outros".
+ */
+@Component
+@ConditionalOnProperty(name = "auditoria.agregacao.enabled", havingValue = "true")
+@Slf4j
+public class AuditoriaAgregador {
+
+    // Sem padrão de rota (ex.: 404 sem handler ou recusa do limite por cliente)
+    static final String ROTA_DESCONHECIDA = "/api/creditos/**";
+    static final String OUTROS_CLIENTES = "outros";
+
+    private static final int DIGITOS_SIGNIFICATIVOS = 2;
+    private static final int FAIXAS = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+    private final AuditoriaPublisher auditoriaPublisher;
+    private final Duration janela;
+    private final double taxaAmostragem;
+    private final int maximoChaves;
+    private final long latenciaMaximaMs;
+    private final Counter amostrados;
+    private final Counter clientesExcedentes;
+
+    private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+    private volatile Janela atual;
+    private ScheduledExecutorService agendador;
+
+    public AuditoriaAgregador(AuditoriaPublisher auditoriaPublisher,
+                              @Value("${auditoria.agregacao.janela:PT10S}") Duration janela,
+                              @Value("${auditoria.agregacao.taxa-amostragem:0.01}") double taxaAmostragem,
+                              @Value("${auditoria.agregacao.maximo-chaves:5000}") int maximoChaves,
+                              @Value("${auditoria.agregacao.latencia-maxima:PT1M}") Duration latenciaMaxima,
+                              MeterRegistry meterRegistry) {
+        if (taxaAmostragem < 0 || taxaAmostragem > 1) {
+            throw new IllegalArgumentException("auditoria.agregacao.taxa-amostragem deve estar entre 0 e 1");
+        }
+        this.auditoriaPublisher = auditoriaPublisher;
+        this.janela = janela;
+        this.taxaAmostragem = taxaAmostragem;
+        this.maximoChaves = maximoChaves;
+        this.latenciaMaximaMs = Math.max(2, latenciaMaxima.toMillis());
+        this.atual = new Janela(Instant.now());
+
+        this.amostrados = Counter.builder("auditoria.agregacao.amostrados")
+                .description("Eventos de auditoria enviados brutos, além do resumo, no modo agregado")
+                .register(meterRegistry);
+        this.clientesExcedentes = Counter.builder("auditoria.agregacao.clientes.excedentes")
+                .description("Eventos somados em \"outros\" por exceder o limite de clientes da janela")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "auditoria-agregacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleAtFixedRate(this::publicarJanela, janela.toMillis(), janela.toMillis(),
+                TimeUnit.MILLISECONDS);
+        log.info("Auditoria agregada: janela de {}, amostragem de {}% dos eventos", janela, taxaAmostragem * 100);
+    }
+
+    @PreDestroy
+    public void parar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        // A janela em andamento não se perde no desligamento
+        publicarJanela();
+    }
+
+    /**
+     * Soma o evento à janela atual.
+     *
+     * @return {@code true} se o evento foi sorteado para também seguir bruto para o Kafka
+     */
+    public boolean registrar(ConsultaAuditoriaEvent evento) {
+        boolean amostrado = taxaAmostragem > 0 && ThreadLocalRandom.current().nextDouble() < taxaAmostragem;
+        long fase = phaser.writerCriticalSectionEnter();
+        try {
+            atual.registrar(evento, amostrado);
+        } finally {
+            phaser.writerCriticalSectionExit(fase);
+        }
+        if (amostrado) {
+            amostrados.increment();
+        }
+        return amostrado;
+    }
+
+    /**
+     * Fecha a janela atual, abre outra e publica o resumo da fechada (se houve eventos).
+     */
+    void publicarJanela() {
+        try {
+            ResumoAuditoriaEvent resumo = fecharJanela();
+            if (resumo.eventos() > 0) {
+                auditoriaPublisher.publicarResumo(resumo);
+            }
+        } catch (Exception e) {
+            log.error("Erro ao publicar o resumo da auditoria: {}", e.getMessage());
+        }
+    }
+
+    ResumoAuditoriaEvent fecharJanela() {
+        Janela fechada;
+        phaser.readerLock();
+        try {
+            fechada = atual;
+            atual = new Janela(Instant.now());
+            // Espera os registros que ainda usam a janela fechada
+            phaser.flipPhase();
+        } finally {
+            phaser.readerUnlock();
+        }
+        return fechada.resumir(Instant.now());
+    }
+
+    private final class Janela {
+
+        private final Instant inicio;
+        private final LongAdder eventos = new LongAdder();
+        private final LongAdder amostradosNaJanela = new LongAdder();
+        private final Map<ChaveRota, Rota> rotas = new ConcurrentHashMap<>();
+        private final Map<ChaveCliente, LongAdder> clientes = new ConcurrentHashMap<>();
+
+        private Janela(Instant inicio) {
+            this.inicio = inicio;
+        }
+
+        void registrar(ConsultaAuditoriaEvent evento, boolean amostrado) {
+            eventos.increment();
+            if (amostrado) {
+                amostradosNaJanela.increment();
+            }
+            ChaveRota chave = new ChaveRota(evento.getRota() != null ? evento.getRota() : ROTA_DESCONHECIDA,
+                    evento.getMetodo(), evento.getStatusResposta() != null ? evento.getStatusResposta() : 0);
+            rotas.computeIfAbsent(chave, k -> new Rota()).registrar(evento.getTempoProcessamento());
+
+            String cliente = evento.getIpOrigemString();
+            LongAdder contador = clientes.get(new ChaveCliente(chave, cliente));
+            if (contador == null) {
+                if (clientes.size() >= maximoChaves) {
+                    clientesExcedentes.increment();
+                    cliente = OUTROS_CLIENTES;
+                }
+                contador = clientes.computeIfAbsent(new ChaveCliente(chave, cliente), k -> new LongAdder());
+            }
+            contador.increment();
+        }
+
+        ResumoAuditoriaEvent resumir(Instant fim) {
+            List<ResumoAuditoriaEvent.PorRota> porRota = new ArrayList<>(rotas.size());
+            rotas.forEach((chave, rota) -> porRota.add(rota.resumir(chave)));
+            List<ResumoAuditoriaEvent.PorCliente> porCliente = new ArrayList<>(clientes.size());
+            clientes.forEach((chave, quantidade) -> porCliente.add(new ResumoAuditoriaEvent.PorCliente(
+                    chave.rota().rota(), chave.rota().metodo(), chave.rota().status(), chave.cliente(),
+                    quantidade.sum())));
+            return new ResumoAuditoriaEvent(GeradorIdEvento.novoId(fim.toEpochMilli()), inicio, fim, eventos.sum(),
+                    amostradosNaJanela.sum(), porRota, porCliente);
+        }
+    }
+
+    private final class Rota {
+
+        private final LongAdder quantidade = new LongAdder();
+        // Uma faixa por grupo de threads, para que requisições simultâneas não disputem as mesmas células
+        private final AtomicHistogram[] faixas = new AtomicHistogram[FAIXAS];
+
+        private Rota() {
+            for (int i = 0; i < faixas.length; i++) {
+                faixas[i] = new AtomicHistogram(1, latenciaMaximaMs, DIGITOS_SIGNIFICATIVOS);
+            }
+        }
+
+        void registrar(Long tempoProcessamento) {
+            quantidade.increment();
+            if (tempoProcessamento != null) {
+                AtomicHistogram faixa = faixas[System.identityHashCode(Thread.currentThread()) & (faixas.length - 1)];
+                faixa.recordValue(Math.min(Math.max(tempoProcessamento, 0), latenciaMaximaMs));
+            }
+        }
+
+        ResumoAuditoriaEvent.PorRota resumir(ChaveRota chave) {
+            Histogram latencias = new Histogram(1, latenciaMaximaMs, DIGITOS_SIGNIFICATIVOS);
+            for (AtomicHistogram faixa : faixas) {
+                latencias.add(faixa);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(latencias.getNeededByteBufferCapacity());
+            int tamanho = latencias.encodeIntoCompressedByteBuffer(buffer);
+            String histograma = Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), tamanho));
+            return new ResumoAuditoriaEvent.PorRota(chave.rota(), chave.metodo(), chave.status(), quantidade.sum(),
+                    latencias.getValueAtPercentile(50), latencias.getValueAtPercentile(90),
+                    latencias.getValueAtPercentile(99), latencias.getValueAtPercentile(99.9),
+                    latencias.getMaxValue(), histograma);
+        }
+    }
+
+    private record ChaveRota(String rota, String metodo, int status) {
+    }
+
+    private record ChaveCliente(ChaveRota rota, String cliente) {
+    }
+}
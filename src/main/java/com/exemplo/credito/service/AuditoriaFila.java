@@ -0,0 +1,171 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.concorrencia.FilaCircular;
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Desacopla a publicação dos eventos de auditoria da thread da requisição.
+ *
+ * O interceptor apenas enfileira o evento numa {@link FilaCircular} limitada; uma thread
+ * dedicada drena a fila em lotes e os entrega ao {@link AuditoriaPublisher}, que serializa
+ * e envia ao Kafka. Assim a latência da requisição não depende da saúde do broker.
+ *
+ * O evento que não cabe na fila (o mais antigo, o mais novo ou o que esgotou o bloqueio, conforme a
+ * política) vai para o spool local e é reenviado com os demais pendentes; só se perde com o spool
+ * desabilitado ou cheio.
+ *
+ * Com auditoria.agregacao.enabled=true, o {@link AuditoriaAgregador} resume os eventos por janela
+ * e só a fração amostrada segue para a fila.
+ */
+@Component
+@Slf4j
+public class AuditoriaFila {
+
+    private final AuditoriaPublisher auditoriaPublisher;
+    private final AuditoriaAgregador agregador;
+    private final FilaCircular<ConsultaAuditoriaEvent> fila;
+    private final PoliticaOverflow politicaOverflow;
+    private final long timeoutBloqueioNanos;
+    private final int tamanhoLote;
+    private final Counter arquivados;
+    private final Counter descartados;
+
+    private volatile boolean executando;
+    private Thread trabalhador;
+
+    public AuditoriaFila(AuditoriaPublisher auditoriaPublisher,
+                         @Value("${auditoria.fila.capacidade:8192}") int capacidade,
+                         @Value("${auditoria.fila.politica-overflow:DESCARTAR_MAIS_ANTIGO}") PoliticaOverflow politicaOverflow,
+                         @Value("${auditoria.fila.timeout-bloqueio:PT0.005S}") Duration timeoutBloqueio,
+                         @Value("${auditoria.fila.tamanho-lote:256}") int tamanhoLote,
+                         @Nullable AuditoriaAgregador agregador,
+                         MeterRegistry meterRegistry) {
+        this.auditoriaPublisher = auditoriaPublisher;
+        this.agregador = agregador;
+        this.fila = new FilaCircular<>(capacidade);
+        this.politicaOverflow = politicaOverflow;
+        this.timeoutBloqueioNanos = timeoutBloqueio.toNanos();
+        this.tamanhoLote = tamanhoLote;
+
+        Gauge.builder("auditoria.fila.profundidade", fila, FilaCircular::size)
+                .description("Eventos de auditoria aguardando publicação")
+                .register(meterRegistry);
+        this.arquivados = Counter.builder("auditoria.fila.arquivados")
+                .description("Eventos de auditoria que não couberam na fila e foram gravados no spool")
+                .tag("politica", politicaOverflow.name())
+                .register(meterRegistry);
+        this.descartados = Counter.builder("auditoria.fila.descartados")
+                .description("Eventos de auditoria perdidos por fila cheia sem espaço no spool")
+                .tag("politica", politicaOverflow.name())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        executando = true;
+        trabalhador = new Thread(this::drenar, "auditoria-publicador");
+        trabalhador.setDaemon(true);
+        trabalhador.start();
+        log.info("Fila de auditoria iniciada (capacidade={}, política={}, lote={})",
+                fila.capacidade(), politicaOverflow, tamanhoLote);
+    }
+
+    @PreDestroy
+    public void parar() throws InterruptedException {
+        executando = false;
+        if (trabalhador != null) {
+            LockSupport.unpark(trabalhador);
+            trabalhador.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Enfileira o evento sem bloquear (exceto com a política BLOQUEAR, limitada pelo timeout).
+     * No modo agregado, só os eventos sorteados pela amostragem entram na fila; os demais ficam
+     * apenas no resumo da janela.
+     *
+     * @return {@code true} se o evento novo entrou na fila, no resumo ou no spool
+     */
+    public boolean enfileirar(ConsultaAuditoriaEvent evento) {
+        if (agregador != null && !agregador.registrar(evento)) {
+            return true;
+        }
+        evento.setEnfileiradoEmNanos(System.nanoTime());
+        if (fila.offer(evento)) {
+            return true;
+        }
+        switch (politicaOverflow) {
+            case DESCARTAR_MAIS_ANTIGO:
+                while (!fila.offer(evento)) {
+                    ConsultaAuditoriaEvent maisAntigo = fila.poll();
+                    if (maisAntigo != null) {
+                        arquivar(maisAntigo);
+                    }
+                }
+                return true;
+            case BLOQUEAR:
+                long limite = System.nanoTime() + timeoutBloqueioNanos;
+                while (System.nanoTime() < limite) {
+                    LockSupport.parkNanos(10_000);
+                    if (fila.offer(evento)) {
+                        return true;
+                    }
+                }
+                return arquivar(evento);
+            default:
+                return arquivar(evento);
+        }
+    }
+
+    private boolean arquivar(ConsultaAuditoriaEvent evento) {
+        if (auditoriaPublisher.arquivar(evento)) {
+            arquivados.increment();
+            return true;
+        }
+        descartados.increment();
+        return false;
+    }
+
+    public int profundidade() {
+        return fila.size();
+    }
+
+    public long quantidadeDescartados() {
+        return (long) descartados.count();
+    }
+
+    private void drenar() {
+        List<ConsultaAuditoriaEvent> lote = new ArrayList<>(tamanhoLote);
+        while (executando || !fila.isEmpty()) {
+            ConsultaAuditoriaEvent evento;
+            while (lote.size() < tamanhoLote && (evento = fila.poll()) != null) {
+                lote.add(evento);
+            }
+            if (lote.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                continue;
+            }
+            try {
+                auditoriaPublisher.publicarLote(lote);
+            } catch (Exception e) {
+                log.error("Erro ao publicar lote de {} eventos de auditoria: {}", lote.size(), e.getMessage());
+            }
+            lote.clear();
+        }
+    }
+}
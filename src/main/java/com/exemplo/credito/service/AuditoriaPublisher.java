@@ -1,42 +1,319 @@
 package com.exemplo.credito.service;
 
+import com.exemplo.credito.event.AuditoriaEventCodec;
 import com.exemplo.credito.event.ConsultaAuditoriaEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.exemplo.credito.event.ResumoAuditoriaEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AuditoriaPublisher {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    // Chave dos resumos no spool, que guarda o JSON pronto em vez do evento codificado
+    static final String PREFIXO_RESUMO_SPOOL = "resumo:";
+
+    private final KafkaTemplate<String, ConsultaAuditoriaEvent> kafkaTemplate;
+    // Presente só com auditoria.agregacao.enabled=true (KafkaConfig)
+    private final KafkaTemplate<String, byte[]> kafkaTemplateResumo;
     private final ObjectMapper objectMapper;
+    private final AuditoriaSpool auditoriaSpool;
+    private final Timer publicacaoSucesso;
+    private final Timer publicacaoFalha;
+    private final Counter falhasEnvio;
 
     @Value("${kafka.topic.auditoria:consultas-auditoria}")
     private String topicAuditoria;
 
+    @Value("${kafka.topic.auditoria-resumo:consultas-auditoria-resumo}")
+    private String topicResumo;
+
+    @Value("${auditoria.circuito.limite-falhas:5}")
+    private int limiteFalhas = 5;
+
+    @Value("${auditoria.circuito.tempo-aberto:PT30S}")
+    private Duration tempoAberto = Duration.ofSeconds(30);
+
+    @Value("${auditoria.spool.tamanho-lote-reenvio:500}")
+    private int tamanhoLoteReenvio = 500;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean threadsVirtuais;
+
+    // Trata as falhas de envio; sem threads virtuais roda na própria thread de I/O do producer
+    private Executor executorFalhas = Runnable::run;
+
+    // Circuit breaker simples: abre após N falhas consecutivas de envio, ou na primeira por timeout
+    private final AtomicInteger falhasConsecutivas = new AtomicInteger();
+    private volatile long circuitoAbertoAte = System.nanoTime();
+
+    public AuditoriaPublisher(KafkaTemplate<String, ConsultaAuditoriaEvent> kafkaTemplate,
+                              @Nullable KafkaTemplate<String, byte[]> kafkaTemplateResumo, ObjectMapper objectMapper,
+                              AuditoriaSpool auditoriaSpool, MeterRegistry meterRegistry) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaTemplateResumo = kafkaTemplateResumo;
+        this.objectMapper = objectMapper;
+        this.auditoriaSpool = auditoriaSpool;
+
+        this.publicacaoSucesso = timerPublicacao("sucesso", meterRegistry);
+        this.publicacaoFalha = timerPublicacao("falha", meterRegistry);
+        this.falhasEnvio = Counter.builder("auditoria.publicacao.falhas")
+                .description("Falhas de envio de eventos de auditoria ao Kafka (inclusive reenvios do spool)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Com threads virtuais habilitadas, o tratamento das falhas de envio (gravação no spool, com
+     * I/O de arquivo) sai da thread de I/O do producer, que é compartilhada por todos os envios,
+     * e vai para uma única thread virtual, preservando a ordem de gravação no spool.
+     */
+    @PostConstruct
+    public void configurarExecutorFalhas() {
+        if (threadsVirtuais) {
+            executorFalhas = Executors.newSingleThreadExecutor(
+                    new VirtualThreadTaskExecutor("auditoria-falhas-").getVirtualThreadFactory());
+        }
+    }
+
+    @PreDestroy
+    public void encerrarExecutorFalhas() throws InterruptedException {
+        if (executorFalhas instanceof ExecutorService executor) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Publica um lote drenado da {@link AuditoriaFila}; o producer do Kafka agrupa
+     * os envios em batches conforme linger.ms/batch.size.
+     */
+    public void publicarLote(List<ConsultaAuditoriaEvent> eventos) {
+        for (ConsultaAuditoriaEvent evento : eventos) {
+            publicarEventoAuditoria(evento);
+        }
+    }
+
     public void publicarEventoAuditoria(ConsultaAuditoriaEvent evento) {
+        // Enquanto houver eventos no spool, os novos entram atrás deles para preservar a ordem
+        if (circuitoAberto() || auditoriaSpool.possuiPendentes()) {
+            gravarNoSpool(evento);
+            return;
+        }
+
         try {
-            String eventoJson = objectMapper.writeValueAsString(evento);
-            
-            kafkaTemplate.send(topicAuditoria, evento.getId(), eventoJson)
+            // A serialização (JSON ou binária) acontece no Serializer configurado no producer
+            kafkaTemplate.send(topicAuditoria, evento.getId(), evento)
                 .whenComplete((result, ex) -> {
+                    registrarTempoPublicacao(evento, ex == null);
                     if (ex == null) {
-                        log.info("Evento de auditoria enviado com sucesso para o tópico {}: {}", 
+                        falhasConsecutivas.set(0);
+                        log.debug("Evento de auditoria enviado com sucesso para o tópico {}: {}", 
                                 topicAuditoria, evento.getId());
                     } else {
                         log.error("Falha ao enviar evento de auditoria para o tópico {}: {}", 
                                 topicAuditoria, ex.getMessage());
+                        executorFalhas.execute(() -> {
+                            registrarFalha(ex);
+                            gravarNoSpool(evento);
+                        });
                     }
                 });
-                
-        } catch (JsonProcessingException e) {
+        } catch (SerializationException e) {
             log.error("Erro ao serializar evento de auditoria: {}", e.getMessage());
+            falhasEnvio.increment();
+        } catch (RuntimeException e) {
+            log.error("Falha ao enviar evento de auditoria para o tópico {}: {}", topicAuditoria, e.getMessage());
+            registrarFalha(e);
+            gravarNoSpool(evento);
+        }
+    }
+
+    /**
+     * Publica o resumo de uma janela do modo agregado, em JSON, no tópico de resumos. Como os eventos
+     * avulsos, um resumo que falhar (ou chegar com o circuito aberto ou o spool com pendentes) vai para
+     * o spool e é reenviado na ordem, já que os eventos que ele resume não têm outra cópia.
+     */
+    public void publicarResumo(ResumoAuditoriaEvent resumo) {
+        if (kafkaTemplateResumo == null) {
+            log.debug("Resumo de auditoria {} sem producer configurado; descartado", resumo.id());
+            return;
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(resumo);
+        } catch (IOException e) {
+            log.error("Erro ao serializar resumo de auditoria: {}", e.getMessage());
+            falhasEnvio.increment();
+            return;
+        }
+        if (circuitoAberto() || auditoriaSpool.possuiPendentes()) {
+            gravarResumoNoSpool(resumo.id(), json);
+            return;
+        }
+
+        try {
+            kafkaTemplateResumo.send(topicResumo, resumo.id(), json)
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) {
+                            log.error("Falha ao enviar resumo de auditoria para o tópico {}: {}",
+                                    topicResumo, ex.getMessage());
+                            executorFalhas.execute(() -> {
+                                registrarFalha(ex);
+                                gravarResumoNoSpool(resumo.id(), json);
+                            });
+                        }
+                    });
+        } catch (RuntimeException e) {
+            log.error("Falha ao enviar resumo de auditoria para o tópico {}: {}", topicResumo, e.getMessage());
+            registrarFalha(e);
+            gravarResumoNoSpool(resumo.id(), json);
+        }
+    }
+
+    /**
+     * Reenvia ao tópico, em ordem, os eventos acumulados no spool local. Para no primeiro
+     * lote que falhar; a próxima tentativa recomeça do último lote confirmado.
+     */
+    public void reenviarPendentesDoSpool() {
+        while (!circuitoAberto() && auditoriaSpool.possuiPendentes()) {
+            AuditoriaSpool.LoteSpool lote = auditoriaSpool.lerProximos(tamanhoLoteReenvio);
+            if (lote.registros().isEmpty()) {
+                auditoriaSpool.confirmar(lote.proximaPosicao());
+                return;
+            }
+
+            List<CompletableFuture<?>> envios = new ArrayList<>(lote.registros().size());
+            try {
+                for (AuditoriaSpool.RegistroSpool registro : lote.registros()) {
+                    CompletableFuture<?> envio = reenviar(registro);
+                    if (envio != null) {
+                        envios.add(envio);
+                    }
+                }
+                CompletableFuture.allOf(envios.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("Falha ao reenviar eventos do spool de auditoria: {}", e.getMessage());
+                registrarFalha(e);
+                return;
+            }
+
+            auditoriaSpool.confirmar(lote.proximaPosicao());
+            falhasConsecutivas.set(0);
+            log.info("{} eventos de auditoria reenviados do spool para o tópico {}",
+                    lote.registros().size(), topicAuditoria);
+        }
+    }
+
+    private boolean circuitoAberto() {
+        return System.nanoTime() - circuitoAbertoAte < 0;
+    }
+
+    private static Timer timerPublicacao(String resultado, MeterRegistry meterRegistry) {
+        return Timer.builder("auditoria.publicacao")
+                .description("Tempo entre a entrada do evento na fila de auditoria e a resposta do broker")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    private void registrarTempoPublicacao(ConsultaAuditoriaEvent evento, boolean sucesso) {
+        long enfileirado = evento.getEnfileiradoEmNanos();
+        if (enfileirado != 0) {
+            (sucesso ? publicacaoSucesso : publicacaoFalha)
+                    .record(System.nanoTime() - enfileirado, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Timeout do producer (sem metadata do broker em max.block.ms, ou entrega expirada) abre o
+     * circuito na hora: cada novo envio bloquearia a thread de publicação pelo mesmo tempo.
+     */
+    private void registrarFalha(Throwable falha) {
+        falhasEnvio.increment();
+        if (porTimeout(falha) || falhasConsecutivas.incrementAndGet() >= limiteFalhas) {
+            circuitoAbertoAte = System.nanoTime() + tempoAberto.toNanos();
+            falhasConsecutivas.set(0);
+            log.warn("Circuito de auditoria aberto por {}; eventos serão gravados no spool local", tempoAberto);
+        }
+    }
+
+    private static boolean porTimeout(Throwable falha) {
+        for (Throwable causa = falha; causa != null; causa = causa.getCause()) {
+            if (causa instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Grava no spool um evento que não coube na {@link AuditoriaFila}; ele é reenviado com os demais
+     * pendentes, à frente dos que ainda estão na fila.
+     *
+     * @return {@code false} se o spool está desabilitado ou cheio
+     */
+    public boolean arquivar(ConsultaAuditoriaEvent evento) {
+        return auditoriaSpool.gravar(evento.getId(), AuditoriaEventCodec.codificar(evento));
+    }
+
+    private void gravarNoSpool(ConsultaAuditoriaEvent evento) {
+        if (!arquivar(evento)) {
+            log.error("Evento de auditoria {} perdido: spool local indisponível", evento.getId());
+        }
+    }
+
+    private void gravarResumoNoSpool(String id, byte[] json) {
+        if (!auditoriaSpool.gravar(PREFIXO_RESUMO_SPOOL + id, json)) {
+            log.error("Resumo de auditoria {} perdido: spool local indisponível", id);
+        }
+    }
+
+    private CompletableFuture<?> reenviar(AuditoriaSpool.RegistroSpool registro) {
+        if (registro.chave().startsWith(PREFIXO_RESUMO_SPOOL)) {
+            String id = registro.chave().substring(PREFIXO_RESUMO_SPOOL.length());
+            if (kafkaTemplateResumo == null) {
+                log.warn("Resumo de auditoria {} no spool sem producer configurado; descartado", id);
+                return null;
+            }
+            return kafkaTemplateResumo.send(topicResumo, id, registro.valor());
+        }
+        ConsultaAuditoriaEvent evento = lerDoSpool(registro);
+        return evento == null ? null : kafkaTemplate.send(topicAuditoria, registro.chave(), evento);
+    }
+
+    private ConsultaAuditoriaEvent lerDoSpool(AuditoriaSpool.RegistroSpool registro) {
+        byte[] valor = registro.valor();
+        try {
+            // Registros gravados antes do formato binário estão em JSON
+            if (valor.length > 0 && valor[0] == '{') {
+                return objectMapper.readValue(valor, ConsultaAuditoriaEvent.class);
+            }
+            return AuditoriaEventCodec.decodificar(valor);
+        } catch (IOException | RuntimeException e) {
+            log.error("Evento de auditoria {} ilegível no spool, descartado: {}", registro.chave(), e.getMessage());
+            return null;
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,427 @@
+package com.exemplo.credito.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Spool local e durável para eventos de auditoria que não puderam ser enviados ao Kafka.
+ *
+ * Os eventos são gravados em sequência em segmentos de tamanho fixo mapeados em memória
+ * (auditoria-NNNNNNNNNNNNNNNNNNNN.seg). Cada registro tem o formato
+ * {@code [int tamanho][int crc32][short tamanhoChave][chave][valor]}; o tamanho é escrito por
+ * último e funciona como marcador de registro completo. Um arquivo de checkpoint guarda até onde
+ * os registros já foram reenviados, e segmentos totalmente reenviados são apagados.
+ *
+ * A gravação não faz fsync: o conteúdo fica no page cache do sistema e é sincronizado em
+ * background por {@link #sincronizar()}. Na inicialização os segmentos são varridos e o último
+ * é truncado no primeiro registro incompleto ou com checksum inválido.
+ */
+@Component
+@Slf4j
+public class AuditoriaSpool {
+
+    private static final String PREFIXO_SEGMENTO = "auditoria-";
+    private static final String EXTENSAO_SEGMENTO = ".seg";
+    private static final String ARQUIVO_CHECKPOINT = "checkpoint";
+    private static final int CABECALHO_REGISTRO = 8;
+    private static final int TAMANHO_CHECKPOINT = 16;
+
+    private final boolean enabled;
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    private final int maxSegmentos;
+    private final Counter gravados;
+    private final Counter rejeitados;
+    private final Counter corrompidos;
+
+    // ReentrantLock em vez de synchronized: gravar() pode rodar em threads virtuais e faz I/O de
+    // arquivo ao rotacionar segmentos, o que prenderia a carrier num monitor (JDK 21)
+    private final ReentrantLock trava = new ReentrantLock();
+    private final TreeMap<Long, Path> segmentos = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+
+    private long segmentoEscrita = -1;
+    private MappedByteBuffer escrita;
+
+    private long segmentoLido = -1;
+    private MappedByteBuffer leitura;
+
+    private Posicao confirmada = new Posicao(0, 0);
+    private FileChannel checkpoint;
+
+    public AuditoriaSpool(@Value("${auditoria.spool.enabled:true}") boolean enabled,
+                          @Value("${auditoria.spool.diretorio:data/spool-auditoria}") Path diretorio,
+                          @Value("${auditoria.spool.tamanho-segmento:64MB}") DataSize tamanhoSegmento,
+                          @Value("${auditoria.spool.max-segmentos:64}") int maxSegmentos,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = Math.toIntExact(tamanhoSegmento.toBytes());
+        this.maxSegmentos = maxSegmentos;
+
+        Gauge.builder("auditoria.spool.segmentos", this, AuditoriaSpool::quantidadeSegmentos)
+                .description("Segmentos do spool de auditoria em disco")
+                .register(meterRegistry);
+        this.gravados = Counter.builder("auditoria.spool.gravados")
+                .description("Eventos de auditoria gravados no spool local")
+                .register(meterRegistry);
+        this.rejeitados = Counter.builder("auditoria.spool.rejeitados")
+                .description("Eventos de auditoria que não couberam no spool local")
+                .register(meterRegistry);
+        this.corrompidos = Counter.builder("auditoria.spool.corrompidos")
+                .description("Registros do spool descartados por checksum inválido")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void recuperar() throws IOException {
+        trava.lock();
+        try {
+            if (!enabled) {
+                return;
+            }
+            Files.createDirectories(diretorio);
+            try (Stream<Path> arquivos = Files.list(diretorio)) {
+                arquivos.forEach(arquivo -> {
+                    Long sequencia = sequenciaDoSegmento(arquivo);
+                    if (sequencia != null) {
+                        segmentos.put(sequencia, arquivo);
+                    }
+                });
+            }
+
+            checkpoint = FileChannel.open(diretorio.resolve(ARQUIVO_CHECKPOINT),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            confirmada = lerCheckpoint();
+
+            // Segmentos anteriores ao checkpoint já foram reenviados por completo
+            while (!segmentos.isEmpty() && segmentos.firstKey() < confirmada.segmento()) {
+                Files.deleteIfExists(segmentos.pollFirstEntry().getValue());
+            }
+            if (segmentos.isEmpty() || !segmentos.containsKey(confirmada.segmento())) {
+                confirmada = new Posicao(segmentos.isEmpty() ? 0 : segmentos.firstKey(), 0);
+            }
+
+            if (!segmentos.isEmpty()) {
+                segmentoEscrita = segmentos.lastKey();
+                escrita = mapear(segmentos.get(segmentoEscrita), FileChannel.MapMode.READ_WRITE);
+                int fim = varrerRegistrosValidos(escrita);
+                // Descarta restos de um registro interrompido por crash
+                for (int i = fim; i < tamanhoSegmento; i++) {
+                    escrita.put(i, (byte) 0);
+                }
+                escrita.position(fim);
+            }
+
+            if (possuiPendentes()) {
+                log.warn("Spool de auditoria com eventos pendentes de reenvio em {} segmento(s)", segmentos.size());
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void fechar() throws IOException {
+        trava.lock();
+        try {
+            sincronizar();
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta um registro ao final do spool. Não bloqueia em fsync.
+     *
+     * @return {@code false} se o spool está desabilitado ou cheio
+     */
+    public boolean gravar(String chave, byte[] valor) {
+        trava.lock();
+        try {
+            if (!enabled) {
+                return false;
+            }
+            byte[] chaveBytes = chave == null ? new byte[0] : chave.getBytes(StandardCharsets.UTF_8);
+            int tamanho = 2 + chaveBytes.length + valor.length;
+            int total = CABECALHO_REGISTRO + tamanho;
+
+            // Reserva 4 bytes no fim do segmento para o marcador de fim (tamanho zero)
+            if (total + 4 > tamanhoSegmento
+                    || (escrita == null || escrita.remaining() < total + 4) && !rotacionar()) {
+                rejeitados.increment();
+                return false;
+            }
+
+            int inicio = escrita.position();
+            escrita.position(inicio + CABECALHO_REGISTRO);
+            escrita.putShort((short) chaveBytes.length);
+            escrita.put(chaveBytes);
+            escrita.put(valor);
+
+            escrita.putInt(inicio + 4, calcularCrc(escrita, inicio + CABECALHO_REGISTRO, tamanho));
+            escrita.putInt(inicio, tamanho);
+            gravados.increment();
+            return true;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Lê, a partir da última posição confirmada, até {@code maximo} registros em ordem de gravação.
+     * A posição só avança quando o chamador confirma o lote com {@link #confirmar(Posicao)}.
+     */
+    public LoteSpool lerProximos(int maximo) {
+        trava.lock();
+        try {
+            List<RegistroSpool> registros = new ArrayList<>();
+            long segmento = confirmada.segmento();
+            int posicao = confirmada.posicao();
+
+            while (enabled && registros.size() < maximo && segmentos.containsKey(segmento)) {
+                ByteBuffer buffer = segmentoParaLeitura(segmento);
+                int tamanho = posicao + 4 <= tamanhoSegmento ? buffer.getInt(posicao) : 0;
+                if (tamanho <= 0 || posicao + CABECALHO_REGISTRO + tamanho > tamanhoSegmento) {
+                    Long proximo = segmentos.higherKey(segmento);
+                    if (proximo == null) {
+                        break;
+                    }
+                    segmento = proximo;
+                    posicao = 0;
+                    continue;
+                }
+
+                int inicioPayload = posicao + CABECALHO_REGISTRO;
+                if (buffer.getInt(posicao + 4) != calcularCrc(buffer, inicioPayload, tamanho)) {
+                    // Registro corrompido num segmento já fechado: ignora o restante do segmento
+                    log.error("Checksum inválido no segmento {} posição {}; restante do segmento descartado",
+                            segmento, posicao);
+                    corrompidos.increment();
+                    Long proximo = segmentos.higherKey(segmento);
+                    if (proximo == null) {
+                        break;
+                    }
+                    segmento = proximo;
+                    posicao = 0;
+                    continue;
+                }
+
+                int tamanhoChave = buffer.getShort(inicioPayload);
+                byte[] chave = new byte[tamanhoChave];
+                byte[] valor = new byte[tamanho - 2 - tamanhoChave];
+                buffer.get(inicioPayload + 2, chave);
+                buffer.get(inicioPayload + 2 + tamanhoChave, valor);
+                registros.add(new RegistroSpool(new String(chave, StandardCharsets.UTF_8), valor));
+                posicao = inicioPayload + tamanho;
+            }
+            return new LoteSpool(registros, new Posicao(segmento, posicao));
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Confirma que os registros até a posição informada foram reenviados.
+     */
+    public void confirmar(Posicao posicao) {
+        trava.lock();
+        try {
+            confirmada = posicao;
+            while (!segmentos.isEmpty() && segmentos.firstKey() < posicao.segmento()) {
+                Path arquivo = segmentos.pollFirstEntry().getValue();
+                try {
+                    Files.deleteIfExists(arquivo);
+                } catch (IOException e) {
+                    log.warn("Não foi possível apagar o segmento {}: {}", arquivo, e.getMessage());
+                }
+            }
+            gravarCheckpoint(posicao);
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public boolean possuiPendentes() {
+        trava.lock();
+        try {
+            if (escrita == null) {
+                return false;
+            }
+            return segmentoEscrita > confirmada.segmento() || escrita.position() > confirmada.posicao();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Força os segmentos e o checkpoint para o disco; chamado periodicamente fora do caminho da requisição.
+     */
+    public void sincronizar() {
+        trava.lock();
+        try {
+            try {
+                if (escrita != null) {
+                    escrita.force();
+                }
+                if (checkpoint != null) {
+                    checkpoint.force(false);
+                }
+            } catch (IOException e) {
+                log.warn("Falha ao sincronizar o spool de auditoria: {}", e.getMessage());
+            }
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    public int quantidadeSegmentos() {
+        trava.lock();
+        try {
+            return segmentos.size();
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private boolean rotacionar() {
+        if (segmentos.size() >= maxSegmentos) {
+            log.error("Spool de auditoria cheio ({} segmentos); evento descartado", maxSegmentos);
+            return false;
+        }
+        long sequencia = segmentos.isEmpty() ? 1 : segmentos.lastKey() + 1;
+        Path arquivo = diretorio.resolve(String.format("%s%020d%s", PREFIXO_SEGMENTO, sequencia, EXTENSAO_SEGMENTO));
+        try {
+            if (escrita != null) {
+                escrita.force();
+            }
+            MappedByteBuffer novo = mapear(arquivo, FileChannel.MapMode.READ_WRITE);
+            segmentos.put(sequencia, arquivo);
+            if (segmentos.size() == 1) {
+                confirmada = new Posicao(sequencia, 0);
+            }
+            segmentoEscrita = sequencia;
+            escrita = novo;
+            return true;
+        } catch (IOException e) {
+            log.error("Não foi possível criar o segmento {}: {}", arquivo, e.getMessage());
+            return false;
+        }
+    }
+
+    private ByteBuffer segmentoParaLeitura(long segmento) {
+        if (segmento == segmentoEscrita) {
+            return escrita;
+        }
+        if (segmento != segmentoLido) {
+            try {
+                leitura = mapear(segmentos.get(segmento), FileChannel.MapMode.READ_ONLY);
+                segmentoLido = segmento;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return leitura;
+    }
+
+    private MappedByteBuffer mapear(Path arquivo, FileChannel.MapMode modo) throws IOException {
+        StandardOpenOption[] opcoes = modo == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel canal = FileChannel.open(arquivo, opcoes)) {
+            return canal.map(modo, 0, tamanhoSegmento);
+        }
+    }
+
+    private int varrerRegistrosValidos(ByteBuffer buffer) {
+        int posicao = 0;
+        while (posicao + CABECALHO_REGISTRO <= tamanhoSegmento) {
+            int tamanho = buffer.getInt(posicao);
+            if (tamanho <= 0 || posicao + CABECALHO_REGISTRO + tamanho > tamanhoSegmento
+                    || buffer.getInt(posicao + 4) != calcularCrc(buffer, posicao + CABECALHO_REGISTRO, tamanho)) {
+                break;
+            }
+            posicao += CABECALHO_REGISTRO + tamanho;
+        }
+        return posicao;
+    }
+
+    private int calcularCrc(ByteBuffer buffer, int inicio, int tamanho) {
+        crc.reset();
+        crc.update(buffer.slice(inicio, tamanho));
+        return (int) crc.getValue();
+    }
+
+    private Posicao lerCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CHECKPOINT);
+        if (checkpoint.read(buffer, 0) < TAMANHO_CHECKPOINT) {
+            return new Posicao(segmentos.isEmpty() ? 0 : segmentos.firstKey(), 0);
+        }
+        long segmento = buffer.getLong(0);
+        int posicao = buffer.getInt(8);
+        if (buffer.getInt(12) != calcularCrc(buffer, 0, 12)) {
+            log.warn("Checkpoint do spool de auditoria inválido; reenvio recomeça do primeiro segmento");
+            return new Posicao(segmentos.isEmpty() ? 0 : segmentos.firstKey(), 0);
+        }
+        return new Posicao(segmento, posicao);
+    }
+
+    private void gravarCheckpoint(Posicao posicao) {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CHECKPOINT);
+        buffer.putLong(0, posicao.segmento());
+        buffer.putInt(8, posicao.posicao());
+        buffer.putInt(12, calcularCrc(buffer, 0, 12));
+        try {
+            checkpoint.write(buffer, 0);
+        } catch (IOException e) {
+            log.warn("Falha ao gravar o checkpoint do spool de auditoria: {}", e.getMessage());
+        }
+    }
+
+    private static Long sequenciaDoSegmento(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        if (!nome.startsWith(PREFIXO_SEGMENTO) || !nome.endsWith(EXTENSAO_SEGMENTO)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(nome.substring(PREFIXO_SEGMENTO.length(), nome.length() - EXTENSAO_SEGMENTO.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public record Posicao(long segmento, int posicao) {
+    }
+
+    public record RegistroSpool(String chave, byte[] valor) {
+    }
+
+    public record LoteSpool(List<RegistroSpool> registros, Posicao proximaPosicao) {
+    }
+}
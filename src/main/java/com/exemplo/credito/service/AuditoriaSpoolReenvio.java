@@ -0,0 +1,58 @@
+package com.exemplo.credito.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tarefa em background que sincroniza o spool de auditoria com o disco e,
+ * quando o broker volta, reenvia os eventos pendentes ao tópico em ordem.
+ */
+@Component
+@Slf4j
+public class AuditoriaSpoolReenvio {
+
+    private final AuditoriaPublisher auditoriaPublisher;
+    private final AuditoriaSpool auditoriaSpool;
+    private final Duration intervalo;
+    private ScheduledExecutorService agendador;
+
+    public AuditoriaSpoolReenvio(AuditoriaPublisher auditoriaPublisher, AuditoriaSpool auditoriaSpool,
+                                 @Value("${auditoria.spool.intervalo-reenvio:PT5S}") Duration intervalo) {
+        this.auditoriaPublisher = auditoriaPublisher;
+        this.auditoriaSpool = auditoriaSpool;
+        this.intervalo = intervalo;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "auditoria-spool-reenvio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::executar, intervalo.toMillis(), intervalo.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void parar() {
+        agendador.shutdownNow();
+    }
+
+    private void executar() {
+        try {
+            auditoriaSpool.sincronizar();
+            auditoriaPublisher.reenviarPendentesDoSpool();
+        } catch (Exception e) {
+            log.error("Erro no reenvio do spool de auditoria: {}", e.getMessage());
+        }
+    }
+}
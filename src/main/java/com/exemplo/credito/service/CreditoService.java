@@ -1,25 +1,354 @@
 package com.exemplo.credito.service;
 
-import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.cache.CreditoCache;
+import com.exemplo.credito.concorrencia.CarregadorEmLote;
+import com.exemplo.credito.dto.ConsultaLoteRequest;
+import com.exemplo.credito.dto.ConsultaLoteResponse;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import com.exemplo.credito.dto.VersaoCreditos;
+import com.exemplo.credito.memoria.CreditosEmMemoria;
+import com.exemplo.credito.memoria.FiltroExistencia;
 import com.exemplo.credito.repository.CreditoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
-@RequiredArgsConstructor
+@Profile("!reativo")
 public class CreditoService {
 
     private final CreditoRepository repository;
+    private final CreditoCache cache;
+    private final CreditosEmMemoria memoria;
+    private final FiltroExistencia filtroExistencia;
+    private final MeterRegistry meterRegistry;
+    private final Counter naoEncontradosNfse;
+    private final Counter naoEncontradosCredito;
 
-    public List<Credito> buscarPorNfse(String numeroNfse) {
-        return repository.findByNumeroNfse(numeroNfse);
+    // Presentes com o agrupamento habilitado e fora do modo em memória
+    private CarregadorEmLote<List<CreditoDTO>> agrupadorNfse;
+    private CarregadorEmLote<Optional<CreditoDTO>> agrupadorCredito;
+
+    @Value("${credito.lote.tamanho-maximo:1000}")
+    private int tamanhoMaximoLote = 1000;
+
+    @Value("${credito.lote.tamanho-chunk:500}")
+    private int tamanhoChunk = 500;
+
+    @Value("${credito.paginacao.tamanho-maximo:1000}")
+    private int tamanhoMaximoPagina = 1000;
+
+    @Value("${credito.agrupamento.enabled:true}")
+    private boolean agrupamentoHabilitado = true;
+
+    @Value("${credito.agrupamento.janela:PT0.001S}")
+    private Duration janelaAgrupamento = Duration.ofMillis(1);
+
+    @Value("${credito.agrupamento.tamanho-maximo:100}")
+    private int tamanhoMaximoAgrupamento = 100;
+
+    /**
+     * @param memoria          presente só com credito.memoria.enabled=true; nesse caso as consultas não vão ao banco
+     * @param filtroExistencia presente só com credito.filtro-existencia.enabled=true
+     */
+    public CreditoService(CreditoRepository repository, CreditoCache cache, MeterRegistry meterRegistry,
+                          @Nullable CreditosEmMemoria memoria, @Nullable FiltroExistencia filtroExistencia) {
+        this.repository = repository;
+        this.cache = cache;
+        this.memoria = memoria;
+        this.filtroExistencia = filtroExistencia;
+        this.meterRegistry = meterRegistry;
+        this.naoEncontradosNfse = contadorNaoEncontrados("nfse", meterRegistry);
+        this.naoEncontradosCredito = contadorNaoEncontrados("numero-credito", meterRegistry);
+    }
+
+    /**
+     * Agrupa numa consulta IN as consultas individuais que perdem o cache enquanto outra está em andamento,
+     * reduzindo conexões do pool e idas ao banco nos picos. Coalescência da mesma chave continua no cache.
+     */
+    @PostConstruct
+    void iniciarAgrupamento() {
+        if (!agrupamentoHabilitado || memoria != null) {
+            return;
+        }
+        agrupadorNfse = new CarregadorEmLote<>(janelaAgrupamento, tamanhoMaximoAgrupamento,
+                repository::findByNumeroNfse, this::carregarPorNfses, List.of(), tamanhosLote("nfse"));
+        agrupadorCredito = new CarregadorEmLote<>(janelaAgrupamento, tamanhoMaximoAgrupamento,
+                repository::findByNumeroCredito, this::carregarPorNumerosCredito, Optional.empty(),
+                tamanhosLote("numero-credito"));
+    }
+
+    private DistributionSummary tamanhosLote(String consulta) {
+        return DistributionSummary.builder("creditos.agrupamento.lote")
+                .description("Chaves levadas ao banco por consulta agrupada")
+                .tag("consulta", consulta)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consultas sem resultado, por tipo de chave; o valor consultado nunca vira tag.
+     */
+    static Counter contadorNaoEncontrados(String consulta, MeterRegistry meterRegistry) {
+        return Counter.builder("creditos.nao.encontrados")
+                .description("Chaves consultadas sem créditos encontrados")
+                .tag("consulta", consulta)
+                .register(meterRegistry);
+    }
+
+    public List<CreditoDTO> buscarPorNfse(String numeroNfse) {
+        List<CreditoDTO> creditos = memoria != null
+                ? memoria.buscarPorNfse(numeroNfse)
+                : cache.buscarPorNfse(numeroNfse,
+                        agrupadorNfse != null ? agrupadorNfse::carregar : repository::findByNumeroNfse);
+        if (creditos.isEmpty()) {
+            naoEncontradosNfse.increment();
+        }
+        return creditos;
+    }
+
+    public CreditoDTO buscarPorNumeroCredito(String numeroCredito) {
+        Optional<CreditoDTO> credito = memoria != null
+                ? memoria.buscarPorNumeroCredito(numeroCredito)
+                : cache.buscarPorNumeroCredito(numeroCredito,
+                        agrupadorCredito != null ? agrupadorCredito::carregar : repository::findByNumeroCredito);
+        return credito.orElseThrow(() -> {
+            naoEncontradosCredito.increment();
+            return new EntityNotFoundException("Crédito não encontrado");
+        });
+    }
+
+    /**
+     * Com o filtro de existência, false quando com certeza não há crédito com esse número; o controller
+     * responde 404 sem consultar o banco nem lançar exceção. Sem o filtro, sempre true.
+     */
+    public boolean podeExistirCredito(String numeroCredito) {
+        if (filtroExistencia == null || filtroExistencia.podeExistirCredito(numeroCredito)) {
+            return true;
+        }
+        naoEncontradosCredito.increment();
+        return false;
+    }
+
+    /**
+     * Com o filtro de existência, false quando com certeza a NFS-e não tem créditos.
+     */
+    public boolean podeExistirNfse(String numeroNfse) {
+        if (filtroExistencia == null || filtroExistencia.podeExistirNfse(numeroNfse)) {
+            return true;
+        }
+        naoEncontradosNfse.increment();
+        return false;
+    }
+
+    /**
+     * Versão atual dos créditos da NFS-e, sem carregá-los (no modo em memória, sem ir ao banco).
+     */
+    public VersaoCreditos versaoPorNfse(String numeroNfse) {
+        return memoria != null
+                ? VersaoCreditos.de(memoria.buscarPorNfse(numeroNfse))
+                : repository.versaoPorNfse(numeroNfse);
+    }
+
+    public VersaoCreditos versaoPorNumeroCredito(String numeroCredito) {
+        return memoria != null
+                ? VersaoCreditos.de(memoria.buscarPorNumeroCredito(numeroCredito).map(List::of).orElse(List.of()))
+                : repository.versaoPorNumeroCredito(numeroCredito);
+    }
+
+    public PaginaCreditosResponse buscarPaginaPorNfse(String numeroNfse, String cursor, int tamanho) {
+        if (tamanho < 1 || tamanho > tamanhoMaximoPagina) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + tamanhoMaximoPagina);
+        }
+
+        // Busca um registro a mais para saber se existe próxima página
+        long depoisDoId = decodificarCursor(cursor);
+        List<CreditoDTO> creditos = memoria != null
+                ? memoria.buscarPaginaPorNfse(numeroNfse, depoisDoId, tamanho + 1)
+                : repository.findByNumeroNfseAndIdGreaterThanOrderByIdAsc(numeroNfse, depoisDoId, Limit.of(tamanho + 1));
+
+        String proximoCursor = null;
+        if (creditos.size() > tamanho) {
+            creditos = creditos.subList(0, tamanho);
+            proximoCursor = codificarCursor(creditos.get(tamanho - 1).id());
+        }
+
+        return PaginaCreditosResponse.builder()
+                .creditos(creditos)
+                .proximoCursor(proximoCursor)
+                .build();
+    }
+
+    /**
+     * Entrega os créditos da NFS-e um a um, conforme chegam do cursor JDBC, sem materializar a lista.
+     * As projeções não ficam no contexto de persistência, então a memória não cresce com o resultado.
+     */
+    @Transactional(readOnly = true)
+    public void percorrerPorNfse(String numeroNfse, Consumer<CreditoDTO> consumidor) {
+        if (memoria != null) {
+            memoria.percorrerPorNfse(numeroNfse, consumidor);
+            return;
+        }
+        try (Stream<CreditoDTO> creditos = repository.streamByNumeroNfseOrderByIdAsc(numeroNfse)) {
+            creditos.forEach(consumidor);
+        }
+    }
+
+    public ConsultaLoteResponse buscarEmLote(ConsultaLoteRequest requisicao) {
+        Set<String> numerosNfse = normalizar(requisicao.getNumerosNfse());
+        Set<String> numerosCredito = normalizar(requisicao.getNumerosCredito());
+
+        if (numerosNfse.isEmpty() && numerosCredito.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos um número de NFS-e ou de crédito");
+        }
+        if (numerosNfse.size() + numerosCredito.size() > tamanhoMaximoLote) {
+            throw new IllegalArgumentException(
+                    "O lote excede o limite de " + tamanhoMaximoLote + " números por consulta");
+        }
+
+        Map<String, List<CreditoDTO>> encontradosPorNfse;
+        Map<String, Optional<CreditoDTO>> encontradosPorNumero;
+        if (memoria != null) {
+            encontradosPorNfse = new HashMap<>();
+            for (String numeroNfse : numerosNfse) {
+                encontradosPorNfse.put(numeroNfse, memoria.buscarPorNfse(numeroNfse));
+            }
+            encontradosPorNumero = new HashMap<>();
+            for (String numeroCredito : numerosCredito) {
+                encontradosPorNumero.put(numeroCredito, memoria.buscarPorNumeroCredito(numeroCredito));
+            }
+        } else {
+            encontradosPorNfse = numerosNfse.isEmpty()
+                    ? Map.of() : cache.buscarTodosPorNfse(numerosNfse, this::carregarPorNfses);
+            encontradosPorNumero = numerosCredito.isEmpty()
+                    ? Map.of() : cache.buscarTodosPorNumeroCredito(numerosCredito, this::carregarPorNumerosCredito);
+        }
+
+        // Mantém a ordem em que as chaves foram informadas na requisição
+        Map<String, List<CreditoDTO>> creditosPorNfse = new LinkedHashMap<>();
+        List<String> nfsesNaoEncontradas = new ArrayList<>();
+        for (String numeroNfse : numerosNfse) {
+            List<CreditoDTO> creditos = encontradosPorNfse.getOrDefault(numeroNfse, List.of());
+            if (creditos.isEmpty()) {
+                nfsesNaoEncontradas.add(numeroNfse);
+            } else {
+                creditosPorNfse.put(numeroNfse, creditos);
+            }
+        }
+
+        Map<String, CreditoDTO> creditosPorNumero = new LinkedHashMap<>();
+        List<String> creditosNaoEncontrados = new ArrayList<>();
+        for (String numeroCredito : numerosCredito) {
+            Optional<CreditoDTO> credito = encontradosPorNumero.getOrDefault(numeroCredito, Optional.empty());
+            if (credito.isPresent()) {
+                creditosPorNumero.put(numeroCredito, credito.get());
+            } else {
+                creditosNaoEncontrados.add(numeroCredito);
+            }
+        }
+
+        naoEncontradosNfse.increment(nfsesNaoEncontradas.size());
+        naoEncontradosCredito.increment(creditosNaoEncontrados.size());
+
+        return ConsultaLoteResponse.builder()
+                .creditosPorNfse(creditosPorNfse)
+                .creditosPorNumero(creditosPorNumero)
+                .nfsesNaoEncontradas(nfsesNaoEncontradas)
+                .creditosNaoEncontrados(creditosNaoEncontrados)
+                .build();
+    }
+
+    private Map<String, List<CreditoDTO>> carregarPorNfses(Set<String> numerosNfse) {
+        Map<String, List<CreditoDTO>> resultado = new HashMap<>();
+        for (String numeroNfse : numerosNfse) {
+            resultado.put(numeroNfse, new ArrayList<>());
+        }
+        for (List<String> chunk : particionar(numerosNfse)) {
+            for (CreditoDTO credito : repository.findByNumeroNfseIn(chunk)) {
+                resultado.get(credito.numeroNfse()).add(credito);
+            }
+        }
+        return resultado;
+    }
+
+    private Map<String, Optional<CreditoDTO>> carregarPorNumerosCredito(Set<String> numerosCredito) {
+        Map<String, Optional<CreditoDTO>> resultado = new HashMap<>();
+        for (String numeroCredito : numerosCredito) {
+            resultado.put(numeroCredito, Optional.empty());
+        }
+        for (List<String> chunk : particionar(numerosCredito)) {
+            for (CreditoDTO credito : repository.findByNumeroCreditoIn(chunk)) {
+                resultado.computeIfPresent(credito.numeroCredito(),
+                        (chave, atual) -> atual.isPresent() ? atual : Optional.of(credito));
+            }
+        }
+        return resultado;
+    }
+
+    private List<List<String>> particionar(Collection<String> chaves) {
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> atual = new ArrayList<>(Math.min(tamanhoChunk, chaves.size()));
+        for (String chave : chaves) {
+            atual.add(chave);
+            if (atual.size() == tamanhoChunk) {
+                chunks.add(atual);
+                atual = new ArrayList<>(tamanhoChunk);
+            }
+        }
+        if (!atual.isEmpty()) {
+            chunks.add(atual);
+        }
+        return chunks;
+    }
+
+    private static String codificarCursor(Long ultimoId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ultimoId.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodificarCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido");
+        }
     }
 
-    public Credito buscarPorNumeroCredito(String numeroCredito) {
-        return repository.findByNumeroCredito(numeroCredito)
-                .orElseThrow(() -> new EntityNotFoundException("Crédito não encontrado"));
+    private static Set<String> normalizar(List<String> chaves) {
+        Set<String> normalizadas = new LinkedHashSet<>();
+        if (chaves != null) {
+            for (String chave : chaves) {
+                if (chave != null && !chave.isBlank()) {
+                    normalizadas.add(chave.trim());
+                }
+            }
+        }
+        return normalizadas;
     }
 }
@@ -0,0 +1,340 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.cache.CreditoCache;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.ImportacaoResponse;
+import com.exemplo.credito.exception.ImportacaoInterrompidaException;
+import com.exemplo.credito.memoria.CreditosEmMemoria;
+import com.exemplo.credito.memoria.FiltroExistencia;
+import com.exemplo.credito.memoria.ResumoCreditos;
+import com.exemplo.credito.replica.LeituraNoPrimario;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Importação em massa de créditos a partir de um arquivo CSV (com cabeçalho) ou NDJSON, com os
+ * mesmos nomes de campo do JSON da API.
+ *
+ * O arquivo é lido registro a registro e gravado em chunks de credito.importacao.tamanho-chunk,
+ * cada um na sua transação: só um chunk fica em memória. No PostgreSQL a gravação usa COPY; nos
+ * demais bancos, insert em batch. Se a importação parar no meio, os chunks anteriores continuam
+ * gravados e o mesmo arquivo pode ser reenviado a partir do último chunk confirmado.
+ */
+@Service
+@Profile("!reativo")
+@Slf4j
+public class ImportacaoCreditoService {
+
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    static final String COLUNAS = "numero_credito, numero_nfse, data_constituicao, valor_issqn, tipo_credito, "
+            + "simples_nacional, aliquota, valor_faturado, valor_deducao, base_calculo";
+    private static final String INSERT = "INSERT INTO credito (" + COLUNAS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String COPY = "COPY credito (" + COLUNAS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transacao;
+    private final ObjectReader leitorNdjson;
+    private final ObjectReader leitorCsv;
+    private final CreditoCache cache;
+    private final ResumoCreditos resumo;
+    private final CreditosEmMemoria memoria;
+    private final FiltroExistencia filtroExistencia;
+    private final Counter importados;
+    private final Counter rejeitados;
+
+    @Value("${credito.importacao.tamanho-chunk:5000}")
+    private int tamanhoChunk = 5000;
+
+    @Value("${credito.importacao.maximo-rejeitados-reportados:100}")
+    private int maximoRejeitadosReportados = 100;
+
+    public ImportacaoCreditoService(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                    CreditoCache cache, @Nullable ResumoCreditos resumo, @Nullable CreditosEmMemoria memoria,
+                                    @Nullable FiltroExistencia filtroExistencia, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.leitorNdjson = objectMapper.readerFor(CreditoDTO.class);
+        this.leitorCsv = CsvMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build()
+                .readerFor(CreditoDTO.class)
+                .with(CsvSchema.emptySchema().withHeader());
+        this.cache = cache;
+        this.resumo = resumo;
+        this.memoria = memoria;
+        this.filtroExistencia = filtroExistencia;
+        this.importados = contadorRegistros("importado", meterRegistry);
+        this.rejeitados = contadorRegistros("rejeitado", meterRegistry);
+    }
+
+    private static Counter contadorRegistros(String resultado, MeterRegistry meterRegistry) {
+        return Counter.builder("creditos.importacao.registros")
+                .description("Registros processados pela importação em massa")
+                .tag("resultado", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param aPartirDe quantidade de registros do início do arquivo a pular (ver
+     *                  {@link ImportacaoResponse#getRetomarAPartirDe()})
+     */
+    public ImportacaoResponse importar(InputStream entrada, MediaType tipo, long aPartirDe) {
+        if (aPartirDe < 0) {
+            throw new IllegalArgumentException("aPartirDe não pode ser negativo");
+        }
+        ObjectReader leitor;
+        if (TEXT_CSV.isCompatibleWith(tipo)) {
+            leitor = leitorCsv;
+        } else if (MediaType.APPLICATION_NDJSON.isCompatibleWith(tipo)) {
+            leitor = leitorNdjson;
+        } else {
+            throw new IllegalArgumentException("Formato não suportado na importação: " + tipo);
+        }
+
+        ImportacaoResponse resultado = ImportacaoResponse.builder()
+                .retomarAPartirDe(aPartirDe)
+                .rejeitados(new ArrayList<>())
+                .build();
+        List<CreditoDTO> chunk = new ArrayList<>(tamanhoChunk);
+        long registro = 0;
+        try (MappingIterator<CreditoDTO> registros = leitor.readValues(entrada)) {
+            while (registros.hasNextValue()) {
+                CreditoDTO credito = registros.nextValue();
+                registro++;
+                if (registro <= aPartirDe) {
+                    continue;
+                }
+                String motivo = validar(credito);
+                if (motivo != null) {
+                    rejeitar(resultado, registro, motivo);
+                } else {
+                    chunk.add(credito);
+                }
+                if (chunk.size() == tamanhoChunk) {
+                    confirmar(chunk, registro, resultado);
+                }
+            }
+            confirmar(chunk, registro, resultado);
+        } catch (IOException | RuntimeJsonMappingException e) {
+            throw interromper(resultado, registro + 1, true, e);
+        } catch (DataAccessException | UncheckedIOException e) {
+            throw interromper(resultado, registro, false, e);
+        } finally {
+            resultado.setRegistrosLidos(registro);
+            atualizarConsultas();
+        }
+
+        log.info("Importação concluída: {} registros lidos, {} importados, {} rejeitados",
+                registro, resultado.getRegistrosImportados(), resultado.getRegistrosRejeitados());
+        return resultado;
+    }
+
+    /**
+     * Leva os chunks confirmados às consultas sem esperar o próximo ciclo de atualização.
+     */
+    private void atualizarConsultas() {
+        // Resultados vazios ou listas de NFS-e em cache podem ter ficado desatualizados
+        cache.invalidar();
+        try {
+            // Lê do primário: uma réplica atrasada ainda não teria os chunks recém-confirmados
+            LeituraNoPrimario.executar(() -> {
+                // O filtro primeiro: até recebê-las, as chaves novas seriam respondidas como inexistentes
+                if (filtroExistencia != null) {
+                    filtroExistencia.atualizar();
+                }
+                if (resumo != null) {
+                    resumo.atualizar();
+                }
+                if (memoria != null) {
+                    memoria.atualizar();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Filtro de existência, resumo e modo em memória serão atualizados no próximo ciclo: {}",
+                    e.getMessage());
+        }
+    }
+
+    private void confirmar(List<CreditoDTO> chunk, long registro, ImportacaoResponse resultado) {
+        if (!chunk.isEmpty()) {
+            transacao.executeWithoutResult(status -> gravar(chunk));
+            importados.increment(chunk.size());
+            resultado.setRegistrosImportados(resultado.getRegistrosImportados() + chunk.size());
+            log.info("Importação: {} registros confirmados até o registro {}", resultado.getRegistrosImportados(),
+                    registro);
+            chunk.clear();
+        }
+        resultado.setRetomarAPartirDe(Math.max(resultado.getRetomarAPartirDe(), registro));
+    }
+
+    private void gravar(List<CreditoDTO> chunk) {
+        Connection conexao = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (conexao.isWrapperFor(PGConnection.class)) {
+                conexao.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY, new StringReader(linhasCsv(chunk)));
+                return;
+            }
+        } catch (SQLException e) {
+            throw jdbcTemplate.getExceptionTranslator().translate("COPY", COPY, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(conexao, dataSource);
+        }
+
+        jdbcTemplate.batchUpdate(INSERT, chunk, chunk.size(), (insert, credito) -> {
+            insert.setString(1, credito.numeroCredito());
+            insert.setString(2, credito.numeroNfse());
+            insert.setObject(3, credito.dataConstituicao());
+            insert.setBigDecimal(4, credito.valorIssqn());
+            insert.setString(5, credito.tipoCredito());
+            insert.setBoolean(6, credito.simplesNacional());
+            insert.setBigDecimal(7, credito.aliquota());
+            insert.setBigDecimal(8, credito.valorFaturado());
+            insert.setBigDecimal(9, credito.valorDeducao());
+            insert.setBigDecimal(10, credito.baseCalculo());
+        });
+    }
+
+    private void rejeitar(ImportacaoResponse resultado, long registro, String motivo) {
+        rejeitados.increment();
+        resultado.setRegistrosRejeitados(resultado.getRegistrosRejeitados() + 1);
+        if (resultado.getRejeitados().size() < maximoRejeitadosReportados) {
+            resultado.getRejeitados().add(new ImportacaoResponse.RegistroRejeitado(registro, motivo));
+        }
+    }
+
+    private static ImportacaoInterrompidaException interromper(ImportacaoResponse resultado, long registro,
+                                                               boolean erroNoArquivo, Exception causa) {
+        log.error("Importação interrompida no registro {}; retomar a partir de {}: {}", registro,
+                resultado.getRetomarAPartirDe(), causa.getMessage());
+        String mensagem = (erroNoArquivo ? "Registro " + registro + " inválido no arquivo"
+                : "Falha ao gravar os registros") + "; importação pode ser retomada a partir de "
+                + resultado.getRetomarAPartirDe();
+        return new ImportacaoInterrompidaException(mensagem, resultado, erroNoArquivo, causa);
+    }
+
+    /**
+     * Valida o registro contra as restrições da tabela credito.
+     *
+     * @return o motivo da rejeição, ou {@code null} se o registro é válido
+     */
+    static String validar(CreditoDTO credito) {
+        if (credito == null) {
+            return "registro vazio";
+        }
+        String motivo = validarTexto("numeroCredito", credito.numeroCredito());
+        if (motivo == null) {
+            motivo = validarTexto("numeroNfse", credito.numeroNfse());
+        }
+        if (motivo == null) {
+            motivo = validarTexto("tipoCredito", credito.tipoCredito());
+        }
+        if (motivo == null && credito.dataConstituicao() == null) {
+            motivo = "dataConstituicao é obrigatória";
+        }
+        if (motivo == null) {
+            motivo = validarDecimal("valorIssqn", credito.valorIssqn(), 15);
+        }
+        if (motivo == null) {
+            motivo = validarDecimal("aliquota", credito.aliquota(), 5);
+        }
+        if (motivo == null) {
+            motivo = validarDecimal("valorFaturado", credito.valorFaturado(), 15);
+        }
+        if (motivo == null) {
+            motivo = validarDecimal("valorDeducao", credito.valorDeducao(), 15);
+        }
+        if (motivo == null) {
+            motivo = validarDecimal("baseCalculo", credito.baseCalculo(), 15);
+        }
+        return motivo;
+    }
+
+    private static String validarTexto(String campo, String valor) {
+        if (valor == null || valor.isBlank()) {
+            return campo + " é obrigatório";
+        }
+        if (valor.length() > 50) {
+            return campo + " excede 50 caracteres";
+        }
+        return null;
+    }
+
+    /** NUMERIC(precisao, 2): até duas casas decimais e precisao - 2 dígitos inteiros. */
+    private static String validarDecimal(String campo, BigDecimal valor, int precisao) {
+        if (valor == null) {
+            return campo + " é obrigatório";
+        }
+        if (valor.scale() > 2 && valor.stripTrailingZeros().scale() > 2) {
+            return campo + " tem mais de duas casas decimais";
+        }
+        if (valor.precision() - valor.scale() > precisao - 2) {
+            return campo + " excede NUMERIC(" + precisao + ", 2)";
+        }
+        return null;
+    }
+
+    /**
+     * O chunk no formato CSV do COPY, na ordem de {@link #COLUNAS}.
+     */
+    static String linhasCsv(List<CreditoDTO> chunk) {
+        StringBuilder csv = new StringBuilder(chunk.size() * 128);
+        for (CreditoDTO credito : chunk) {
+            campoCsv(csv, credito.numeroCredito()).append(',');
+            campoCsv(csv, credito.numeroNfse()).append(',');
+            csv.append(credito.dataConstituicao()).append(',');
+            csv.append(credito.valorIssqn().toPlainString()).append(',');
+            campoCsv(csv, credito.tipoCredito()).append(',');
+            csv.append(credito.simplesNacional()).append(',');
+            csv.append(credito.aliquota().toPlainString()).append(',');
+            csv.append(credito.valorFaturado().toPlainString()).append(',');
+            csv.append(credito.valorDeducao().toPlainString()).append(',');
+            csv.append(credito.baseCalculo().toPlainString()).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder campoCsv(StringBuilder csv, String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return csv.append(valor);
+        }
+        return csv.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,16 @@
+package com.exemplo.credito.service;
+
+/**
+ * O que fazer com um evento de auditoria quando a fila de publicação está cheia.
+ */
+public enum PoliticaOverflow {
+
+    /** Remove o evento mais antigo da fila para abrir espaço ao novo. */
+    DESCARTAR_MAIS_ANTIGO,
+
+    /** Descarta o evento que está chegando. */
+    DESCARTAR_MAIS_NOVO,
+
+    /** Aguarda espaço na fila até o timeout configurado e então descarta o evento novo. */
+    BLOQUEAR
+}
@@ -9,5 +9,11 @@ CREATE TABLE credito (
     aliquota NUMERIC(5, 2) NOT NULL,
     valor_faturado NUMERIC(15, 2) NOT NULL,
     valor_deducao NUMERIC(15, 2) NOT NULL,
-    base_calculo NUMERIC(15, 2) NOT NULL
+    base_calculo NUMERIC(15, 2) NOT NULL,
+    versao BIGINT NOT NULL DEFAULT 0,
+    atualizado_em TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
+
+-- Cobrem a consulta de versão dos GETs condicionais (ETag/Last-Modified) sem ler a tabela
+CREATE INDEX idx_credito_nfse_versao ON credito (numero_nfse, id, versao, atualizado_em);
+CREATE INDEX idx_credito_numero_versao ON credito (numero_credito, id, versao, atualizado_em);
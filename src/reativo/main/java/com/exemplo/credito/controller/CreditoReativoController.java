@@ -0,0 +1,39 @@
+package com.exemplo.credito.controller;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.interceptor.AuditoriaInterceptor;
+import com.exemplo.credito.service.CreditoReativoService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Mesmas rotas e mesmo JSON do {@link CreditoController}, em WebFlux (perfil "reativo").
+ */
+@RestController
+@RequestMapping("/api/creditos")
+@CrossOrigin(origins = {"http://localhost:4200", "http://127.0.0.1:4200", "http://frontend:4200"})
+@Profile("reativo")
+@RequiredArgsConstructor
+public class CreditoReativoController {
+
+    private final CreditoReativoService service;
+
+    @GetMapping("/{numeroNfse}")
+    public Mono<List<CreditoDTO>> getByNumeroNfse(@PathVariable String numeroNfse, ServerWebExchange exchange) {
+        return service.buscarPorNfse(numeroNfse)
+                .doOnNext(creditos -> exchange.getAttributes()
+                        .put(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE, creditos.size()));
+    }
+
+    @GetMapping("/credito/{numeroCredito}")
+    public Mono<CreditoDTO> getByNumeroCredito(@PathVariable String numeroCredito, ServerWebExchange exchange) {
+        return service.buscarPorNumeroCredito(numeroCredito)
+                .doOnNext(credito -> exchange.getAttributes()
+                        .put(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE, 1));
+    }
+}
@@ -0,0 +1,52 @@
+package com.exemplo.credito.exception;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mesmo corpo de erro do {@link GlobalExceptionHandler}, para a variante WebFlux (perfil "reativo").
+ */
+@RestControllerAdvice
+@Profile("reativo")
+public class ReativoExceptionHandler {
+
+    @ExceptionHandler(EntityNotFoundException.class)
+    public ResponseEntity<Map<String, Object>> handleEntityNotFound(
+            EntityNotFoundException ex, ServerHttpRequest request) {
+        return resposta(HttpStatus.NOT_FOUND, "Not Found", ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> handleIllegalArgument(
+            IllegalArgumentException ex, ServerHttpRequest request) {
+        return resposta(HttpStatus.BAD_REQUEST, "Bad Request", ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Map<String, Object>> handleGenericException(
+            Exception ex, ServerHttpRequest request) {
+        return resposta(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error",
+                "Ocorreu um erro interno no servidor", request);
+    }
+
+    private static ResponseEntity<Map<String, Object>> resposta(HttpStatus status, String erro, String mensagem,
+                                                                ServerHttpRequest request) {
+        Map<String, Object> errorDetails = new HashMap<>();
+        errorDetails.put("timestamp", LocalDateTime.now());
+        errorDetails.put("status", status.value());
+        errorDetails.put("error", erro);
+        errorDetails.put("message", mensagem);
+        errorDetails.put("path", request.getPath().value());
+
+        return new ResponseEntity<>(errorDetails, status);
+    }
+}
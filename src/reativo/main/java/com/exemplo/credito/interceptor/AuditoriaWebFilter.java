@@ -0,0 +1,153 @@
+package com.exemplo.credito.interceptor;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.GeradorIdEvento;
+import com.exemplo.credito.service.AuditoriaFila;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auditoria da variante reativa (perfil "reativo"): faz o papel do {@link AuditoriaInterceptor} e do
+ * {@link ContagemBytesFilter}, gerando o mesmo {@link ConsultaAuditoriaEvent} quando a resposta termina.
+ *
+ * Só enfileira o evento na {@link AuditoriaFila}; o envio ao Kafka continua na thread da fila, fora
+ * do event loop.
+ */
+@Component
+@Profile("reativo")
+@RequiredArgsConstructor
+@Slf4j
+public class AuditoriaWebFilter implements WebFilter {
+
+    private static final ZoneId FUSO = ZoneId.systemDefault();
+
+    private final AuditoriaFila auditoriaFila;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String uri = exchange.getRequest().getPath().value();
+        if (!uri.startsWith("/api/creditos")) {
+            return chain.filter(exchange);
+        }
+
+        long inicio = System.nanoTime();
+        RespostaContadora resposta = new RespostaContadora(exchange.getResponse());
+        ServerWebExchange contado = exchange.mutate().response(resposta).build();
+        return chain.filter(contado)
+                .doFinally(sinal -> auditar(contado, uri, inicio, resposta.bytesEscritos));
+    }
+
+    private void auditar(ServerWebExchange exchange, String uri, long inicio, long bytesEscritos) {
+        try {
+            ServerHttpRequest request = exchange.getRequest();
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            int statusResposta = status != null ? status.value() : 200;
+            Instant agora = Instant.now();
+
+            ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+            evento.setId(GeradorIdEvento.novoId(agora.toEpochMilli()));
+            evento.setEndpoint(uri);
+            Object rota = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            evento.setRota(rota != null ? rota.toString() : null);
+            evento.setParametro(extrairParametro(exchange, uri));
+            evento.setMetodo(request.getMethod().name());
+            evento.setStatusResposta(statusResposta);
+            evento.setQuantidadeResultados(extrairQuantidadeResultados(exchange, statusResposta));
+            evento.setTimestamp(LocalDateTime.ofInstant(agora, FUSO));
+            evento.setUserAgent(request.getHeaders().getFirst(HttpHeaders.USER_AGENT));
+            evento.setIpOrigemString(obterIpReal(request));
+            evento.setTempoProcessamento(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            evento.setTamanhoResposta(bytesEscritos);
+
+            auditoriaFila.enfileirar(evento);
+
+        } catch (Exception e) {
+            log.error("Erro ao processar auditoria: {}", e.getMessage());
+        }
+    }
+
+    private String extrairParametro(ServerWebExchange exchange, String uri) {
+        Object parametroInformado = exchange.getAttribute(AuditoriaInterceptor.PARAMETRO_ATTRIBUTE);
+        if (parametroInformado != null) {
+            return parametroInformado.toString();
+        }
+
+        Object variaveis = exchange.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variaveis instanceof Map<?, ?> mapa && mapa.size() == 1) {
+            return String.valueOf(mapa.values().iterator().next());
+        }
+        return AuditoriaInterceptor.ultimoSegmento(uri);
+    }
+
+    private Integer extrairQuantidadeResultados(ServerWebExchange exchange, int statusResposta) {
+        Object quantidade = exchange.getAttribute(AuditoriaInterceptor.QUANTIDADE_RESULTADOS_ATTRIBUTE);
+        if (quantidade instanceof Integer valor) {
+            return valor;
+        }
+        return statusResposta >= 400 ? 0 : null;
+    }
+
+    private String obterIpReal(ServerHttpRequest request) {
+        String ip = request.getHeaders().getFirst("X-Forwarded-For");
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeaders().getFirst("X-Real-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            InetSocketAddress remoto = request.getRemoteAddress();
+            ip = remoto != null && remoto.getAddress() != null ? remoto.getAddress().getHostAddress() : null;
+        }
+        return ip;
+    }
+
+    /**
+     * Conta os bytes de cada buffer a caminho do cliente, sem reter nem copiar o corpo.
+     */
+    private static final class RespostaContadora extends ServerHttpResponseDecorator {
+
+        private long bytesEscritos;
+
+        private RespostaContadora(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // Mantém o Mono como Mono: o Netty escreve corpo de um único buffer sem o caminho de streaming
+            if (body instanceof Mono<? extends DataBuffer> unico) {
+                return super.writeWith(unico.doOnNext(this::contar));
+            }
+            return super.writeWith(Flux.from(body).doOnNext(this::contar));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(parte -> Flux.from(parte).doOnNext(this::contar)));
+        }
+
+        private void contar(DataBuffer buffer) {
+            bytesEscritos += buffer.readableByteCount();
+        }
+    }
+}
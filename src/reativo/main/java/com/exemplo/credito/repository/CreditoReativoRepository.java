@@ -0,0 +1,68 @@
+package com.exemplo.credito.repository;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+/**
+ * Consultas do {@link CreditoRepository} sobre R2DBC, usadas pela variante reativa (perfil "reativo").
+ *
+ * As linhas são mapeadas direto para {@link CreditoDTO}, sem entidade nem metadados de mapeamento,
+ * com as mesmas colunas da projeção JPA.
+ */
+@Repository
+@Profile("reativo")
+@RequiredArgsConstructor
+public class CreditoReativoRepository {
+
+    private static final String SELECT = "SELECT id, numero_credito, numero_nfse, data_constituicao, valor_issqn, "
+            + "tipo_credito, simples_nacional, aliquota, valor_faturado, valor_deducao, base_calculo, versao, atualizado_em "
+            + "FROM credito";
+
+    private final DatabaseClient databaseClient;
+
+    public Flux<CreditoDTO> findByNumeroNfse(String numeroNfse) {
+        return databaseClient.sql(SELECT + " WHERE numero_nfse = :numeroNfse")
+                .bind("numeroNfse", numeroNfse)
+                .map(CreditoReativoRepository::mapear)
+                .all();
+    }
+
+    // one(): mais de uma linha é erro, como no Optional do repositório JPA
+    public Mono<CreditoDTO> findByNumeroCredito(String numeroCredito) {
+        return databaseClient.sql(SELECT + " WHERE numero_credito = :numeroCredito")
+                .bind("numeroCredito", numeroCredito)
+                .map(CreditoReativoRepository::mapear)
+                .one();
+    }
+
+    private static CreditoDTO mapear(Readable linha) {
+        // id é SERIAL (int4): lido como Number, sem depender das conversões de cada driver
+        Number id = linha.get("id", Number.class);
+        Number versao = linha.get("versao", Number.class);
+        OffsetDateTime atualizadoEm = linha.get("atualizado_em", OffsetDateTime.class);
+        return new CreditoDTO(
+                id != null ? id.longValue() : null,
+                linha.get("numero_credito", String.class),
+                linha.get("numero_nfse", String.class),
+                linha.get("data_constituicao", LocalDate.class),
+                linha.get("valor_issqn", BigDecimal.class),
+                linha.get("tipo_credito", String.class),
+                Boolean.TRUE.equals(linha.get("simples_nacional", Boolean.class)),
+                linha.get("aliquota", BigDecimal.class),
+                linha.get("valor_faturado", BigDecimal.class),
+                linha.get("valor_deducao", BigDecimal.class),
+                linha.get("base_calculo", BigDecimal.class),
+                versao != null ? versao.longValue() : 0,
+                atualizadoEm != null ? atualizadoEm.toInstant() : null);
+    }
+}
@@ -0,0 +1,60 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.cache.CreditoCache;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.repository.CreditoReativoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Equivalente não bloqueante do {@link CreditoService} para as consultas por NFS-e e por número
+ * do crédito, usando o mesmo {@link CreditoCache}.
+ */
+@Service
+@Profile("reativo")
+public class CreditoReativoService {
+
+    private final CreditoReativoRepository repository;
+    private final CreditoCache cache;
+    private final Counter naoEncontradosNfse;
+    private final Counter naoEncontradosCredito;
+
+    public CreditoReativoService(CreditoReativoRepository repository, CreditoCache cache,
+                                 MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.cache = cache;
+        this.naoEncontradosNfse = CreditoService.contadorNaoEncontrados("nfse", meterRegistry);
+        this.naoEncontradosCredito = CreditoService.contadorNaoEncontrados("numero-credito", meterRegistry);
+    }
+
+    public Mono<List<CreditoDTO>> buscarPorNfse(String numeroNfse) {
+        // suppressCancel: o future pode estar compartilhado no cache com outras requisições
+        return Mono.fromFuture(() -> cache.buscarPorNfseAssincrono(numeroNfse,
+                        chave -> repository.findByNumeroNfse(chave).collectList().toFuture()), true)
+                .doOnNext(creditos -> {
+                    if (creditos.isEmpty()) {
+                        naoEncontradosNfse.increment();
+                    }
+                });
+    }
+
+    public Mono<CreditoDTO> buscarPorNumeroCredito(String numeroCredito) {
+        return Mono.fromFuture(() -> cache.buscarPorNumeroCreditoAssincrono(numeroCredito,
+                        chave -> repository.findByNumeroCredito(chave)
+                                .map(Optional::of)
+                                .defaultIfEmpty(Optional.empty())
+                                .toFuture()), true)
+                .flatMap(Mono::justOrEmpty)
+                .switchIfEmpty(Mono.error(() -> {
+                    naoEncontradosCredito.increment();
+                    return new EntityNotFoundException("Crédito não encontrado");
+                }));
+    }
+}
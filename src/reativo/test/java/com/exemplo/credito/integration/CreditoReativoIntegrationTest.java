@@ -0,0 +1,134 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.cache.CreditoCache;
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.service.AuditoriaFila;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Variante reativa (perfil "reativo") sobre R2DBC com H2, usando o schema.sql e o data.sql da aplicação.
+ */
+@SpringBootTest(properties = {
+        // O tipo da aplicação precisa ser conhecido antes de os perfis serem lidos
+        "spring.main.web-application-type=reactive",
+        "spring.r2dbc.url=r2dbc:h2:mem:///credito-reativo;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.sql.init.mode=always"})
+@ActiveProfiles({"test", "reativo"})
+@Import(TestConfig.class)
+@AutoConfigureWebTestClient
+class CreditoReativoIntegrationTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private AuditoriaFila auditoriaFila;
+
+    @Autowired
+    private CreditoCache creditoCache;
+
+    @BeforeEach
+    void setUp() {
+        creditoCache.invalidar();
+        clearInvocations(auditoriaFila);
+    }
+
+    @Test
+    void deveRetornarListaDeCreditosPorNfse() {
+        webTestClient.get().uri("/api/creditos/7891011")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].numeroCredito").isEqualTo("123456")
+                .jsonPath("$[0].numeroNfse").isEqualTo("7891011")
+                .jsonPath("$[0].dataConstituicao").isEqualTo("2024-02-25")
+                .jsonPath("$[0].valorIssqn").isEqualTo(1500.75)
+                .jsonPath("$[0].simplesNacional").isEqualTo(true)
+                .jsonPath("$[1].numeroCredito").isEqualTo("789012");
+    }
+
+    @Test
+    void deveRetornarListaVaziaQuandoNfseNaoExiste() {
+        webTestClient.get().uri("/api/creditos/NFSE_INEXISTENTE")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(0);
+    }
+
+    @Test
+    void deveRetornarCreditoEspecifico() {
+        webTestClient.get().uri("/api/creditos/credito/654321")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.numeroCredito").isEqualTo("654321")
+                .jsonPath("$.numeroNfse").isEqualTo("1122334")
+                .jsonPath("$.tipoCredito").isEqualTo("Outros");
+    }
+
+    @Test
+    void deveRetornar404QuandoCreditoNaoExiste() {
+        webTestClient.get().uri("/api/creditos/credito/999999")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.error").isEqualTo("Not Found")
+                .jsonPath("$.message").isEqualTo("Crédito não encontrado")
+                .jsonPath("$.path").isEqualTo("/api/creditos/credito/999999");
+    }
+
+    @Test
+    void deveAuditarConsultaComQuantidadeETamanhoDaResposta() {
+        byte[] corpo = webTestClient.get().uri("/api/creditos/7891011")
+                .header("User-Agent", "teste-reativo")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().returnResult().getResponseBody();
+
+        ArgumentCaptor<ConsultaAuditoriaEvent> captor = ArgumentCaptor.forClass(ConsultaAuditoriaEvent.class);
+        verify(auditoriaFila, timeout(1000)).enfileirar(captor.capture());
+        ConsultaAuditoriaEvent evento = captor.getValue();
+        assertEquals("/api/creditos/7891011", evento.getEndpoint());
+        assertEquals("7891011", evento.getParametro());
+        assertEquals("GET", evento.getMetodo());
+        assertEquals(200, evento.getStatusResposta());
+        assertEquals(2, evento.getQuantidadeResultados());
+        assertEquals("teste-reativo", evento.getUserAgent());
+        assertEquals(corpo.length, evento.getTamanhoResposta());
+        assertNotNull(evento.getTempoProcessamento());
+    }
+
+    @Test
+    void deveAuditarCreditoNaoEncontradoSemResultados() {
+        webTestClient.get().uri("/api/creditos/credito/999999")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        ArgumentCaptor<ConsultaAuditoriaEvent> captor = ArgumentCaptor.forClass(ConsultaAuditoriaEvent.class);
+        verify(auditoriaFila, timeout(1000)).enfileirar(captor.capture());
+        assertEquals(404, captor.getValue().getStatusResposta());
+        assertEquals(0, captor.getValue().getQuantidadeResultados());
+        assertEquals("999999", captor.getValue().getParametro());
+    }
+}
@@ -0,0 +1,59 @@
+package com.exemplo.credito.benchmark;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.interceptor.AuditoriaInterceptor;
+import com.exemplo.credito.interceptor.ContagemBytesFilter;
+import com.exemplo.credito.service.AuditoriaFila;
+import com.exemplo.credito.service.AuditoriaPublisher;
+import com.exemplo.credito.service.PoliticaOverflow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Custo por requisição do {@link AuditoriaInterceptor}: montagem do evento e enfileiramento.
+ * A fila não é drenada; com DESCARTAR_MAIS_ANTIGO ela apenas gira sem bloquear.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class AuditoriaInterceptorBenchmark {
+
+    private AuditoriaInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private ContagemBytesFilter.RespostaContadora response;
+
+    @Setup
+    public void setUp() {
+        // Sem spool: a fila gira descartando o mais antigo, como com o spool cheio, e um mock do
+        // Mockito guardaria cada chamada
+        AuditoriaPublisher semSpool = new AuditoriaPublisher(null, null, null, null, new SimpleMeterRegistry()) {
+            @Override
+            public boolean arquivar(ConsultaAuditoriaEvent evento) {
+                return false;
+            }
+        };
+        AuditoriaFila fila = new AuditoriaFila(semSpool, 8192,
+                PoliticaOverflow.DESCARTAR_MAIS_ANTIGO, Duration.ZERO, 256, null, new SimpleMeterRegistry());
+        interceptor = new AuditoriaInterceptor(fila);
+
+        request = new MockHttpServletRequest("GET", "/api/creditos/credito/123456");
+        request.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64)");
+        request.setRemoteAddr("192.168.1.100");
+        response = new ContagemBytesFilter.RespostaContadora(new MockHttpServletResponse());
+    }
+
+    @Benchmark
+    public void afterCompletion() {
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+    }
+}
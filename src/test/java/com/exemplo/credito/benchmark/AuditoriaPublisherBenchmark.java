@@ -0,0 +1,103 @@
+package com.exemplo.credito.benchmark;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.ConsultaAuditoriaEventBinarioSerializer;
+import com.exemplo.credito.event.ConsultaAuditoriaEventJsonSerializer;
+import com.exemplo.credito.service.AuditoriaPublisher;
+import com.exemplo.credito.service.AuditoriaSpool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publicação de um evento pelo {@link AuditoriaPublisher} com um {@link MockProducer} que
+ * completa os envios na hora: mede KafkaTemplate, serializer configurado e callbacks, sem rede.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+// O caminho JSON (KafkaTemplate + Jackson) leva mais que 5 s para estabilizar no JIT em alguns forks
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class AuditoriaPublisherBenchmark {
+
+    // O MockProducer guarda o histórico de envios; é limpo periodicamente para não crescer
+    private static final int ENVIOS_ENTRE_LIMPEZAS = 4096;
+
+    @Param({"json", "binario"})
+    public String formato;
+
+    private MockProducer<String, ConsultaAuditoriaEvent> producer;
+    private AuditoriaPublisher publisher;
+    private ConsultaAuditoriaEvent evento;
+    private int envios;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Serializer<ConsultaAuditoriaEvent> serializer = "binario".equals(formato)
+                ? new ConsultaAuditoriaEventBinarioSerializer()
+                : new ConsultaAuditoriaEventJsonSerializer(objectMapper);
+        producer = new ProducerReutilizavel(serializer);
+        KafkaTemplate<String, ConsultaAuditoriaEvent> kafkaTemplate =
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+
+        AuditoriaSpool spool = new AuditoriaSpool(false, Path.of("target", "spool-benchmark"),
+                DataSize.ofMegabytes(1), 1, new SimpleMeterRegistry());
+        publisher = new AuditoriaPublisher(kafkaTemplate, null, objectMapper, spool, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(publisher, "topicAuditoria", "consultas-auditoria");
+
+        evento = ConsultaAuditoriaEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .endpoint("/api/creditos/credito/123456")
+                .parametro("123456")
+                .metodo("GET")
+                .statusResposta(200)
+                .quantidadeResultados(1)
+                .timestamp(LocalDateTime.now())
+                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
+                .ipOrigemString("192.168.1.100")
+                .tempoProcessamento(145L)
+                .tamanhoResposta(312L)
+                .build();
+    }
+
+    /**
+     * O KafkaTemplate fecha o producer após cada envio fora de transação; a fábrica real devolve
+     * um wrapper que ignora o close, e este producer faz o mesmo.
+     */
+    private static final class ProducerReutilizavel extends MockProducer<String, ConsultaAuditoriaEvent> {
+
+        private ProducerReutilizavel(Serializer<ConsultaAuditoriaEvent> serializer) {
+            super(true, new StringSerializer(), serializer);
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+
+    @Benchmark
+    public void publicarEventoAuditoria() {
+        publisher.publicarEventoAuditoria(evento);
+        if (++envios == ENVIOS_ENTRE_LIMPEZAS) {
+            producer.clear();
+            envios = 0;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.exemplo.credito.benchmark;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.ConsultaAuditoriaEventBinarioSerializer;
+import com.exemplo.credito.event.ConsultaAuditoriaEventJsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara ns/evento e bytes/evento entre o formato JSON original e a codificação binária
+ * do evento de auditoria. Os bytes por evento são impressos no setup de cada fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class AuditoriaSerializacaoBenchmark {
+
+    private ConsultaAuditoriaEvent evento;
+    private ConsultaAuditoriaEventJsonSerializer json;
+    private ConsultaAuditoriaEventBinarioSerializer binario;
+
+    @Setup
+    public void setUp() {
+        evento = ConsultaAuditoriaEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .endpoint("/api/creditos/credito/123456")
+                .parametro("123456")
+                .metodo("GET")
+                .statusResposta(200)
+                .quantidadeResultados(1)
+                .timestamp(LocalDateTime.now())
+                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
+                .ipOrigemString("192.168.1.100")
+                .tempoProcessamento(145L)
+                .build();
+        json = new ConsultaAuditoriaEventJsonSerializer(new ObjectMapper().registerModule(new JavaTimeModule()));
+        binario = new ConsultaAuditoriaEventBinarioSerializer();
+
+        System.out.printf("%nBytes por evento: json=%d binario=%d%n",
+                json.serialize("t", evento).length, binario.serialize("t", evento).length);
+    }
+
+    @Benchmark
+    public byte[] json() {
+        return json.serialize("consultas-auditoria", evento);
+    }
+
+    @Benchmark
+    public byte[] binario() {
+        return binario.serialize("consultas-auditoria", evento);
+    }
+}
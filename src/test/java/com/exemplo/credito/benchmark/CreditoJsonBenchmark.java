@@ -0,0 +1,80 @@
+package com.exemplo.credito.benchmark;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renderização JSON das respostas do CreditoController serializando direto com o ObjectMapper
+ * (sem MockMvc): lista, página com cursor e o caminho de streaming com JsonGenerator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class CreditoJsonBenchmark {
+
+    @Param({"1", "100"})
+    public int quantidade;
+
+    private ObjectMapper objectMapper;
+    private List<CreditoDTO> creditos;
+    private PaginaCreditosResponse pagina;
+    private ByteArrayOutputStream saida;
+
+    @Setup
+    public void setUp() {
+        // Mesma configuração do ObjectMapper da aplicação (Spring Boot + write-dates-as-timestamps=false)
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        creditos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            creditos.add(new CreditoDTO((long) i, "C" + i, "NFSE-BENCH", LocalDate.of(2024, 2, 25),
+                    new BigDecimal("50.00"), "ISSQN", false, new BigDecimal("5.00"),
+                    new BigDecimal("1000.00"), new BigDecimal("0.00"), new BigDecimal("1000.00"), 0, null));
+        }
+        pagina = PaginaCreditosResponse.builder()
+                .creditos(creditos)
+                .proximoCursor("MTAw")
+                .build();
+        saida = new ByteArrayOutputStream(64 * 1024);
+    }
+
+    @Benchmark
+    public byte[] lista() throws IOException {
+        return objectMapper.writeValueAsBytes(creditos);
+    }
+
+    @Benchmark
+    public byte[] pagina() throws IOException {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+
+    @Benchmark
+    public int stream() throws IOException {
+        saida.reset();
+        try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(saida)) {
+            gerador.writeStartArray();
+            for (CreditoDTO credito : creditos) {
+                gerador.writeObject(credito);
+            }
+            gerador.writeEndArray();
+        }
+        return saida.size();
+    }
+}
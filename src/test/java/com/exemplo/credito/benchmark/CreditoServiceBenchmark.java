@@ -0,0 +1,89 @@
+package com.exemplo.credito.benchmark;
+
+import com.exemplo.credito.CreditoApiApplication;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.repository.CreditoRepository;
+import com.exemplo.credito.service.CreditoService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas do {@link CreditoService} contra o H2 do perfil de teste, com e sem o cache
+ * Caffeine, para medir o custo do caminho completo (cache, repositório e projeção DTO).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+// Hibernate + H2 levam mais tempo para estabilizar no JIT que os demais benchmarks
+@Warmup(iterations = 8, time = 5)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class CreditoServiceBenchmark {
+
+    private static final String NFSE = "NFSE-BENCH";
+    private static final int QUANTIDADE_CREDITOS = 20;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private ConfigurableApplicationContext contexto;
+    private CreditoService service;
+
+    @Setup
+    public void setUp() {
+        // Argumentos de linha de comando, pois sobrepõem o application.properties (properties() não)
+        contexto = new SpringApplicationBuilder(CreditoApiApplication.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .run("--credito.cache.enabled=" + cache, "--spring.jpa.show-sql=false", "--logging.level.root=WARN",
+                        "--logging.level.com.exemplo.credito=WARN");
+        service = contexto.getBean(CreditoService.class);
+
+        List<Credito> creditos = new ArrayList<>(QUANTIDADE_CREDITOS);
+        for (int i = 0; i < QUANTIDADE_CREDITOS; i++) {
+            Credito credito = new Credito();
+            credito.setNumeroCredito("B" + i);
+            credito.setNumeroNfse(NFSE);
+            credito.setDataConstituicao(LocalDate.of(2024, 2, 25));
+            credito.setTipoCredito("ISSQN");
+            credito.setValorFaturado(new BigDecimal("1000.00"));
+            credito.setBaseCalculo(new BigDecimal("1000.00"));
+            credito.setAliquota(new BigDecimal("5.00"));
+            credito.setValorIssqn(new BigDecimal("50.00"));
+            credito.setValorDeducao(new BigDecimal("0.00"));
+            credito.setSimplesNacional(false);
+            creditos.add(credito);
+        }
+        contexto.getBean(CreditoRepository.class).saveAll(creditos);
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<CreditoDTO> buscarPorNfse() {
+        return service.buscarPorNfse(NFSE);
+    }
+
+    @Benchmark
+    public CreditoDTO buscarPorNumeroCredito() {
+        return service.buscarPorNumeroCredito("B7");
+    }
+
+    @Benchmark
+    public PaginaCreditosResponse buscarPaginaPorNfse() {
+        return service.buscarPaginaPorNfse(NFSE, null, 10);
+    }
+}
@@ -0,0 +1,60 @@
+package com.exemplo.credito.benchmark;
+
+import com.exemplo.credito.interceptor.LimiteRequisicoesFilter;
+import com.exemplo.credito.service.AuditoriaFila;
+import com.exemplo.credito.service.AuditoriaPublisher;
+import com.exemplo.credito.service.PoliticaOverflow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Custo por requisição admitida do {@link LimiteRequisicoesFilter}: busca do cliente no cache e CAS
+ * do bucket. Os limites são altos o bastante para que nenhuma requisição seja recusada.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class LimiteRequisicoesFilterBenchmark {
+
+    private static final FilterChain VAZIA = (request, response) -> { };
+
+    private LimiteRequisicoesFilter filtro;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private String atributoFiltrado;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuditoriaFila fila = new AuditoriaFila(mock(AuditoriaPublisher.class), 1024,
+                PoliticaOverflow.DESCARTAR_MAIS_ANTIGO, Duration.ZERO, 256, null, meterRegistry);
+        filtro = new LimiteRequisicoesFilter(true, 1_000_000_000.0, 1_000_000, 1_000, "X-API-Key", List.of(),
+                100_000, Duration.ofMinutes(10), Duration.ofSeconds(1), fila, new ObjectMapper(), meterRegistry);
+
+        request = new MockHttpServletRequest("GET", "/api/creditos/7891011");
+        request.setRemoteAddr("192.168.1.100");
+        response = new MockHttpServletResponse();
+        atributoFiltrado = LimiteRequisicoesFilter.class.getName() + ".FILTERED";
+    }
+
+    @Benchmark
+    public int doFilter() throws Exception {
+        filtro.doFilter(request, response, VAZIA);
+        // OncePerRequestFilter marca a requisição; sem remover, as seguintes pulariam o filtro
+        request.removeAttribute(atributoFiltrado);
+        return response.getStatus();
+    }
+}
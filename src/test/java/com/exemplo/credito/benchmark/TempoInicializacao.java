@@ -0,0 +1,145 @@
+package com.exemplo.credito.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o tempo entre o início do processo e a primeira resposta 200 de
+ * {@code GET /api/creditos/{numeroNfse}} em cada modo de execução já construído em target/:
+ * jar (sempre), AOT + CDS (perfil "aot") e imagem nativa (perfil "native"). Cada modo sobe a
+ * aplicação várias vezes, numa porta livre, com o banco das variáveis SPRING_DATASOURCE_*.
+ * Executado pelo perfil "benchmark-inicializacao"; grava inicializacao-resultado.json em target/.
+ *
+ * Uso: {@code TempoInicializacao <target> <finalName> <numeroNfse> <rodadas>}
+ */
+public final class TempoInicializacao {
+
+    private static final Duration TIMEOUT_SUBIDA = Duration.ofMinutes(2);
+    private static final Duration INTERVALO_TENTATIVAS = Duration.ofMillis(10);
+
+    private TempoInicializacao() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Uso: TempoInicializacao <target> <finalName> <numeroNfse> <rodadas>");
+            System.exit(2);
+        }
+        Path target = Path.of(args[0]);
+        String finalName = args[1];
+        String numeroNfse = args[2];
+        int rodadas = Integer.parseInt(args[3]);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        Map<String, Modo> modos = new LinkedHashMap<>();
+        modos.put("jar", new Modo(target, List.of(java, "-jar", finalName + ".jar")));
+        Path aot = target.resolve("aot");
+        if (Files.exists(aot.resolve("credito-api.jsa"))) {
+            modos.put("aot-cds", new Modo(aot, List.of(java, "-XX:SharedArchiveFile=credito-api.jsa",
+                    "-Dspring.aot.enabled=true", "-jar", finalName + ".jar")));
+        }
+        Path nativo = target.resolve("credito-api");
+        if (Files.isExecutable(nativo)) {
+            modos.put("nativo", new Modo(target, List.of(nativo.toAbsolutePath().toString())));
+        }
+
+        HttpClient cliente = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        Map<String, Map<String, Object>> resultado = new LinkedHashMap<>();
+        System.out.printf("%-10s %10s %10s %10s%n", "modo", "min (ms)", "mediana", "max (ms)");
+        for (Map.Entry<String, Modo> modo : modos.entrySet()) {
+            List<Long> tempos = new ArrayList<>();
+            for (int i = 0; i < rodadas; i++) {
+                tempos.add(medir(modo.getKey(), modo.getValue(), target, numeroNfse, cliente));
+            }
+            List<Long> ordenados = tempos.stream().sorted().toList();
+            Map<String, Object> medicao = new LinkedHashMap<>();
+            medicao.put("temposMs", tempos);
+            medicao.put("minimoMs", ordenados.get(0));
+            medicao.put("medianaMs", ordenados.get(ordenados.size() / 2));
+            medicao.put("maximoMs", ordenados.get(ordenados.size() - 1));
+            resultado.put(modo.getKey(), medicao);
+            System.out.printf("%-10s %10d %10d %10d%n", modo.getKey(), ordenados.get(0),
+                    ordenados.get(ordenados.size() / 2), ordenados.get(ordenados.size() - 1));
+        }
+
+        Path arquivo = target.resolve("inicializacao-resultado.json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(arquivo.toFile(), resultado);
+        System.out.println("Resultado gravado em " + arquivo);
+    }
+
+    private static long medir(String nome, Modo modo, Path target, String numeroNfse, HttpClient cliente)
+            throws IOException, InterruptedException {
+        int porta = portaLivre();
+        List<String> comando = new ArrayList<>(modo.comando());
+        comando.add("--server.port=" + porta);
+        // O schema já existe no banco de medição
+        comando.add("--spring.sql.init.mode=never");
+        URI uri = URI.create("http://localhost:" + porta + "/api/creditos/" + numeroNfse);
+        HttpRequest consulta = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long inicio = System.nanoTime();
+        Process processo = new ProcessBuilder(comando)
+                .directory(modo.diretorio().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(new File(target.toFile(), "inicializacao-" + nome + ".log"))
+                .start();
+        try {
+            long limite = inicio + TIMEOUT_SUBIDA.toNanos();
+            while (System.nanoTime() < limite) {
+                if (!processo.isAlive()) {
+                    throw new IllegalStateException("O modo " + nome + " terminou com código " + processo.exitValue()
+                            + "; ver inicializacao-" + nome + ".log");
+                }
+                if (respondeu(cliente, consulta)) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+                }
+                Thread.sleep(INTERVALO_TENTATIVAS.toMillis());
+            }
+            throw new IllegalStateException("O modo " + nome + " não respondeu em " + TIMEOUT_SUBIDA);
+        } finally {
+            processo.destroy();
+            if (!processo.waitFor(10, TimeUnit.SECONDS)) {
+                processo.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static boolean respondeu(HttpClient cliente, HttpRequest consulta) throws InterruptedException {
+        try {
+            return cliente.send(consulta, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            // Ainda sem o servidor escutando
+            return false;
+        }
+    }
+
+    private static int portaLivre() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    record Modo(Path diretorio, List<String> comando) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.exemplo.credito.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compara o resultado JSON de uma execução do JMH com o baseline versionado e falha (código de
+ * saída 1) se algum benchmark regrediu além do limite relativo, tanto no score principal quanto
+ * na alocação por operação ({@code gc.alloc.rate.norm}). Executado pelo perfil "benchmark".
+ *
+ * Uma diferença de score que cabe na soma dos intervalos de confiança (scoreError) do baseline e
+ * da execução não é regressão: não se distingue do ruído da medição. O baseline é gravado sem o
+ * caminho da JVM, que só identifica a máquina em que foi gerado.
+ *
+ * Uso: {@code VerificadorRegressao <baseline.json> <resultado.json> <limite> [atualizar]}
+ */
+public final class VerificadorRegressao {
+
+    private static final String METRICA_ALOCACAO = "gc.alloc.rate.norm";
+
+    // Variações de alocação abaixo disso são ruído (ex.: 0 → 8 bytes/op)
+    private static final double TOLERANCIA_ALOCACAO_BYTES = 32;
+
+    private VerificadorRegressao() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Uso: VerificadorRegressao <baseline.json> <resultado.json> <limite> [atualizar]");
+            System.exit(2);
+        }
+        Path baseline = Path.of(args[0]);
+        Path resultado = Path.of(args[1]);
+        double limite = Double.parseDouble(args[2]);
+        boolean atualizar = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (atualizar || !Files.exists(baseline)) {
+            gravarBaseline(resultado, baseline);
+            System.out.println("Baseline de benchmarks gravado em " + baseline);
+            return;
+        }
+
+        List<String> regressoes = comparar(ler(baseline), ler(resultado), limite);
+        if (!regressoes.isEmpty()) {
+            System.err.println("Regressões acima de " + Math.round(limite * 100) + "% em relação ao baseline:");
+            regressoes.forEach(regressao -> System.err.println("  " + regressao));
+            System.exit(1);
+        }
+        System.out.println("Nenhuma regressão acima de " + Math.round(limite * 100) + "% em relação ao baseline");
+    }
+
+    static List<String> comparar(Map<String, Medicao> baseline, Map<String, Medicao> atual, double limite) {
+        List<String> regressoes = new ArrayList<>();
+        for (Map.Entry<String, Medicao> entrada : atual.entrySet()) {
+            Medicao base = baseline.get(entrada.getKey());
+            Medicao medicao = entrada.getValue();
+            if (base == null) {
+                System.out.println("Sem baseline para " + entrada.getKey() + "; ignorado");
+                continue;
+            }
+
+            // Em throughput maior é melhor; nos demais modos (tempo médio, amostragem) menor é melhor
+            double variacao = medicao.maiorMelhor()
+                    ? (base.score() - medicao.score()) / base.score()
+                    : (medicao.score() - base.score()) / base.score();
+            // O erro não absolve a regressão; só avisa quando a medição é ruidosa demais para o limite
+            boolean ruidosa = (base.erro() + medicao.erro()) / base.score() > limite;
+            System.out.printf("%-90s %12.3f -> %12.3f %s (%+.1f%%)%s%n", entrada.getKey(), base.score(),
+                    medicao.score(), medicao.unidade(), variacao * 100,
+                    ruidosa ? " erro acima do limite, aumente as iterações" : "");
+            if (variacao > limite) {
+                regressoes.add(String.format("%s: %.3f -> %.3f %s", entrada.getKey(), base.score(),
+                        medicao.score(), medicao.unidade()));
+            }
+
+            if (base.alocacao() != null && medicao.alocacao() != null
+                    && medicao.alocacao() - base.alocacao() > TOLERANCIA_ALOCACAO_BYTES
+                    && medicao.alocacao() > base.alocacao() * (1 + limite)) {
+                regressoes.add(String.format("%s: alocação %.0f -> %.0f B/op", entrada.getKey(),
+                        base.alocacao(), medicao.alocacao()));
+            }
+        }
+        return regressoes;
+    }
+
+    static Map<String, Medicao> ler(Path arquivo) throws IOException {
+        Map<String, Medicao> medicoes = new LinkedHashMap<>();
+        for (JsonNode execucao : new ObjectMapper().readTree(arquivo.toFile())) {
+            JsonNode principal = execucao.get("primaryMetric");
+            medicoes.put(chave(execucao), new Medicao(
+                    principal.get("score").asDouble(),
+                    erro(principal.get("scoreError")),
+                    principal.get("scoreUnit").asText(),
+                    "thrpt".equals(execucao.get("mode").asText()),
+                    alocacao(execucao.get("secondaryMetrics"))));
+        }
+        return medicoes;
+    }
+
+    private static void gravarBaseline(Path resultado, Path baseline) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode execucoes = (ArrayNode) mapper.readTree(resultado.toFile());
+        for (JsonNode execucao : execucoes) {
+            ((ObjectNode) execucao).remove("jvm");
+        }
+        Files.createDirectories(baseline.toAbsolutePath().getParent());
+        mapper.writerWithDefaultPrettyPrinter().writeValue(baseline.toFile(), execucoes);
+    }
+
+    // Com uma única iteração medida o JMH grava "NaN": sem intervalo, toda diferença conta
+    private static double erro(JsonNode scoreError) {
+        double erro = scoreError == null ? 0 : scoreError.asDouble();
+        return Double.isNaN(erro) ? 0 : erro;
+    }
+
+    private static String chave(JsonNode execucao) {
+        StringBuilder chave = new StringBuilder(execucao.get("benchmark").asText())
+                .append(" [").append(execucao.get("mode").asText()).append(']');
+        JsonNode params = execucao.get("params");
+        if (params != null) {
+            Map<String, String> ordenados = new TreeMap<>();
+            params.fields().forEachRemaining(param -> ordenados.put(param.getKey(), param.getValue().asText()));
+            ordenados.forEach((nome, valor) -> chave.append(' ').append(nome).append('=').append(valor));
+        }
+        return chave.toString();
+    }
+
+    private static Double alocacao(JsonNode secundarias) {
+        if (secundarias == null) {
+            return null;
+        }
+        // Versões antigas do JMH prefixam as métricas do profiler com "·"
+        for (Iterator<Map.Entry<String, JsonNode>> it = secundarias.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> metrica = it.next();
+            if (metrica.getKey().replace("·", "").equals(METRICA_ALOCACAO)) {
+                return metrica.getValue().get("score").asDouble();
+            }
+        }
+        return null;
+    }
+
+    record Medicao(double score, double erro, String unidade, boolean maiorMelhor, Double alocacao) {
+    }
+}
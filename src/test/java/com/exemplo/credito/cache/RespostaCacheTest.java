@@ -0,0 +1,91 @@
+package com.exemplo.credito.cache;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.VersaoCreditos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RespostaCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    @DisplayName("Deve reaproveitar os bytes enquanto a versão dos créditos não mudar")
+    void deveReaproveitarBytesDaMesmaVersao() {
+        RespostaCache cache = novoCache(DataSize.ofMegabytes(1));
+        List<CreditoDTO> creditos = creditos("7891011", 20, 0);
+
+        RespostaCache.RespostaSerializada primeira = cache.obter("nfse", "7891011", VersaoCreditos.de(creditos), creditos);
+        RespostaCache.RespostaSerializada segunda = cache.obter("nfse", "7891011", VersaoCreditos.de(creditos), creditos);
+
+        assertSame(primeira, segunda);
+        assertNotNull(primeira.gzip());
+        assertTrue(primeira.gzip().length < primeira.json().length);
+    }
+
+    @Test
+    @DisplayName("Deve refazer a resposta quando uma linha for alterada")
+    void deveRefazerRespostaQuandoVersaoMudar() throws Exception {
+        RespostaCache cache = novoCache(DataSize.ofMegabytes(1));
+        List<CreditoDTO> originais = creditos("7891011", 3, 0);
+        List<CreditoDTO> alterados = creditos("7891011", 3, 1);
+
+        cache.obter("nfse", "7891011", VersaoCreditos.de(originais), originais);
+        RespostaCache.RespostaSerializada atual =
+                cache.obter("nfse", "7891011", VersaoCreditos.de(alterados), alterados);
+
+        assertEquals(VersaoCreditos.de(alterados), atual.versao());
+        assertArrayEquals(objectMapper.writeValueAsBytes(alterados), atual.json());
+        assertNull(atual.gzip(), "Respostas pequenas não ganham variante gzip");
+    }
+
+    @Test
+    @DisplayName("Deve limitar o cache pelo total de bytes guardados")
+    void deveLimitarPeloTotalDeBytes() {
+        RespostaCache cache = novoCache(DataSize.ofKilobytes(64));
+        for (int i = 0; i < 200; i++) {
+            List<CreditoDTO> creditos = creditos("NFSE" + i, 10, 0);
+            cache.obter("nfse", "NFSE" + i, VersaoCreditos.de(creditos), creditos);
+        }
+
+        assertTrue(cache.bytesOcupados() <= DataSize.ofKilobytes(64).toBytes(),
+                "Cache ocupa " + cache.bytesOcupados() + " bytes");
+    }
+
+    @Test
+    @DisplayName("Deve negociar gzip pelo Accept-Encoding")
+    void deveNegociarGzip() {
+        assertTrue(RespostaCache.aceitaGzip("gzip, deflate, br"));
+        assertTrue(RespostaCache.aceitaGzip("br;q=1.0, gzip;q=0.5"));
+        assertTrue(RespostaCache.aceitaGzip("*"));
+        assertFalse(RespostaCache.aceitaGzip("gzip;q=0"));
+        assertFalse(RespostaCache.aceitaGzip("*, gzip;q=0.0"));
+        assertFalse(RespostaCache.aceitaGzip("br, identity"));
+        assertFalse(RespostaCache.aceitaGzip(null));
+    }
+
+    private RespostaCache novoCache(DataSize tamanhoMaximo) {
+        return new RespostaCache(true, tamanhoMaximo, DataSize.ofKilobytes(1), objectMapper, new SimpleMeterRegistry());
+    }
+
+    private static List<CreditoDTO> creditos(String numeroNfse, int quantidade, long versao) {
+        List<CreditoDTO> creditos = new ArrayList<>();
+        for (long id = 1; id <= quantidade; id++) {
+            creditos.add(new CreditoDTO(id, "CRED" + id, numeroNfse, LocalDate.of(2024, 2, 25),
+                    new BigDecimal("1500.75"), "ISSQN", true, new BigDecimal("5.50"),
+                    new BigDecimal("30000.00"), new BigDecimal("5000.00"), new BigDecimal("25000.00"), versao, null));
+        }
+        return creditos;
+    }
+}
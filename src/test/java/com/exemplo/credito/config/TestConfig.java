@@ -1,5 +1,6 @@
 package com.exemplo.credito.config;
 
+import com.exemplo.credito.service.AuditoriaFila;
 import com.exemplo.credito.service.AuditoriaPublisher;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -17,4 +18,10 @@ public class TestConfig {
     public AuditoriaPublisher auditoriaPublisher() {
         return mock(AuditoriaPublisher.class);
     }
+
+    @Bean
+    @Primary
+    public AuditoriaFila auditoriaFila() {
+        return mock(AuditoriaFila.class);
+    }
 } 
\ No newline at end of file
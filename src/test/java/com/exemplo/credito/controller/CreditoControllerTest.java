@@ -1,10 +1,20 @@
 package com.exemplo.credito.controller;
 
+import com.exemplo.credito.cache.RespostaCache;
 import com.exemplo.credito.config.TestConfig;
-import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.dto.ConsultaLoteRequest;
+import com.exemplo.credito.dto.ConsultaLoteResponse;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.dto.VersaoCreditos;
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.interceptor.AuditoriaInterceptor;
+import com.exemplo.credito.service.AuditoriaFila;
 import com.exemplo.credito.service.CreditoService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -14,20 +24,32 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import jakarta.persistence.EntityNotFoundException;
+import java.io.ByteArrayInputStream;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(CreditoController.class)
 @ActiveProfiles("test")
-@Import(TestConfig.class)
+@Import({TestConfig.class, RespostaCache.class, SimpleMeterRegistry.class})
 class CreditoControllerTest {
 
     @Autowired
@@ -39,10 +61,20 @@ class CreditoControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AuditoriaFila auditoriaFila;
+
+    @BeforeEach
+    void setUp() {
+        // Sem filtro de existência toda chave pode existir
+        when(creditoService.podeExistirNfse(anyString())).thenReturn(true);
+        when(creditoService.podeExistirCredito(anyString())).thenReturn(true);
+    }
+
     @Test
     void deveRetornarListaDeCreditosPorNfseComSucesso() throws Exception {
         // Arrange
-        List<Credito> creditos = Arrays.asList(
+        List<CreditoDTO> creditos = Arrays.asList(
                 criarCredito("123456", "NFSE789", LocalDate.of(2024, 2, 15)),
                 criarCredito("789123", "NFSE789", LocalDate.of(2024, 2, 20))
         );
@@ -59,6 +91,50 @@ class CreditoControllerTest {
                 .andExpect(jsonPath("$[1].numeroCredito").value("789123"));
     }
 
+    @Test
+    void deveResponder304SemCarregarOsCreditos() throws Exception {
+        VersaoCreditos versao = new VersaoCreditos(2L, 7L, 13L, 4L, Instant.parse("2024-03-01T10:15:30Z"));
+        when(creditoService.versaoPorNfse("NFSE789")).thenReturn(versao);
+
+        mockMvc.perform(get("/api/creditos/NFSE789").header("If-None-Match", versao.etag()))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"2-7-d-4\""))
+                .andExpect(header().string("Last-Modified", "Fri, 01 Mar 2024 10:15:30 GMT"));
+        mockMvc.perform(get("/api/creditos/NFSE789").header("If-Modified-Since", "Fri, 01 Mar 2024 10:15:30 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(creditoService, never()).buscarPorNfse(anyString());
+    }
+
+    @Test
+    void deveServirRespostaSerializadaComGzipQuandoAceito() throws Exception {
+        List<CreditoDTO> creditos = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            creditos.add(criarCredito("CRED" + i, "NFSE-GRANDE", LocalDate.of(2024, 2, 15)));
+        }
+        when(creditoService.buscarPorNfse("NFSE-GRANDE")).thenReturn(creditos);
+
+        byte[] identidade = mockMvc.perform(get("/api/creditos/NFSE-GRANDE"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] comprimido = mockMvc.perform(get("/api/creditos/NFSE-GRANDE")
+                        .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(comprimido.length).isLessThan(identidade.length);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(comprimido))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(identidade);
+        }
+        mockMvc.perform(get("/api/creditos/NFSE-GRANDE").header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.length()").value(30));
+    }
+
     @Test
     void deveRetornarListaVaziaQuandoNaoEncontrarCreditos() throws Exception {
         // Arrange
@@ -75,7 +151,7 @@ class CreditoControllerTest {
     @Test
     void deveRetornarCreditoEspecificoComSucesso() throws Exception {
         // Arrange
-        Credito credito = criarCredito("123456", "NFSE789", LocalDate.of(2024, 2, 15));
+        CreditoDTO credito = criarCredito("123456", "NFSE789", LocalDate.of(2024, 2, 15));
         when(creditoService.buscarPorNumeroCredito("123456")).thenReturn(credito);
 
         // Act & Assert
@@ -103,18 +179,101 @@ class CreditoControllerTest {
                 .andExpect(jsonPath("$.message").value("Crédito não encontrado"));
     }
 
-    private Credito criarCredito(String numeroCredito, String numeroNfse, LocalDate dataConstituicao) {
-        Credito credito = new Credito();
-        credito.setNumeroCredito(numeroCredito);
-        credito.setNumeroNfse(numeroNfse);
-        credito.setDataConstituicao(dataConstituicao);
-        credito.setTipoCredito("PRINCIPAL");
-        credito.setValorFaturado(new BigDecimal("1000.00"));
-        credito.setBaseCalculo(new BigDecimal("1000.00"));
-        credito.setAliquota(new BigDecimal("5.00"));
-        credito.setValorIssqn(new BigDecimal("50.00"));
-        credito.setValorDeducao(new BigDecimal("0.00"));
-        credito.setSimplesNacional(false);
-        return credito;
+    @Test
+    void deveResponder404SemConsultarQuandoFiltroDescartaOCredito() throws Exception {
+        when(creditoService.podeExistirCredito("INEXISTENTE")).thenReturn(false);
+        when(creditoService.podeExistirNfse("INEXISTENTE")).thenReturn(false);
+
+        mockMvc.perform(get("/api/creditos/credito/INEXISTENTE"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.error").value("Not Found"))
+                .andExpect(jsonPath("$.message").value("Crédito não encontrado"))
+                .andExpect(jsonPath("$.path").value("/api/creditos/credito/INEXISTENTE"))
+                .andExpect(jsonPath("$.timestamp").exists());
+        mockMvc.perform(get("/api/creditos/INEXISTENTE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        verify(creditoService, never()).buscarPorNumeroCredito(anyString());
+        verify(creditoService, never()).buscarPorNfse(anyString());
+    }
+
+    @Test
+    void deveRetornarConsultaEmLoteComChavesNaoEncontradas() throws Exception {
+        // Arrange
+        CreditoDTO credito = criarCredito("123456", "NFSE789", LocalDate.of(2024, 2, 15));
+        ConsultaLoteResponse resposta = ConsultaLoteResponse.builder()
+                .creditosPorNfse(Map.of("NFSE789", List.of(credito)))
+                .creditosPorNumero(Map.of("123456", credito))
+                .nfsesNaoEncontradas(List.of("NFSE999"))
+                .creditosNaoEncontrados(List.of("999999"))
+                .build();
+        when(creditoService.buscarEmLote(any(ConsultaLoteRequest.class))).thenReturn(resposta);
+
+        ConsultaLoteRequest requisicao = ConsultaLoteRequest.builder()
+                .numerosNfse(List.of("NFSE789", "NFSE999"))
+                .numerosCredito(List.of("123456", "999999"))
+                .build();
+
+        // Act & Assert
+        mockMvc.perform(post("/api/creditos/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requisicao)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creditosPorNfse.NFSE789.length()").value(1))
+                .andExpect(jsonPath("$.creditosPorNumero.123456.numeroNfse").value("NFSE789"))
+                .andExpect(jsonPath("$.nfsesNaoEncontradas[0]").value("NFSE999"))
+                .andExpect(jsonPath("$.creditosNaoEncontrados[0]").value("999999"))
+                // Auditoria com quantidade e hash de cada lista, não as chaves
+                .andExpect(request().attribute(AuditoriaInterceptor.PARAMETRO_ATTRIBUTE,
+                        "nfse=2:5fa9c8a328a3f92e;credito=2:e61773a783118f69"));
+    }
+
+    @Test
+    void deveAuditarQuantidadeDeResultadosEBytesDaResposta() throws Exception {
+        // Arrange
+        List<CreditoDTO> creditos = Arrays.asList(
+                criarCredito("123456", "NFSE789", LocalDate.of(2024, 2, 15)),
+                criarCredito("789123", "NFSE789", LocalDate.of(2024, 2, 20))
+        );
+        when(creditoService.buscarPorNfse("NFSE789")).thenReturn(creditos);
+        clearInvocations(auditoriaFila);
+
+        // Act
+        int bytesCorpo = mockMvc.perform(get("/api/creditos/NFSE789"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray().length;
+
+        // Assert
+        ArgumentCaptor<ConsultaAuditoriaEvent> captor = ArgumentCaptor.forClass(ConsultaAuditoriaEvent.class);
+        verify(auditoriaFila).enfileirar(captor.capture());
+        assertThat(captor.getValue().getQuantidadeResultados()).isEqualTo(2);
+        assertThat(captor.getValue().getTamanhoResposta()).isEqualTo(bytesCorpo);
+    }
+
+    @Test
+    void deveAuditarZeroResultadosQuandoCreditoNaoEncontrado() throws Exception {
+        // Arrange
+        when(creditoService.buscarPorNumeroCredito("999999"))
+                .thenThrow(new EntityNotFoundException("Crédito não encontrado"));
+        clearInvocations(auditoriaFila);
+
+        // Act
+        mockMvc.perform(get("/api/creditos/credito/999999"))
+                .andExpect(status().isNotFound());
+
+        // Assert
+        ArgumentCaptor<ConsultaAuditoriaEvent> captor = ArgumentCaptor.forClass(ConsultaAuditoriaEvent.class);
+        verify(auditoriaFila).enfileirar(captor.capture());
+        assertThat(captor.getValue().getQuantidadeResultados()).isZero();
+        assertThat(captor.getValue().getTamanhoResposta()).isPositive();
+    }
+
+    private CreditoDTO criarCredito(String numeroCredito, String numeroNfse, LocalDate dataConstituicao) {
+        return new CreditoDTO(null, numeroCredito, numeroNfse, dataConstituicao,
+                new BigDecimal("50.00"), "PRINCIPAL", false, new BigDecimal("5.00"),
+                new BigDecimal("1000.00"), new BigDecimal("0.00"), new BigDecimal("1000.00"), 0, null);
     }
 } 
\ No newline at end of file
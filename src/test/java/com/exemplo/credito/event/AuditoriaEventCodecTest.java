@@ -0,0 +1,86 @@
+package com.exemplo.credito.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditoriaEventCodecTest {
+
+    @Test
+    @DisplayName("Deve codificar e decodificar o evento sem perda (timestamp em microssegundos)")
+    void deveFazerIdaEVoltaSemPerda() {
+        ConsultaAuditoriaEvent evento = eventoCompleto();
+
+        ConsultaAuditoriaEvent decodificado = AuditoriaEventCodec.decodificar(AuditoriaEventCodec.codificar(evento));
+
+        assertEquals(evento, decodificado);
+    }
+
+    @Test
+    @DisplayName("Deve preservar campos nulos, ids não UUID, métodos fora do dicionário e texto não ASCII")
+    void devePreservarCamposNulosEValoresForaDoDicionario() {
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setId("id-livre");
+        evento.setEndpoint("/outro/caminho/çã");
+        evento.setMetodo("PROPFIND");
+        evento.setTempoProcessamento(-1L);
+
+        ConsultaAuditoriaEvent decodificado = AuditoriaEventCodec.decodificar(AuditoriaEventCodec.codificar(evento));
+
+        assertEquals(evento, decodificado);
+    }
+
+    @Test
+    @DisplayName("Codificação binária deve ser bem menor que o JSON")
+    void codificacaoBinariaDeveSerMenorQueJson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        ConsultaAuditoriaEvent evento = eventoCompleto();
+
+        int bytesJson = objectMapper.writeValueAsBytes(evento).length;
+        int bytesBinario = AuditoriaEventCodec.codificar(evento).length;
+
+        assertTrue(bytesBinario * 2 < bytesJson, "binário=" + bytesBinario + " json=" + bytesJson);
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar versão de formato desconhecida")
+    void deveRejeitarVersaoDesconhecida() {
+        byte[] dados = AuditoriaEventCodec.codificar(eventoCompleto());
+        dados[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> AuditoriaEventCodec.decodificar(dados));
+    }
+
+    @Test
+    @DisplayName("Deve continuar lendo registros da versão 1, anteriores ao campo tamanhoResposta")
+    void deveLerVersaoAnteriorSemTamanhoResposta() {
+        ConsultaAuditoriaEvent evento = eventoCompleto();
+        evento.setTamanhoResposta(null);
+        byte[] dados = AuditoriaEventCodec.codificar(evento);
+        dados[0] = 1;
+
+        assertEquals(evento, AuditoriaEventCodec.decodificar(dados));
+    }
+
+    static ConsultaAuditoriaEvent eventoCompleto() {
+        return ConsultaAuditoriaEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .endpoint("/api/creditos/credito/123456")
+                .parametro("123456")
+                .metodo("GET")
+                .statusResposta(200)
+                .quantidadeResultados(1)
+                .timestamp(LocalDateTime.of(2024, 7, 16, 12, 30, 0, 123_456_000))
+                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)")
+                .ipOrigemString("192.168.1.100")
+                .tempoProcessamento(145L)
+                .tamanhoResposta(312L)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.exemplo.credito.event;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeradorIdEventoTest {
+
+    @Test
+    @DisplayName("Deve gerar UUID versão 7 com variante RFC e o timestamp nos 48 bits iniciais")
+    void deveGerarUuidVersao7() {
+        long agora = System.currentTimeMillis();
+
+        UUID uuid = UUID.fromString(GeradorIdEvento.novoId());
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long timestamp = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(timestamp >= agora && timestamp - agora < 1_000, "timestamp=" + timestamp);
+    }
+
+    @Test
+    @DisplayName("Ids de milissegundos diferentes devem ficar em ordem")
+    void deveOrdenarPeloTempo() {
+        String anterior = GeradorIdEvento.novoUuid(1_721_132_400_000L).toString();
+        String posterior = GeradorIdEvento.novoUuid(1_721_132_400_001L).toString();
+
+        assertTrue(anterior.compareTo(posterior) < 0);
+    }
+}
@@ -1,6 +1,8 @@
 package com.exemplo.credito.integration;
 
+import com.exemplo.credito.cache.CreditoCache;
 import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.controller.ImportacaoCreditoController;
 import com.exemplo.credito.entity.Credito;
 import com.exemplo.credito.repository.CreditoRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -19,7 +21,10 @@ import org.springframework.web.context.WebApplicationContext;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -34,6 +39,9 @@ class CreditoIntegrationTest {
     @Autowired
     private CreditoRepository creditoRepository;
 
+    @Autowired
+    private CreditoCache creditoCache;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -43,6 +51,7 @@ class CreditoIntegrationTest {
     void setUp() {
         mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
         creditoRepository.deleteAll();
+        creditoCache.invalidar();
         
         // Preparar dados de teste
         Credito credito1 = criarCredito("123456", "NFSE789", LocalDate.of(2024, 2, 25));
@@ -97,6 +106,92 @@ class CreditoIntegrationTest {
                 .andExpect(jsonPath("$.message").value("Crédito não encontrado"));
     }
 
+    @Test
+    void deveResponder304QuandoCreditosNaoMudaramIntegracao() throws Exception {
+        String etag = mockMvc.perform(get("/api/creditos/NFSE789"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", "max-age=0, must-revalidate, public"))
+                .andExpect(jsonPath("$[0].versao").doesNotExist())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/creditos/NFSE789").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+
+        // Atualizar uma linha muda a versão: o mesmo ETag deixa de valer
+        Credito credito = creditoRepository.findAll().stream()
+                .filter(c -> c.getNumeroCredito().equals("789123")).findFirst().orElseThrow();
+        credito.setValorIssqn(new BigDecimal("60.00"));
+        creditoRepository.saveAndFlush(credito);
+        creditoCache.invalidar();
+
+        mockMvc.perform(get("/api/creditos/NFSE789").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$[1].valorIssqn").value(60.00));
+    }
+
+    @Test
+    void deveResponder304ParaCreditoEspecificoIntegracao() throws Exception {
+        String etag = mockMvc.perform(get("/api/creditos/credito/123456"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/creditos/credito/123456").header("If-None-Match", "\"outro\", " + etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/creditos/credito/999999").header("If-None-Match", "*"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deveConsultarEmLoteIntegracao() throws Exception {
+        mockMvc.perform(post("/api/creditos/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"numerosNfse\":[\"NFSE789\",\"NFSE_INEXISTENTE\"],"
+                                + "\"numerosCredito\":[\"456789\",\"000000\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.creditosPorNfse.NFSE789.length()").value(2))
+                .andExpect(jsonPath("$.creditosPorNumero.456789.numeroNfse").value("NFSE999"))
+                .andExpect(jsonPath("$.nfsesNaoEncontradas[0]").value("NFSE_INEXISTENTE"))
+                .andExpect(jsonPath("$.creditosNaoEncontrados[0]").value("000000"));
+    }
+
+    @Test
+    void devePaginarCreditosPorNfseIntegracao() throws Exception {
+        String resposta = mockMvc.perform(get("/api/creditos/NFSE789/paginado").param("tamanho", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creditos.length()").value(1))
+                .andExpect(jsonPath("$.creditos[0].numeroCredito").value("123456"))
+                .andExpect(jsonPath("$.proximoCursor").isNotEmpty())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(resposta).get("proximoCursor").asText();
+
+        mockMvc.perform(get("/api/creditos/NFSE789/paginado").param("tamanho", "1").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creditos.length()").value(1))
+                .andExpect(jsonPath("$.creditos[0].numeroCredito").value("789123"))
+                .andExpect(jsonPath("$.proximoCursor").doesNotExist());
+    }
+
+    @Test
+    void deveTransmitirCreditosPorNfseIntegracao() throws Exception {
+        mockMvc.perform(get("/api/creditos/NFSE789/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].numeroCredito").value("123456"))
+                .andExpect(jsonPath("$[1].numeroCredito").value("789123"));
+    }
+
+    @Test
+    void naoDeveExporImportacaoSemPropriedade() {
+        assertEquals(0, webApplicationContext.getBeanNamesForType(ImportacaoCreditoController.class).length);
+    }
+
     private Credito criarCredito(String numeroCredito, String numeroNfse, LocalDate dataConstituicao) {
         Credito credito = new Credito();
         credito.setNumeroCredito(numeroCredito);
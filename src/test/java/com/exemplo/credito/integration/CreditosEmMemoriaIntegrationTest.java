@@ -0,0 +1,146 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.memoria.CreditosEmMemoria;
+import com.exemplo.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Modo em memória ligado: as linhas gravadas no banco só aparecem nas consultas depois da
+ * atualização incremental (o agendamento fica longe o bastante para não interferir).
+ */
+@SpringBootTest(properties = {
+        "credito.memoria.enabled=true",
+        "credito.memoria.intervalo-atualizacao=PT1H"})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@AutoConfigureMockMvc
+class CreditosEmMemoriaIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private CreditosEmMemoria creditosEmMemoria;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        creditoRepository.deleteAll();
+    }
+
+    @Test
+    void deveServirCreditosCarregadosNaAtualizacaoIncremental() throws Exception {
+        creditoRepository.save(criarCredito("MEM-1", "NFSE-MEM"));
+        creditoRepository.save(criarCredito("MEM-2", "NFSE-MEM"));
+
+        mockMvc.perform(get("/api/creditos/NFSE-MEM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        assertEquals(2, creditosEmMemoria.atualizar());
+
+        mockMvc.perform(get("/api/creditos/NFSE-MEM"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].numeroCredito").value("MEM-1"))
+                .andExpect(jsonPath("$[0].valorIssqn").value(50.00))
+                .andExpect(jsonPath("$[1].numeroCredito").value("MEM-2"));
+        mockMvc.perform(get("/api/creditos/credito/MEM-2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numeroNfse").value("NFSE-MEM"));
+
+        creditoRepository.save(criarCredito("MEM-3", "NFSE-MEM"));
+        assertEquals(1, creditosEmMemoria.atualizar());
+
+        mockMvc.perform(get("/api/creditos/NFSE-MEM"))
+                .andExpect(jsonPath("$.length()").value(3));
+    }
+
+    @Test
+    void deveCarregarLinhaConfirmadaDepoisDeUmIdMaior() throws Exception {
+        creditoRepository.save(criarCredito("MEM-A", "NFSE-ATRASO"));
+        creditosEmMemoria.atualizar();
+
+        // A transação de MEM-B reserva o id antes de MEM-C, mas só confirma depois
+        CountDownLatch inserido = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+        ExecutorService outraTransacao = Executors.newSingleThreadExecutor();
+        Future<?> atrasada = outraTransacao.submit(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> {
+                    creditoRepository.save(criarCredito("MEM-B", "NFSE-ATRASO"));
+                    inserido.countDown();
+                    aguardar(confirmar);
+                }));
+        try {
+            assertTrue(inserido.await(10, TimeUnit.SECONDS));
+            creditoRepository.save(criarCredito("MEM-C", "NFSE-ATRASO"));
+            assertEquals(1, creditosEmMemoria.atualizar());
+        } finally {
+            confirmar.countDown();
+            atrasada.get(10, TimeUnit.SECONDS);
+            outraTransacao.shutdown();
+        }
+
+        assertEquals(1, creditosEmMemoria.atualizar());
+        assertEquals(0, creditosEmMemoria.atualizar());
+        mockMvc.perform(get("/api/creditos/NFSE-ATRASO"))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[1].numeroCredito").value("MEM-B"))
+                .andExpect(jsonPath("$[2].numeroCredito").value("MEM-C"));
+        mockMvc.perform(get("/api/creditos/credito/MEM-B"))
+                .andExpect(status().isOk());
+    }
+
+    private static void aguardar(CountDownLatch sinal) {
+        try {
+            sinal.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Credito criarCredito(String numeroCredito, String numeroNfse) {
+        Credito credito = new Credito();
+        credito.setNumeroCredito(numeroCredito);
+        credito.setNumeroNfse(numeroNfse);
+        credito.setDataConstituicao(LocalDate.of(2024, 2, 25));
+        credito.setTipoCredito("PRINCIPAL");
+        credito.setValorFaturado(new BigDecimal("1000.00"));
+        credito.setBaseCalculo(new BigDecimal("1000.00"));
+        credito.setAliquota(new BigDecimal("5.00"));
+        credito.setValorIssqn(new BigDecimal("50.00"));
+        credito.setValorDeducao(new BigDecimal("0.00"));
+        credito.setSimplesNacional(false);
+        return credito;
+    }
+}
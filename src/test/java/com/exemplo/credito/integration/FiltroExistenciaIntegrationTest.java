@@ -0,0 +1,107 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.memoria.FiltroExistencia;
+import com.exemplo.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Filtro de existência ligado: chaves que o filtro descarta são respondidas sem consultar o banco,
+ * e as gravadas passam a existir na atualização incremental seguinte.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:filtro",
+        "credito.filtro-existencia.enabled=true",
+        "credito.filtro-existencia.intervalo-atualizacao=PT1H",
+        "credito.filtro-existencia.taxa-falsos-positivos=0.0001"})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@AutoConfigureMockMvc
+class FiltroExistenciaIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoSpyBean
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private FiltroExistencia filtroExistencia;
+
+    @AfterEach
+    void tearDown() {
+        creditoRepository.deleteAll();
+    }
+
+    @Test
+    void deveResponderChavesInexistentesSemConsultarOBanco() throws Exception {
+        creditoRepository.save(criarCredito("FILTRO-1", "NFSE-FILTRO"));
+        assertEquals(1, filtroExistencia.atualizar());
+
+        mockMvc.perform(get("/api/creditos/credito/FILTRO-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numeroNfse").value("NFSE-FILTRO"));
+        mockMvc.perform(get("/api/creditos/NFSE-FILTRO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        mockMvc.perform(get("/api/creditos/credito/NAO-EXISTE"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Crédito não encontrado"));
+        mockMvc.perform(get("/api/creditos/NFSE-NAO-EXISTE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        verify(creditoRepository, never()).findByNumeroCredito("NAO-EXISTE");
+        verify(creditoRepository, never()).findByNumeroNfse("NFSE-NAO-EXISTE");
+    }
+
+    @Test
+    void deveReconstruirComAsLinhasAtuais() {
+        creditoRepository.save(criarCredito("FILTRO-2", "NFSE-FILTRO-2"));
+
+        filtroExistencia.reconstruir();
+
+        assertTrue(filtroExistencia.podeExistirCredito("FILTRO-2"));
+        assertTrue(filtroExistencia.podeExistirNfse("NFSE-FILTRO-2"));
+        assertFalse(filtroExistencia.podeExistirCredito("FILTRO-INEXISTENTE"));
+        verify(creditoRepository, never()).findByNumeroCredito(anyString());
+    }
+
+    private Credito criarCredito(String numeroCredito, String numeroNfse) {
+        Credito credito = new Credito();
+        credito.setNumeroCredito(numeroCredito);
+        credito.setNumeroNfse(numeroNfse);
+        credito.setDataConstituicao(LocalDate.of(2024, 2, 25));
+        credito.setTipoCredito("PRINCIPAL");
+        credito.setValorFaturado(new BigDecimal("1000.00"));
+        credito.setBaseCalculo(new BigDecimal("1000.00"));
+        credito.setAliquota(new BigDecimal("5.00"));
+        credito.setValorIssqn(new BigDecimal("50.00"));
+        credito.setValorDeducao(new BigDecimal("0.00"));
+        credito.setSimplesNacional(false);
+        return credito;
+    }
+}
@@ -0,0 +1,118 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Importação em massa sobre H2 (insert em batch), com chunks de 2 registros.
+ */
+@SpringBootTest(properties = {
+        "credito.importacao.enabled=true",
+        "credito.importacao.tamanho-chunk=2"
+})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@AutoConfigureMockMvc
+@Transactional
+class ImportacaoIntegrationTest {
+
+    private static final String CABECALHO = "numeroCredito,numeroNfse,dataConstituicao,valorIssqn,tipoCredito,"
+            + "simplesNacional,aliquota,valorFaturado,valorDeducao,baseCalculo\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @BeforeEach
+    void setUp() {
+        creditoRepository.deleteAll();
+    }
+
+    @Test
+    void deveImportarCsvERejeitarRegistrosInvalidos() throws Exception {
+        String csv = CABECALHO
+                + "IMP-1,NFSE-IMP,2024-02-25,1500.75,ISSQN,true,5.50,30000.00,5000.00,25000.00\n"
+                + "IMP-2,NFSE-IMP,2024-02-26,1200.50,\"ISSQN, retido\",false,4.50,25000.00,4000.00,21000.00\n"
+                + ",NFSE-IMP,2024-02-27,10.00,ISSQN,false,2.00,500.00,0.00,500.00\n"
+                + "IMP-4,NFSE-IMP,2024-02-28,10.001,ISSQN,false,2.00,500.00,0.00,500.00\n"
+                + "IMP-5,NFSE-OUTRA,2024-03-01,100.00,Outros,true,3.00,3333.33,0.00,3333.33\n";
+
+        mockMvc.perform(post("/api/creditos/importacao").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.registrosLidos").value(5))
+                .andExpect(jsonPath("$.registrosImportados").value(3))
+                .andExpect(jsonPath("$.registrosRejeitados").value(2))
+                .andExpect(jsonPath("$.retomarAPartirDe").value(5))
+                .andExpect(jsonPath("$.rejeitados[0].registro").value(3))
+                .andExpect(jsonPath("$.rejeitados[0].motivo").value("numeroCredito é obrigatório"))
+                .andExpect(jsonPath("$.rejeitados[1].registro").value(4))
+                .andExpect(jsonPath("$.rejeitados[1].motivo").value("valorIssqn tem mais de duas casas decimais"));
+
+        mockMvc.perform(get("/api/creditos/NFSE-IMP"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].tipoCredito").value("ISSQN, retido"))
+                .andExpect(jsonPath("$[1].valorIssqn").value(1200.50));
+        mockMvc.perform(get("/api/creditos/credito/IMP-5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.simplesNacional").value(true));
+    }
+
+    @Test
+    void deveImportarNdjson() throws Exception {
+        String ndjson = """
+                {"numeroCredito":"ND-1","numeroNfse":"NFSE-ND","dataConstituicao":"2024-02-25","valorIssqn":1500.75,"tipoCredito":"ISSQN","simplesNacional":true,"aliquota":5.5,"valorFaturado":30000.00,"valorDeducao":5000.00,"baseCalculo":25000.00}
+                {"numeroCredito":"ND-2","numeroNfse":"NFSE-ND","dataConstituicao":"2024-02-26","valorIssqn":1200.50,"tipoCredito":"ISSQN","simplesNacional":false,"aliquota":4.5,"valorFaturado":25000.00,"valorDeducao":4000.00,"baseCalculo":21000.00}
+                {"numeroCredito":"ND-3","numeroNfse":"NFSE-ND","dataConstituicao":"2024-02-27","valorIssqn":10.00,"tipoCredito":"ISSQN","simplesNacional":false,"aliquota":2.0,"valorFaturado":500.00,"valorDeducao":0.00,"baseCalculo":500.00}
+                """;
+
+        mockMvc.perform(post("/api/creditos/importacao").contentType(MediaType.APPLICATION_NDJSON).content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.registrosImportados").value(3))
+                .andExpect(jsonPath("$.registrosRejeitados").value(0));
+
+        assertEquals(3, creditoRepository.findByNumeroNfse("NFSE-ND").size());
+    }
+
+    @Test
+    void deveRetomarAPartirDoUltimoChunkConfirmado() throws Exception {
+        String linhas = "R-1,NFSE-R,2024-02-25,1.00,ISSQN,false,2.00,50.00,0.00,50.00\n"
+                + "R-2,NFSE-R,2024-02-25,1.00,ISSQN,false,2.00,50.00,0.00,50.00\n"
+                + "R-3,NFSE-R,2024-02-25,1.00,ISSQN,false,2.00,50.00,0.00,50.00\n";
+        String quebrado = CABECALHO + linhas + "R-4,NFSE-R,data-invalida,1.00,ISSQN,false,2.00,50.00,0.00,50.00\n";
+
+        // R-1 e R-2 formam um chunk confirmado; R-3 fica no chunk interrompido
+        mockMvc.perform(post("/api/creditos/importacao").contentType("text/csv").content(quebrado))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.importacao.registrosImportados").value(2))
+                .andExpect(jsonPath("$.importacao.retomarAPartirDe").value(2))
+                .andExpect(jsonPath("$.message").value(
+                        "Registro 4 inválido no arquivo; importação pode ser retomada a partir de 2"));
+        assertEquals(2, creditoRepository.findByNumeroNfse("NFSE-R").size());
+
+        String corrigido = CABECALHO + linhas + "R-4,NFSE-R,2024-02-25,1.00,ISSQN,false,2.00,50.00,0.00,50.00\n";
+        mockMvc.perform(post("/api/creditos/importacao?aPartirDe=2").contentType("text/csv").content(corrigido))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.registrosLidos").value(4))
+                .andExpect(jsonPath("$.registrosImportados").value(2));
+
+        assertEquals(4, creditoRepository.findByNumeroNfse("NFSE-R").size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.config.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifica o que o /actuator/prometheus expõe depois de consultas reais, e que os valores
+ * consultados (NFS-e, número do crédito) não aparecem como tag.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class MetricasIntegrationTest {
+
+    private static final String NFSE = "NFSE-METRICA-4815";
+    private static final String NUMERO_CREDITO = "CREDITO-METRICA-1623";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void deveExporMetricasSemValoresConsultadosNasTags() throws Exception {
+        mockMvc.perform(get("/api/creditos/" + NFSE)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/creditos/credito/" + NUMERO_CREDITO)).andExpect(status().isNotFound());
+
+        String metricas = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Endpoints pelo template da rota, com buckets para percentis
+        assertTrue(metricas.contains("http_server_requests_seconds_bucket{"), "histograma http.server.requests");
+        assertTrue(metricas.contains("uri=\"/api/creditos/{numeroNfse}\""));
+        assertTrue(metricas.contains("uri=\"/api/creditos/credito/{numeroCredito}\""));
+
+        // Consultas do CreditoRepository, por método
+        assertTrue(metricas.contains("spring_data_repository_invocations_seconds_bucket{"));
+        assertTrue(metricas.contains("method=\"findByNumeroNfse\""));
+        assertTrue(metricas.contains("repository=\"CreditoRepository\""));
+
+        // Resultados não encontrados e pool do Hikari (a publicação da auditoria é mock neste perfil)
+        assertTrue(metricas.contains("creditos_nao_encontrados_total{"));
+        assertTrue(metricas.contains("consulta=\"nfse\""));
+        assertTrue(metricas.contains("consulta=\"numero-credito\""));
+        assertTrue(metricas.contains("hikaricp_connections_active{"));
+
+        assertFalse(metricas.contains(NFSE), "NFS-e consultada virou tag");
+        assertFalse(metricas.contains(NUMERO_CREDITO), "número do crédito consultado virou tag");
+    }
+}
@@ -0,0 +1,184 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.replica.LeituraNoPrimario;
+import com.exemplo.credito.replica.ReplicasLeitura;
+import com.exemplo.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Duas bases H2 no papel de réplicas, cada uma com um valor diferente para o mesmo crédito,
+ * para saber de onde veio cada leitura.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primario-replicas",
+        "credito.replicas.enabled=true",
+        "credito.replicas.urls=" + ReplicasLeituraIntegrationTest.REPLICA_1 + "," + ReplicasLeituraIntegrationTest.REPLICA_2,
+        "credito.replicas.balanceamento=ROUND_ROBIN",
+        "credito.replicas.consulta-atraso=SELECT segundos FROM atraso_replicacao",
+        "credito.replicas.atraso-maximo=PT10S",
+        "credito.replicas.intervalo-verificacao=PT1H",
+        "credito.replicas.tamanho-pool=2",
+        "credito.replicas.timeout-conexao=PT0.25S"})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+class ReplicasLeituraIntegrationTest {
+
+    static final String REPLICA_1 = "jdbc:h2:mem:replica-1;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2 = "jdbc:h2:mem:replica-2;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private ReplicasLeitura replicasLeitura;
+
+    @Autowired
+    @Qualifier("dataSourcePrimario")
+    private DataSource primario;
+
+    @BeforeAll
+    static void criarReplicas() throws SQLException {
+        criarReplica(REPLICA_1, "1.00");
+        criarReplica(REPLICA_2, "2.00");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        creditoRepository.deleteAll();
+        definirAtraso(REPLICA_1, 0);
+        definirAtraso(REPLICA_2, 0);
+        replicasLeitura.verificar();
+    }
+
+    @Test
+    void deveLerDasReplicasEGravarNoPrimario() {
+        assertEquals(Set.of(new BigDecimal("1.00"), new BigDecimal("2.00")), valoresLidos(2));
+
+        creditoRepository.save(criarCredito("GRAVADO-NO-PRIMARIO"));
+
+        assertEquals(1, new JdbcTemplate(primario).queryForObject(
+                "SELECT COUNT(*) FROM credito WHERE numero_credito = 'GRAVADO-NO-PRIMARIO'", Integer.class));
+        // As réplicas de teste não recebem a replicação: só a leitura no primário vê a gravação
+        assertTrue(creditoRepository.findByNumeroCredito("GRAVADO-NO-PRIMARIO").isEmpty());
+        AtomicReference<Optional<CreditoDTO>> lido = new AtomicReference<>();
+        LeituraNoPrimario.executar(() -> lido.set(creditoRepository.findByNumeroCredito("GRAVADO-NO-PRIMARIO")));
+        assertTrue(lido.get().isPresent());
+    }
+
+    @Test
+    void deveTirarDoRodizioAReplicaAtrasadaEDevolverDepois() throws SQLException {
+        definirAtraso(REPLICA_1, 60);
+        replicasLeitura.verificar();
+        assertEquals(Set.of(new BigDecimal("2.00")), valoresLidos(4));
+
+        // Nenhuma réplica disponível: as leituras vão para o primário, onde o crédito não existe
+        definirAtraso(REPLICA_2, 60);
+        replicasLeitura.verificar();
+        assertTrue(creditoRepository.findByNumeroCredito("REPLICADO").isEmpty());
+
+        definirAtraso(REPLICA_1, 0);
+        definirAtraso(REPLICA_2, 0);
+        replicasLeitura.verificar();
+        assertEquals(Set.of(new BigDecimal("1.00"), new BigDecimal("2.00")), valoresLidos(2));
+    }
+
+    @Test
+    void deveLerDoPrimarioSemEjetarReplicasComPoolOcupado() throws SQLException {
+        List<Connection> emUso = new ArrayList<>();
+        try {
+            // Duas conexões por réplica esgotam os dois pools
+            for (int i = 0; i < 4; i++) {
+                emUso.add(replicasLeitura.getConnection());
+            }
+            try (Connection conexao = replicasLeitura.getConnection();
+                 Statement consulta = conexao.createStatement();
+                 ResultSet resultado = consulta.executeQuery(
+                         "SELECT COUNT(*) FROM credito WHERE numero_credito = 'REPLICADO'")) {
+                // Só as réplicas têm o crédito REPLICADO
+                assertTrue(resultado.next());
+                assertEquals(0, resultado.getInt(1));
+            }
+            // A verificação também não consegue conexão, e nem por isso tira as réplicas do rodízio
+            replicasLeitura.verificar();
+        } finally {
+            for (Connection conexao : emUso) {
+                conexao.close();
+            }
+        }
+
+        // As duas réplicas continuam no rodízio
+        assertEquals(Set.of(new BigDecimal("1.00"), new BigDecimal("2.00")), valoresLidos(2));
+    }
+
+    private Set<BigDecimal> valoresLidos(int leituras) {
+        Set<BigDecimal> valores = new HashSet<>();
+        for (int i = 0; i < leituras; i++) {
+            valores.add(creditoRepository.findByNumeroCredito("REPLICADO").orElseThrow().valorIssqn());
+        }
+        return valores;
+    }
+
+    private static void criarReplica(String url, String valorIssqn) throws SQLException {
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "password");
+             Statement comando = conexao.createStatement()) {
+            comando.execute("RUNSCRIPT FROM 'classpath:schema.sql'");
+            comando.execute("CREATE TABLE atraso_replicacao (segundos INT NOT NULL)");
+            comando.execute("INSERT INTO atraso_replicacao VALUES (0)");
+            comando.execute("INSERT INTO credito (numero_credito, numero_nfse, data_constituicao, valor_issqn, "
+                    + "tipo_credito, simples_nacional, aliquota, valor_faturado, valor_deducao, base_calculo) "
+                    + "VALUES ('REPLICADO', 'NFSE-REPLICADO', DATE '2024-02-25', " + valorIssqn + ", 'ISSQN', "
+                    + "FALSE, 5.00, 20.00, 0.00, 20.00)");
+        }
+    }
+
+    private static void definirAtraso(String url, int segundos) throws SQLException {
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "password");
+             Statement comando = conexao.createStatement()) {
+            comando.executeUpdate("UPDATE atraso_replicacao SET segundos = " + segundos);
+        }
+    }
+
+    private Credito criarCredito(String numeroCredito) {
+        Credito credito = new Credito();
+        credito.setNumeroCredito(numeroCredito);
+        credito.setNumeroNfse("NFSE-PRIMARIO");
+        credito.setDataConstituicao(LocalDate.of(2024, 2, 25));
+        credito.setTipoCredito("PRINCIPAL");
+        credito.setValorFaturado(new BigDecimal("1000.00"));
+        credito.setBaseCalculo(new BigDecimal("1000.00"));
+        credito.setAliquota(new BigDecimal("5.00"));
+        credito.setValorIssqn(new BigDecimal("50.00"));
+        credito.setValorDeducao(new BigDecimal("0.00"));
+        credito.setSimplesNacional(false);
+        return credito;
+    }
+}
@@ -0,0 +1,141 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.memoria.ResumoCreditos;
+import com.exemplo.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Resumos somados incrementalmente: as linhas gravadas entram nos totais na atualização seguinte,
+ * e alterações na reconstrução. Usa um banco próprio para que os ids e os totais não dependam dos outros testes.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:resumo",
+        "credito.resumo.enabled=true",
+        "credito.resumo.intervalo-atualizacao=PT1H",
+        "credito.resumo.intervalo-reconstrucao=PT1H"})
+@ActiveProfiles("test")
+@Import(TestConfig.class)
+@AutoConfigureMockMvc
+class ResumoCreditosIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CreditoRepository creditoRepository;
+
+    @Autowired
+    private ResumoCreditos resumoCreditos;
+
+    @AfterEach
+    void tearDown() {
+        creditoRepository.deleteAll();
+        resumoCreditos.reconstruir();
+    }
+
+    @Test
+    void deveSomarLinhasNovasNosResumos() throws Exception {
+        creditoRepository.save(criarCredito("RES-1", "NFSE-RES", LocalDate.of(2024, 2, 25), "ISSQN", true, "1500.75"));
+        creditoRepository.save(criarCredito("RES-2", "NFSE-RES", LocalDate.of(2024, 2, 26), "ISSQN", false, "1200.50"));
+        resumoCreditos.atualizar();
+
+        mockMvc.perform(get("/api/creditos/resumo/nfse/NFSE-RES"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.chave").value("NFSE-RES"))
+                .andExpect(jsonPath("$.quantidade").value(2))
+                .andExpect(jsonPath("$.valorIssqn").value(2701.25))
+                .andExpect(jsonPath("$.valorFaturado").value(2000.00));
+
+        creditoRepository.save(criarCredito("RES-3", "NFSE-RES", LocalDate.of(2024, 3, 1), "Outros", false, "0.25"));
+        resumoCreditos.atualizar();
+
+        mockMvc.perform(get("/api/creditos/resumo/nfse/NFSE-RES"))
+                .andExpect(jsonPath("$.quantidade").value(3))
+                .andExpect(jsonPath("$.valorIssqn").value(2701.50));
+        mockMvc.perform(get("/api/creditos/resumo/tipo-credito"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].chave").value("ISSQN"))
+                .andExpect(jsonPath("$[0].quantidade").value(2))
+                .andExpect(jsonPath("$[1].chave").value("Outros"))
+                .andExpect(jsonPath("$[1].valorIssqn").value(0.25));
+        mockMvc.perform(get("/api/creditos/resumo/simples-nacional"))
+                .andExpect(jsonPath("$[0].chave").value("false"))
+                .andExpect(jsonPath("$[0].quantidade").value(2))
+                .andExpect(jsonPath("$[1].chave").value("true"))
+                .andExpect(jsonPath("$[1].valorIssqn").value(1500.75));
+        mockMvc.perform(get("/api/creditos/resumo/mes"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].chave").value("2024-02"))
+                .andExpect(jsonPath("$[0].quantidade").value(2))
+                .andExpect(jsonPath("$[1].chave").value("2024-03"));
+        mockMvc.perform(get("/api/creditos/resumo/mes").param("de", "2024-03"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].valorIssqn").value(0.25));
+    }
+
+    @Test
+    void deveRefletirAlteracoesNaReconstrucao() throws Exception {
+        Credito credito = creditoRepository.save(
+                criarCredito("RES-4", "NFSE-ALT", LocalDate.of(2024, 5, 10), "ISSQN", false, "100.00"));
+        resumoCreditos.atualizar();
+
+        credito.setValorIssqn(new BigDecimal("150.00"));
+        credito.setTipoCredito("ISS");
+        creditoRepository.save(credito);
+
+        // Linhas já somadas só mudam nos grupos na reconstrução
+        resumoCreditos.atualizar();
+        mockMvc.perform(get("/api/creditos/resumo/nfse/NFSE-ALT"))
+                .andExpect(jsonPath("$.valorIssqn").value(100.00));
+        mockMvc.perform(get("/api/creditos/resumo/tipo-credito"))
+                .andExpect(jsonPath("$[0].chave").value("ISSQN"));
+
+        resumoCreditos.reconstruir();
+        mockMvc.perform(get("/api/creditos/resumo/nfse/NFSE-ALT"))
+                .andExpect(jsonPath("$.valorIssqn").value(150.00));
+        mockMvc.perform(get("/api/creditos/resumo/tipo-credito"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].chave").value("ISS"))
+                .andExpect(jsonPath("$[0].valorIssqn").value(150.00));
+    }
+
+    @Test
+    void deveRetornarTotaisZeradosParaNfseSemCreditos() throws Exception {
+        mockMvc.perform(get("/api/creditos/resumo/nfse/NFSE_INEXISTENTE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantidade").value(0))
+                .andExpect(jsonPath("$.valorIssqn").value(0.0));
+    }
+
+    private Credito criarCredito(String numeroCredito, String numeroNfse, LocalDate dataConstituicao,
+                                 String tipoCredito, boolean simplesNacional, String valorIssqn) {
+        Credito credito = new Credito();
+        credito.setNumeroCredito(numeroCredito);
+        credito.setNumeroNfse(numeroNfse);
+        credito.setDataConstituicao(dataConstituicao);
+        credito.setTipoCredito(tipoCredito);
+        credito.setSimplesNacional(simplesNacional);
+        credito.setValorFaturado(new BigDecimal("1000.00"));
+        credito.setBaseCalculo(new BigDecimal("1000.00"));
+        credito.setAliquota(new BigDecimal("5.00"));
+        credito.setValorIssqn(new BigDecimal(valorIssqn));
+        credito.setValorDeducao(new BigDecimal("0.00"));
+        return credito;
+    }
+}
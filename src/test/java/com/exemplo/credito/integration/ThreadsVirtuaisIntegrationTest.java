@@ -0,0 +1,133 @@
+package com.exemplo.credito.integration;
+
+import com.exemplo.credito.CreditoApiApplication;
+import com.exemplo.credito.config.TestConfig;
+import com.exemplo.credito.repository.CreditoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara requisições concorrentes sustentadas com threads de plataforma e com threads virtuais.
+ *
+ * Cada modo sobe a aplicação numa porta aleatória com o Tomcat limitado a poucas threads e um
+ * repositório que espera {@link #LATENCIA_BANCO} antes de cada consulta, simulando a ida ao
+ * Postgres. Com threads de plataforma as requisições enfileiram atrás das threads do Tomcat;
+ * com threads virtuais a espera libera a carrier e o limite passa a ser o pool do Hikari
+ * (a transação de leitura segura a conexão durante a espera).
+ *
+ * Compara tempos de parede, então roda só com o perfil "medicao" (e em JDK 21+).
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@Tag("medicao")
+class ThreadsVirtuaisIntegrationTest {
+
+    private static final int THREADS_TOMCAT = 4;
+    private static final int REQUISICOES_CONCORRENTES = 40;
+    private static final int RODADAS_AQUECIMENTO = 2;
+    private static final int RODADAS = 3;
+    private static final Duration LATENCIA_BANCO = Duration.ofMillis(250);
+
+    @Test
+    @DisplayName("Threads virtuais devem sustentar mais requisições concorrentes que o limite do Tomcat")
+    void threadsVirtuaisDevemSustentarMaisConcorrencia() throws Exception {
+        long nanosPlataforma = medirRodadas(false);
+        long nanosVirtuais = medirRodadas(true);
+
+        // Plataforma: REQUISICOES/THREADS_TOMCAT ondas de LATENCIA por rodada; virtuais: REQUISICOES/pool (10)
+        assertTrue(nanosVirtuais * 2 < nanosPlataforma,
+                "virtuais=" + nanosVirtuais / 1_000_000 + " ms, plataforma=" + nanosPlataforma / 1_000_000 + " ms");
+    }
+
+    private long medirRodadas(boolean threadsVirtuais) throws Exception {
+        try (ConfigurableApplicationContext contexto = iniciar(threadsVirtuais)) {
+            int porta = ((WebServerApplicationContext) contexto).getWebServer().getPort();
+            HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            HttpRequest requisicao = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + porta + "/api/creditos/NFSE-CONCORRENCIA")).build();
+
+            // Aquecimento: conexões, JIT e primeira execução da consulta
+            for (int i = 0; i < RODADAS_AQUECIMENTO; i++) {
+                executarRodada(cliente, requisicao);
+            }
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < RODADAS; i++) {
+                executarRodada(cliente, requisicao);
+            }
+            return System.nanoTime() - inicio;
+        }
+    }
+
+    private static void executarRodada(HttpClient cliente, HttpRequest requisicao) {
+        List<CompletableFuture<HttpResponse<String>>> respostas = new ArrayList<>(REQUISICOES_CONCORRENTES);
+        for (int i = 0; i < REQUISICOES_CONCORRENTES; i++) {
+            respostas.add(cliente.sendAsync(requisicao, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> resposta : respostas) {
+            assertEquals(200, resposta.join().statusCode());
+        }
+    }
+
+    private static ConfigurableApplicationContext iniciar(boolean threadsVirtuais) {
+        // TestConfig substitui o publisher e a fila de auditoria por mocks (sem Kafka)
+        return new SpringApplicationBuilder(CreditoApiApplication.class, TestConfig.class)
+                .profiles("test")
+                .initializers(contexto -> contexto.getBeanFactory().addBeanPostProcessor(new LatenciaRepositorio()))
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + threadsVirtuais,
+                        "--server.tomcat.threads.max=" + THREADS_TOMCAT,
+                        "--server.tomcat.threads.min-spare=" + THREADS_TOMCAT,
+                        // Banco e spool próprios, sem interferir nos contextos dos outros testes
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID(),
+                        "--auditoria.spool.enabled=false",
+                        "--credito.cache.enabled=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.exemplo.credito=WARN");
+    }
+
+    /**
+     * Envolve o CreditoRepository num proxy que dorme antes de cada consulta.
+     */
+    private static final class LatenciaRepositorio implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof CreditoRepository repositorio)) {
+                return bean;
+            }
+            return Proxy.newProxyInstance(CreditoRepository.class.getClassLoader(),
+                    new Class<?>[]{CreditoRepository.class}, (proxy, metodo, argumentos) -> {
+                        if (metodo.getName().startsWith("find")) {
+                            Thread.sleep(LATENCIA_BANCO.toMillis());
+                        }
+                        try {
+                            return metodo.invoke(repositorio, argumentos);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
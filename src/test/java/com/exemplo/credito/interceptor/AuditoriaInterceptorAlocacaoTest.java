@@ -0,0 +1,96 @@
+package com.exemplo.credito.interceptor;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.service.AuditoriaFila;
+import com.exemplo.credito.service.AuditoriaPublisher;
+import com.exemplo.credito.service.PoliticaOverflow;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Garante que o caminho quente do {@link AuditoriaInterceptor} continue com alocação mínima,
+ * medindo os bytes alocados pela thread por requisição com o ThreadMXBean da JVM. Depende do JIT
+ * e do coletor da JVM em uso, por isso roda só com o perfil "medicao"; o AuditoriaInterceptorBenchmark
+ * mede o mesmo caminho (gc.alloc.rate.norm, com o mock incluído).
+ */
+@Tag("medicao")
+class AuditoriaInterceptorAlocacaoTest {
+
+    private static final int AQUECIMENTO = 50_000;
+    private static final int MEDICOES = 20_000;
+
+    /**
+     * Evento, id textual, timestamp (Instant + LocalDateTime), parâmetro extraído e valores
+     * boxed: cerca de 370 bytes sem o mock (o benchmark, com o mock, reporta 464 a 480 B/op).
+     * Antes desta versão o interceptor alocava cerca de 870 bytes.
+     */
+    private static final long LIMITE_BYTES_POR_REQUISICAO = 450;
+
+    @Test
+    @DisplayName("afterCompletion deve alocar poucos bytes por requisição")
+    void deveAlocarPoucoPorRequisicao() {
+        // Sem spool: a fila gira descartando o mais antigo, como com o spool cheio, e um mock do
+        // Mockito guardaria cada chamada
+        AuditoriaPublisher semSpool = new AuditoriaPublisher(null, null, null, null, new SimpleMeterRegistry()) {
+            @Override
+            public boolean arquivar(ConsultaAuditoriaEvent evento) {
+                return false;
+            }
+        };
+        AuditoriaFila fila = new AuditoriaFila(semSpool, 1024,
+                PoliticaOverflow.DESCARTAR_MAIS_ANTIGO, Duration.ZERO, 256, null, new SimpleMeterRegistry());
+        AuditoriaInterceptor interceptor = new AuditoriaInterceptor(fila);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/creditos/credito/123456");
+        request.addHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64)");
+        request.setRemoteAddr("192.168.1.100");
+        ContagemBytesFilter.RespostaContadora response =
+                new ContagemBytesFilter.RespostaContadora(new MockHttpServletResponse());
+
+        long bytesTotais = medirAlocacaoMedia(() -> requisicao(interceptor, request, response));
+        // O MockHttpServletRequest converte o nome do cabeçalho para minúsculas a cada busca;
+        // essa alocação é do mock, não do interceptor, e é descontada
+        long bytesMock = medirAlocacaoMedia(() -> {
+            request.getHeader("User-Agent");
+            request.getHeader("X-Forwarded-For");
+            request.getHeader("X-Real-IP");
+        });
+        long bytesPorRequisicao = bytesTotais - bytesMock;
+
+        System.out.printf("Alocação do interceptor de auditoria: %d bytes/requisição (mock: %d bytes)%n",
+                bytesPorRequisicao, bytesMock);
+        assertTrue(fila.profundidade() > 0);
+        assertTrue(bytesPorRequisicao <= LIMITE_BYTES_POR_REQUISICAO,
+                "Interceptor alocou " + bytesPorRequisicao + " bytes por requisição");
+    }
+
+    private static long medirAlocacaoMedia(Runnable operacao) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            operacao.run();
+        }
+
+        long inicio = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEDICOES; i++) {
+            operacao.run();
+        }
+        return (threadBean.getCurrentThreadAllocatedBytes() - inicio) / MEDICOES;
+    }
+
+    private static void requisicao(AuditoriaInterceptor interceptor, MockHttpServletRequest request,
+                                   ContagemBytesFilter.RespostaContadora response) {
+        interceptor.preHandle(request, response, null);
+        interceptor.afterCompletion(request, response, null, null);
+    }
+}
@@ -0,0 +1,121 @@
+package com.exemplo.credito.interceptor;
+
+import com.exemplo.credito.service.AuditoriaFila;
+import com.exemplo.credito.service.AuditoriaPublisher;
+import com.exemplo.credito.service.PoliticaOverflow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LimiteRequisicoesFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AuditoriaFila auditoriaFila;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        auditoriaFila = new AuditoriaFila(mock(AuditoriaPublisher.class), 1024,
+                PoliticaOverflow.DESCARTAR_MAIS_ANTIGO, Duration.ZERO, 256, null, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Deve admitir a rajada e recusar o excedente com 429 e Retry-After, por cliente")
+    void deveRecusarAcimaDaTaxa() throws Exception {
+        LimiteRequisicoesFilter filtro = novoFiltro(1.0, 3, 10);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, executar(filtro, requisicao("10.0.0.1", null)).getStatus());
+        }
+        MockHttpServletResponse recusada = executar(filtro, requisicao("10.0.0.1", null));
+
+        assertEquals(429, recusada.getStatus());
+        assertEquals("1", recusada.getHeader("Retry-After"));
+        assertTrue(recusada.getContentAsString().contains("\"status\":429"));
+        // Outro IP e a chave de API configurada têm buckets próprios; uma chave desconhecida fica no do IP
+        assertEquals(200, executar(filtro, requisicao("10.0.0.2", null)).getStatus());
+        assertEquals(200, executar(filtro, requisicao("10.0.0.1", "parceiro-a")).getStatus());
+        assertEquals(429, executar(filtro, requisicao("10.0.0.1", "chave-inventada")).getStatus());
+        assertEquals(2.0, meterRegistry.get("creditos.limite.rejeitadas").tag("motivo", "taxa").counter().count());
+    }
+
+    @Test
+    @DisplayName("X-Forwarded-For forjado não deve tirar o cliente do bucket do seu endereço")
+    void deveIgnorarXForwardedForForjado() throws Exception {
+        LimiteRequisicoesFilter filtro = novoFiltro(1.0, 1, 10);
+
+        assertEquals(200, executar(filtro, requisicao("10.0.0.1", null)).getStatus());
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest forjada = requisicao("10.0.0.1", null);
+            forjada.addHeader("X-Forwarded-For", "203.0.113." + i);
+            assertEquals(429, executar(filtro, forjada).getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve recusar requisições simultâneas acima do limite do cliente")
+    void deveRecusarAcimaDaConcorrencia() throws Exception {
+        LimiteRequisicoesFilter filtro = novoFiltro(1000.0, 100, 1);
+        MockHttpServletResponse[] aninhada = new MockHttpServletResponse[1];
+
+        // A segunda requisição do mesmo cliente chega enquanto a primeira ainda está na cadeia
+        FilterChain cadeia = (request, response) -> aninhada[0] = executar(filtro, requisicao("10.0.0.1", null));
+        MockHttpServletResponse primeira = new MockHttpServletResponse();
+        filtro.doFilter(requisicao("10.0.0.1", null), primeira, cadeia);
+
+        assertEquals(200, primeira.getStatus());
+        assertEquals(429, aninhada[0].getStatus());
+        assertEquals(200, executar(filtro, requisicao("10.0.0.1", null)).getStatus());
+        assertEquals(1.0, meterRegistry.get("creditos.limite.rejeitadas")
+                .tag("motivo", "concorrencia").counter().count());
+    }
+
+    @Test
+    @DisplayName("Deve auditar as recusas por amostragem, um evento por cliente no intervalo")
+    void deveAuditarRecusasPorAmostragem() throws Exception {
+        LimiteRequisicoesFilter filtro = novoFiltro(1.0, 1, 10);
+
+        for (int i = 0; i < 20; i++) {
+            executar(filtro, requisicao("10.0.0.1", null));
+        }
+
+        assertEquals(1, auditoriaFila.profundidade());
+        assertEquals(19.0, meterRegistry.get("creditos.limite.rejeitadas").tag("motivo", "taxa").counter().count());
+    }
+
+    private LimiteRequisicoesFilter novoFiltro(double requisicoesPorSegundo, int rajada, int concorrenciaMaxima) {
+        return new LimiteRequisicoesFilter(true, requisicoesPorSegundo, rajada, concorrenciaMaxima, "X-API-Key",
+                List.of("parceiro-a"), 1000, Duration.ofMinutes(10), Duration.ofMinutes(1), auditoriaFila,
+                new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry);
+    }
+
+    private static MockHttpServletRequest requisicao(String ip, String chaveApi) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/creditos/7891011");
+        request.setRemoteAddr(ip);
+        if (chaveApi != null) {
+            request.addHeader("X-API-Key", chaveApi);
+        }
+        return request;
+    }
+
+    private static MockHttpServletResponse executar(LimiteRequisicoesFilter filtro, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filtro.doFilter(request, response, (req, res) -> { });
+        return response;
+    }
+}
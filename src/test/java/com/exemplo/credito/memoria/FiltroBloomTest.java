@@ -0,0 +1,69 @@
+package com.exemplo.credito.memoria;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FiltroBloomTest {
+
+    @Test
+    @DisplayName("Nunca deve responder que uma chave adicionada não existe")
+    void naoDeveTerFalsosNegativos() {
+        FiltroBloom filtro = FiltroBloom.dimensionar(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filtro.adicionar("CRED" + i);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filtro.podeConter("CRED" + i), "CRED" + i);
+        }
+        // Só ficam de fora as chaves que já caíam num falso positivo ao serem adicionadas
+        assertEquals(100_000, filtro.elementos(), 1_000);
+    }
+
+    @Test
+    @DisplayName("Chave repetida não deve contar de novo nem aumentar a taxa estimada")
+    void naoDeveContarChaveRepetida() {
+        FiltroBloom filtro = FiltroBloom.dimensionar(1_000, 0.01);
+        assertTrue(filtro.adicionar("NFSE1"));
+        double taxa = filtro.taxaFalsosPositivosEstimada();
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(filtro.adicionar("NFSE1"));
+        }
+
+        assertEquals(1, filtro.elementos());
+        assertEquals(taxa, filtro.taxaFalsosPositivosEstimada());
+    }
+
+    @Test
+    @DisplayName("Deve manter os falsos positivos perto da taxa configurada, com pouco mais de um byte por chave")
+    void deveRespeitarTaxaDeFalsosPositivos() {
+        int elementos = 100_000;
+        FiltroBloom filtro = FiltroBloom.dimensionar(elementos, 0.01);
+        for (int i = 0; i < elementos; i++) {
+            filtro.adicionar("CRED" + i);
+        }
+
+        int falsosPositivos = 0;
+        int consultas = 200_000;
+        for (int i = 0; i < consultas; i++) {
+            if (filtro.podeConter("INEXISTENTE" + i)) {
+                falsosPositivos++;
+            }
+        }
+        double taxa = (double) falsosPositivos / consultas;
+
+        assertTrue(taxa < 0.015, "Taxa de falsos positivos " + taxa);
+        assertEquals(0.01, filtro.taxaFalsosPositivosEstimada(), 0.002);
+        assertTrue(filtro.bytesOcupados() < elementos * 1.3, filtro.bytesOcupados() + " bytes");
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar dimensionamento inválido")
+    void deveRejeitarDimensionamentoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> FiltroBloom.dimensionar(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> FiltroBloom.dimensionar(1000, 1.0));
+    }
+}
@@ -0,0 +1,49 @@
+package com.exemplo.credito.memoria;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarcaIncrementalTest {
+
+    @Test
+    @DisplayName("Deve reler a partir da lacuna e aceitar só o id que a preenche")
+    void deveAceitarIdConfirmadoForaDeOrdem() {
+        MarcaIncremental marca = new MarcaIncremental(Duration.ofHours(1), 100);
+        assertTrue(marca.aceitar(1));
+        assertTrue(marca.aceitar(2));
+        assertTrue(marca.aceitar(5));
+        assertEquals(2, marca.lacunasPendentes());
+
+        // Ids 3 e 4 ainda não confirmados: a próxima leitura recomeça depois do 2
+        assertEquals(2, marca.inicioLeitura());
+        assertTrue(marca.aceitar(4));
+        assertFalse(marca.aceitar(5));
+        assertTrue(marca.aceitar(6));
+
+        assertEquals(2, marca.inicioLeitura());
+        assertFalse(marca.aceitar(4));
+        assertEquals(6, marca.ultimoId());
+    }
+
+    @Test
+    @DisplayName("Deve desistir das lacunas expiradas ou além da margem")
+    void deveDesistirDeLacunasAntigas() {
+        MarcaIncremental expira = new MarcaIncremental(Duration.ZERO, 100);
+        expira.aceitar(1);
+        expira.aceitar(10);
+        assertEquals(10, expira.inicioLeitura());
+        assertEquals(0, expira.lacunasPendentes());
+
+        MarcaIncremental margem = new MarcaIncremental(Duration.ofHours(1), 5);
+        margem.aceitar(1);
+        margem.aceitar(1_000_000);
+        assertEquals(5, margem.lacunasPendentes());
+        assertEquals(999_994, margem.inicioLeitura());
+        margem.aceitar(1_000_003);
+        assertEquals(999_997, margem.inicioLeitura());
+    }
+}
@@ -0,0 +1,183 @@
+package com.exemplo.credito.memoria;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.entity.Credito;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TabelaCreditosTest {
+
+    @Test
+    @DisplayName("Deve devolver os créditos da NFS-e em ordem de id, com os valores preservados")
+    void deveBuscarPorNfse() {
+        TabelaCreditos tabela = new TabelaCreditos();
+        tabela.adicionar(credito(1L, "123456", "7891011"));
+        tabela.adicionar(credito(2L, "654321", "1122334"));
+        tabela.adicionar(credito(3L, "789012", "7891011"));
+        tabela.publicar();
+
+        List<CreditoDTO> creditos = tabela.buscarPorNfse("7891011");
+
+        assertEquals(2, creditos.size());
+        assertEquals(credito(1L, "123456", "7891011"), creditos.get(0));
+        assertEquals(credito(3L, "789012", "7891011"), creditos.get(1));
+        assertEquals(new BigDecimal("1500.75"), creditos.get(0).valorIssqn());
+        assertTrue(tabela.buscarPorNfse("NFSE_INEXISTENTE").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve buscar pelo número do crédito")
+    void deveBuscarPorNumeroCredito() {
+        TabelaCreditos tabela = new TabelaCreditos();
+        tabela.adicionar(credito(1L, "123456", "7891011"));
+        tabela.adicionar(credito(2L, "654321", "1122334"));
+        tabela.publicar();
+
+        assertEquals(Optional.of(credito(2L, "654321", "1122334")), tabela.buscarPorNumeroCredito("654321"));
+        assertEquals(Optional.empty(), tabela.buscarPorNumeroCredito("999999"));
+        assertEquals(Optional.empty(), tabela.buscarPorNumeroCredito(null));
+    }
+
+    @Test
+    @DisplayName("Linhas adicionadas só ficam visíveis depois de publicadas")
+    void deveExporLinhasSomenteAposPublicar() {
+        TabelaCreditos tabela = new TabelaCreditos();
+        tabela.adicionar(credito(1L, "123456", "7891011"));
+        tabela.publicar();
+
+        tabela.adicionar(credito(2L, "789012", "7891011"));
+        tabela.adicionar(credito(3L, "555555", "NOVA"));
+
+        assertEquals(1, tabela.buscarPorNfse("7891011").size());
+        assertTrue(tabela.buscarPorNfse("NOVA").isEmpty());
+        assertEquals(1, tabela.linhas());
+        assertEquals(3L, tabela.ultimoIdAdicionado());
+
+        tabela.publicar();
+
+        assertEquals(2, tabela.buscarPorNfse("7891011").size());
+        assertEquals(1, tabela.buscarPorNfse("NOVA").size());
+        assertEquals(3, tabela.linhas());
+    }
+
+    @Test
+    @DisplayName("Deve paginar os créditos da NFS-e pelo id")
+    void devePaginarPorId() {
+        TabelaCreditos tabela = new TabelaCreditos();
+        for (long id = 1; id <= 10; id++) {
+            tabela.adicionar(credito(id, "CRED" + id, id % 2 == 0 ? "PAR" : "IMPAR"));
+        }
+        tabela.publicar();
+
+        List<CreditoDTO> pagina = tabela.buscarPaginaPorNfse("PAR", 4L, 2);
+
+        assertEquals(List.of(6L, 8L), pagina.stream().map(CreditoDTO::id).toList());
+        assertTrue(tabela.buscarPaginaPorNfse("PAR", 10L, 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve manter as buscas corretas ao crescer colunas e índices")
+    void deveCrescerColunasEIndices() {
+        TabelaCreditos tabela = new TabelaCreditos(16);
+        for (long id = 1; id <= 50_000; id++) {
+            tabela.adicionar(credito(id, "CRED" + id, "NFSE" + (id % 1000)));
+            if (id % 7_000 == 0) {
+                tabela.publicar();
+            }
+        }
+        tabela.publicar();
+
+        assertEquals(50_000, tabela.linhas());
+        assertEquals(50, tabela.buscarPorNfse("NFSE7").size());
+        assertEquals(49_999L, tabela.buscarPorNumeroCredito("CRED49999").orElseThrow().id());
+        assertEquals("NFSE999", tabela.buscarPorNumeroCredito("CRED999").orElseThrow().numeroNfse());
+    }
+
+    @Test
+    @DisplayName("Deve devolver em ordem de id as linhas que chegaram fora de ordem")
+    void deveOrdenarLinhasForaDeOrdem() {
+        TabelaCreditos tabela = new TabelaCreditos();
+        tabela.adicionar(credito(1L, "CRED1", "7891011"));
+        tabela.adicionar(credito(4L, "CRED4", "7891011"));
+        tabela.publicar();
+        // Commit atrasado: o id 2 só aparece depois do 4
+        tabela.adicionar(credito(2L, "CRED2", "7891011"));
+        tabela.adicionar(credito(3L, "CRED4", "1122334"));
+        tabela.publicar();
+
+        assertEquals(List.of(1L, 2L, 4L), tabela.buscarPorNfse("7891011").stream().map(CreditoDTO::id).toList());
+        assertEquals(List.of(2L, 4L), tabela.buscarPaginaPorNfse("7891011", 1L, 2).stream()
+                .map(CreditoDTO::id).toList());
+        assertEquals(3L, tabela.buscarPorNumeroCredito("CRED4").orElseThrow().id());
+        assertEquals(4L, tabela.ultimoIdAdicionado());
+        assertEquals(4, tabela.linhas());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar linhas sem id e valores com mais casas que o schema")
+    void deveRejeitarLinhasInvalidas() {
+        TabelaCreditos tabela = new TabelaCreditos();
+        tabela.adicionar(credito(5L, "123456", "7891011"));
+
+        assertThrows(IllegalArgumentException.class, () -> tabela.adicionar(credito(null, "654321", "7891011")));
+        assertThrows(ArithmeticException.class, () -> tabela.adicionar(new CreditoDTO(6L, "1", "2",
+                LocalDate.of(2024, 1, 1), new BigDecimal("1.005"), "ISSQN", false, BigDecimal.ONE,
+                BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.ONE, 0, null)));
+    }
+
+    @Test
+    @DisplayName("Ocupa muito menos heap por linha que as entidades carregadas")
+    void deveOcuparMenosQueEntidades() {
+        int linhas = 100_000;
+        TabelaCreditos tabela = new TabelaCreditos();
+        for (long id = 1; id <= linhas; id++) {
+            tabela.adicionar(credito(id, "CRED" + id, "NFSE" + (id / 3)));
+        }
+        tabela.publicar();
+        long bytesTabelaPorLinha = tabela.bytesOcupados() / linhas;
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long inicio = threadBean.getCurrentThreadAllocatedBytes();
+        List<Credito> entidades = new ArrayList<>(linhas);
+        for (long id = 1; id <= linhas; id++) {
+            entidades.add(entidade(id, "CRED" + id, "NFSE" + (id / 3)));
+        }
+        long bytesEntidadePorLinha = (threadBean.getCurrentThreadAllocatedBytes() - inicio) / linhas;
+
+        assertEquals(linhas, entidades.size());
+        assertTrue(bytesTabelaPorLinha * 2 < bytesEntidadePorLinha,
+                "Tabela ocupa " + bytesTabelaPorLinha + " bytes por linha");
+    }
+
+    private static CreditoDTO credito(Long id, String numeroCredito, String numeroNfse) {
+        return new CreditoDTO(id, numeroCredito, numeroNfse, LocalDate.of(2024, 2, 25),
+                new BigDecimal("1500.75"), "ISSQN", true, new BigDecimal("5.50"),
+                new BigDecimal("30000.00"), new BigDecimal("5000.00"), new BigDecimal("25000.00"), 0, null);
+    }
+
+    private static Credito entidade(long id, String numeroCredito, String numeroNfse) {
+        Credito credito = new Credito();
+        credito.setId(id);
+        credito.setNumeroCredito(numeroCredito);
+        credito.setNumeroNfse(numeroNfse);
+        credito.setDataConstituicao(LocalDate.of(2024, 2, 25));
+        credito.setValorIssqn(new BigDecimal("1500.75"));
+        credito.setTipoCredito(new String("ISSQN"));
+        credito.setSimplesNacional(true);
+        credito.setAliquota(new BigDecimal("5.50"));
+        credito.setValorFaturado(new BigDecimal("30000.00"));
+        credito.setValorDeducao(new BigDecimal("5000.00"));
+        credito.setBaseCalculo(new BigDecimal("25000.00"));
+        return credito;
+    }
+}
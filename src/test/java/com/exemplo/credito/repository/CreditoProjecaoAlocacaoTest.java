@@ -0,0 +1,111 @@
+package com.exemplo.credito.repository;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.entity.Credito;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compara a alocação por consulta entre carregar entidades gerenciadas (antes) e projeções
+ * CreditoDTO (depois), medindo os bytes alocados pela thread com o ThreadMXBean da JVM.
+ * Demorada (milhares de linhas por consulta), roda só com o perfil "medicao".
+ */
+@DataJpaTest
+@Tag("medicao")
+@ActiveProfiles("test")
+class CreditoProjecaoAlocacaoTest {
+
+    private static final String NFSE = "NFSE-ALOCACAO";
+    private static final int QUANTIDADE_CREDITOS = 2_000;
+    private static final int AQUECIMENTO = 10;
+    private static final int MEDICOES = 20;
+
+    @Autowired
+    private CreditoRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        List<Credito> creditos = new ArrayList<>(QUANTIDADE_CREDITOS);
+        for (int i = 0; i < QUANTIDADE_CREDITOS; i++) {
+            Credito credito = new Credito();
+            credito.setNumeroCredito("C" + i);
+            credito.setNumeroNfse(NFSE);
+            credito.setDataConstituicao(LocalDate.of(2024, 2, 25));
+            credito.setTipoCredito("ISSQN");
+            credito.setValorFaturado(new BigDecimal("1000.00"));
+            credito.setBaseCalculo(new BigDecimal("1000.00"));
+            credito.setAliquota(new BigDecimal("5.00"));
+            credito.setValorIssqn(new BigDecimal("50.00"));
+            credito.setValorDeducao(new BigDecimal("0.00"));
+            credito.setSimplesNacional(false);
+            creditos.add(credito);
+        }
+        repository.saveAll(creditos);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Projeção DTO deve alocar menos por consulta que entidades gerenciadas")
+    void projecaoDeveAlocarMenosQueEntidades() {
+        long bytesEntidade = medirAlocacaoMedia(this::consultarEntidades);
+        long bytesProjecao = medirAlocacaoMedia(this::consultarProjecoes);
+
+        assertTrue(bytesProjecao < bytesEntidade,
+                "Projeção alocou " + bytesProjecao + " bytes, entidades " + bytesEntidade + " bytes");
+    }
+
+    // Caminho antigo: entidades no contexto de persistência + dirty checking no flush
+    private int consultarEntidades() {
+        List<Credito> creditos = entityManager
+                .createQuery("select c from Credito c where c.numeroNfse = :numeroNfse", Credito.class)
+                .setParameter("numeroNfse", NFSE)
+                .getResultList();
+        entityManager.flush();
+        entityManager.clear();
+        return creditos.size();
+    }
+
+    private int consultarProjecoes() {
+        List<CreditoDTO> creditos = repository.findByNumeroNfse(NFSE);
+        entityManager.clear();
+        return creditos.size();
+    }
+
+    private static long medirAlocacaoMedia(ConsultaMedida consulta) {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            assertEquals(QUANTIDADE_CREDITOS, consulta.executar());
+        }
+
+        long inicio = threadBean.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEDICOES; i++) {
+            consulta.executar();
+        }
+        return (threadBean.getCurrentThreadAllocatedBytes() - inicio) / MEDICOES;
+    }
+
+    @FunctionalInterface
+    private interface ConsultaMedida {
+        int executar();
+    }
+}
@@ -0,0 +1,159 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import com.exemplo.credito.event.ResumoAuditoriaEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditoriaAgregadorTest {
+
+    private static final String ROTA = "/api/creditos/{numeroNfse}";
+
+    @Mock
+    private AuditoriaPublisher auditoriaPublisher;
+
+    @Test
+    @DisplayName("Deve resumir a janela por rota e status, com percentis e clientes limitados")
+    void deveResumirJanelaPorRotaEStatus() throws Exception {
+        // Given
+        AuditoriaAgregador agregador = criarAgregador(0, 3);
+        for (int i = 1; i <= 100; i++) {
+            agregador.registrar(evento(ROTA, 200, (long) i, "10.0.0." + (i % 5)));
+        }
+        agregador.registrar(evento(null, 404, 7L, "10.0.0.1"));
+
+        // When
+        ResumoAuditoriaEvent resumo = agregador.fecharJanela();
+
+        // Then
+        assertEquals(101, resumo.eventos());
+        assertEquals(0, resumo.amostrados());
+        assertEquals(2, resumo.rotas().size());
+
+        ResumoAuditoriaEvent.PorRota sucesso = porStatus(resumo, 200);
+        assertEquals(ROTA, sucesso.rota());
+        assertEquals(100, sucesso.quantidade());
+        assertEquals(50, sucesso.p50(), 1);
+        assertEquals(99, sucesso.p99(), 1);
+        assertEquals(100, sucesso.maximo(), 1);
+        byte[] histograma = Base64.getDecoder().decode(sucesso.histograma());
+        assertEquals(100, Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(histograma), 0)
+                .getTotalCount());
+        assertEquals(AuditoriaAgregador.ROTA_DESCONHECIDA, porStatus(resumo, 404).rota());
+
+        // Três combinações de rota e cliente; o resto vai para "outros" de cada rota
+        assertEquals(5, resumo.clientes().size());
+        assertEquals(101, resumo.clientes().stream().mapToLong(ResumoAuditoriaEvent.PorCliente::quantidade).sum());
+        assertTrue(resumo.clientes().stream().anyMatch(c -> AuditoriaAgregador.OUTROS_CLIENTES.equals(c.cliente())));
+
+        // A janela seguinte começa vazia
+        assertEquals(0, agregador.fecharJanela().eventos());
+    }
+
+    @Test
+    @DisplayName("Deve enfileirar só os eventos amostrados")
+    void deveEnfileirarSoEventosAmostrados() throws InterruptedException {
+        // Given
+        AuditoriaAgregador semAmostragem = criarAgregador(0, 100);
+        AuditoriaAgregador todos = criarAgregador(1, 100);
+        AuditoriaFila filaAgregada = criarFila(semAmostragem);
+        AuditoriaFila filaAmostrada = criarFila(todos);
+
+        try {
+            // When
+            for (int i = 0; i < 10; i++) {
+                assertTrue(filaAgregada.enfileirar(evento(ROTA, 200, 5L, "10.0.0.1")));
+                assertTrue(filaAmostrada.enfileirar(evento(ROTA, 200, 5L, "10.0.0.1")));
+            }
+
+            // Then
+            assertEquals(0, filaAgregada.profundidade());
+            assertEquals(10, filaAmostrada.profundidade());
+            assertEquals(10, semAmostragem.fecharJanela().eventos());
+            ResumoAuditoriaEvent resumo = todos.fecharJanela();
+            assertEquals(10, resumo.eventos());
+            assertEquals(10, resumo.amostrados());
+        } finally {
+            filaAgregada.parar();
+            filaAmostrada.parar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve publicar um resumo por janela sem perder eventos registrados durante a troca")
+    void devePublicarResumoSemPerderEventosConcorrentes() throws Exception {
+        // Given
+        AuditoriaAgregador agregador = criarAgregador(0, 100);
+        ExecutorService produtores = Executors.newFixedThreadPool(4);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            tarefas.add(produtores.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    agregador.registrar(evento(ROTA, 200, (long) (i % 50), "10.0.0.1"));
+                }
+            }));
+        }
+
+        // When
+        while (tarefas.stream().anyMatch(tarefa -> !tarefa.isDone())) {
+            agregador.publicarJanela();
+        }
+        agregador.publicarJanela();
+        agregador.publicarJanela();
+        produtores.shutdown();
+        assertTrue(produtores.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then
+        ArgumentCaptor<ResumoAuditoriaEvent> resumos = ArgumentCaptor.forClass(ResumoAuditoriaEvent.class);
+        verify(auditoriaPublisher, atLeastOnce()).publicarResumo(resumos.capture());
+        assertTrue(resumos.getAllValues().stream().allMatch(resumo -> resumo.eventos() > 0));
+        assertEquals(20_000, resumos.getAllValues().stream().mapToLong(ResumoAuditoriaEvent::eventos).sum());
+        assertEquals(20_000, resumos.getAllValues().stream()
+                .flatMap(resumo -> resumo.rotas().stream())
+                .mapToLong(ResumoAuditoriaEvent.PorRota::quantidade).sum());
+    }
+
+    private AuditoriaAgregador criarAgregador(double taxaAmostragem, int maximoChaves) {
+        return new AuditoriaAgregador(auditoriaPublisher, Duration.ofHours(1), taxaAmostragem, maximoChaves,
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    private AuditoriaFila criarFila(AuditoriaAgregador agregador) {
+        return new AuditoriaFila(auditoriaPublisher, 64, PoliticaOverflow.DESCARTAR_MAIS_NOVO, Duration.ofMillis(5),
+                16, agregador, new SimpleMeterRegistry());
+    }
+
+    private static ResumoAuditoriaEvent.PorRota porStatus(ResumoAuditoriaEvent resumo, int status) {
+        return resumo.rotas().stream().filter(rota -> rota.status() == status).findFirst().orElseThrow();
+    }
+
+    private static ConsultaAuditoriaEvent evento(String rota, int status, Long tempoProcessamento, String ip) {
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setRota(rota);
+        evento.setMetodo("GET");
+        evento.setStatusResposta(status);
+        evento.setTempoProcessamento(tempoProcessamento);
+        evento.setIpOrigemString(ip);
+        return evento;
+    }
+}
@@ -0,0 +1,162 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.event.ConsultaAuditoriaEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AuditoriaFilaTest {
+
+    @Mock
+    private AuditoriaPublisher auditoriaPublisher;
+
+    private AuditoriaFila fila;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (fila != null) {
+            fila.parar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve gravar no spool o evento mais antigo quando a fila está cheia")
+    void deveArquivarMaisAntigoQuandoCheia() {
+        // Given
+        fila = criarFila(4, PoliticaOverflow.DESCARTAR_MAIS_ANTIGO);
+        when(auditoriaPublisher.arquivar(any())).thenReturn(true);
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            assertTrue(fila.enfileirar(evento("e" + i)));
+        }
+
+        // Then
+        assertEquals(4, fila.profundidade());
+        assertEquals(0, fila.quantidadeDescartados());
+        verify(auditoriaPublisher).arquivar(argThat(evento -> "e0".equals(evento.getId())));
+        verify(auditoriaPublisher).arquivar(argThat(evento -> "e1".equals(evento.getId())));
+    }
+
+    @Test
+    @DisplayName("Deve descartar o evento mais antigo quando a fila e o spool estão cheios")
+    void deveDescartarMaisAntigoQuandoCheia() {
+        // Given
+        fila = criarFila(4, PoliticaOverflow.DESCARTAR_MAIS_ANTIGO);
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            assertTrue(fila.enfileirar(evento("e" + i)));
+        }
+
+        // Then
+        assertEquals(4, fila.profundidade());
+        assertEquals(2, fila.quantidadeDescartados());
+    }
+
+    @Test
+    @DisplayName("Deve descartar o evento novo quando a fila está cheia")
+    void deveDescartarMaisNovoQuandoCheia() {
+        // Given
+        fila = criarFila(4, PoliticaOverflow.DESCARTAR_MAIS_NOVO);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertTrue(fila.enfileirar(evento("e" + i)));
+        }
+        boolean aceito = fila.enfileirar(evento("e4"));
+
+        // Then
+        assertFalse(aceito);
+        assertEquals(4, fila.profundidade());
+        assertEquals(1, fila.quantidadeDescartados());
+    }
+
+    @Test
+    @DisplayName("Deve desistir após o timeout quando a política é bloquear")
+    void deveDesistirAposTimeoutQuandoBloqueia() {
+        // Given
+        fila = criarFila(2, PoliticaOverflow.BLOQUEAR);
+        fila.enfileirar(evento("e0"));
+        fila.enfileirar(evento("e1"));
+
+        // When
+        long inicio = System.nanoTime();
+        boolean aceito = fila.enfileirar(evento("e2"));
+
+        // Then
+        assertFalse(aceito);
+        assertTrue(System.nanoTime() - inicio >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(1, fila.quantidadeDescartados());
+    }
+
+    @Test
+    @DisplayName("Deve entregar todos os eventos de vários produtores ao publisher em lotes")
+    void deveEntregarEventosDeVariosProdutoresEmLotes() throws Exception {
+        // Given
+        Set<String> publicados = ConcurrentHashMap.newKeySet();
+        CountDownLatch todosPublicados = new CountDownLatch(4_000);
+        doAnswer(invocation -> {
+            List<ConsultaAuditoriaEvent> lote = invocation.getArgument(0);
+            for (ConsultaAuditoriaEvent evento : lote) {
+                publicados.add(evento.getId());
+                todosPublicados.countDown();
+            }
+            return null;
+        }).when(auditoriaPublisher).publicarLote(anyList());
+
+        fila = criarFila(8192, PoliticaOverflow.DESCARTAR_MAIS_NOVO);
+        fila.iniciar();
+
+        // When
+        ExecutorService produtores = Executors.newFixedThreadPool(4);
+        List<Runnable> tarefas = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int produtor = p;
+            tarefas.add(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    fila.enfileirar(evento(produtor + "-" + i));
+                }
+            });
+        }
+        tarefas.forEach(produtores::execute);
+        produtores.shutdown();
+
+        // Then
+        assertTrue(todosPublicados.await(10, TimeUnit.SECONDS));
+        assertEquals(4_000, publicados.size());
+        assertEquals(0, fila.quantidadeDescartados());
+    }
+
+    private AuditoriaFila criarFila(int capacidade, PoliticaOverflow politica) {
+        return new AuditoriaFila(auditoriaPublisher, capacidade, politica, Duration.ofMillis(5), 64,
+                null, new SimpleMeterRegistry());
+    }
+
+    private static ConsultaAuditoriaEvent evento(String id) {
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setId(id);
+        return evento;
+    }
+}
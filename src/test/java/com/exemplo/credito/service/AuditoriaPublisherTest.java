@@ -1,22 +1,34 @@
 package com.exemplo.credito.service;
 
+import com.exemplo.credito.event.AuditoriaEventCodec;
 import com.exemplo.credito.event.ConsultaAuditoriaEvent;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.exemplo.credito.event.ResumoAuditoriaEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.errors.TimeoutException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaProducerException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -26,11 +38,17 @@ import static org.mockito.Mockito.*;
 class AuditoriaPublisherTest {
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private KafkaTemplate<String, ConsultaAuditoriaEvent> kafkaTemplate;
 
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private AuditoriaSpool auditoriaSpool;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private AuditoriaPublisher auditoriaPublisher;
 
@@ -41,69 +59,204 @@ class AuditoriaPublisherTest {
     }
 
     @Test
-    void deveEnviarEventoComSucesso() throws JsonProcessingException {
+    void deveEnviarEventoComSucesso() {
         // Arrange
         ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
         evento.setId("test-id-123");
         evento.setEndpoint("/api/creditos/123");
         evento.setParametro("numeroCredito=123");
 
-        String eventoJson = "{\"id\":\"test-id-123\",\"endpoint\":\"/api/creditos/123\",\"parametro\":\"numeroCredito=123\"}";
-        
-        CompletableFuture<SendResult<String, String>> future = new CompletableFuture<>();
-        SendResult<String, String> sendResult = mock(SendResult.class);
+        CompletableFuture<SendResult<String, ConsultaAuditoriaEvent>> future = new CompletableFuture<>();
+        SendResult<String, ConsultaAuditoriaEvent> sendResult = mock(SendResult.class);
         future.complete(sendResult);
 
-        when(objectMapper.writeValueAsString(evento)).thenReturn(eventoJson);
-        when(kafkaTemplate.send(eq("test-topic"), anyString(), eq(eventoJson))).thenReturn(future);
+        when(kafkaTemplate.send(eq("test-topic"), anyString(), eq(evento))).thenReturn(future);
 
         // Act
         auditoriaPublisher.publicarEventoAuditoria(evento);
 
         // Assert
-        verify(objectMapper).writeValueAsString(evento);
-        verify(kafkaTemplate).send(eq("test-topic"), anyString(), eq(eventoJson));
+        verify(kafkaTemplate).send(eq("test-topic"), eq("test-id-123"), eq(evento));
+        verify(auditoriaSpool, never()).gravar(anyString(), any(byte[].class));
     }
 
     @Test
-    void deveEnviarEventoComParametroNulo() throws JsonProcessingException {
+    void deveEnviarEventoComParametroNulo() {
         // Arrange
         ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
         evento.setId("test-id-456");
         evento.setEndpoint("/api/creditos");
         evento.setParametro(null);
 
-        String eventoJson = "{\"id\":\"test-id-456\",\"endpoint\":\"/api/creditos\",\"parametro\":null}";
-        
-        CompletableFuture<SendResult<String, String>> future = new CompletableFuture<>();
-        SendResult<String, String> sendResult = mock(SendResult.class);
+        CompletableFuture<SendResult<String, ConsultaAuditoriaEvent>> future = new CompletableFuture<>();
+        SendResult<String, ConsultaAuditoriaEvent> sendResult = mock(SendResult.class);
         future.complete(sendResult);
 
-        when(objectMapper.writeValueAsString(evento)).thenReturn(eventoJson);
-        when(kafkaTemplate.send(eq("test-topic"), anyString(), eq(eventoJson))).thenReturn(future);
+        when(kafkaTemplate.send(eq("test-topic"), anyString(), eq(evento))).thenReturn(future);
 
         // Act
         auditoriaPublisher.publicarEventoAuditoria(evento);
 
         // Assert
-        verify(objectMapper).writeValueAsString(evento);
-        verify(kafkaTemplate).send(eq("test-topic"), anyString(), eq(eventoJson));
+        verify(kafkaTemplate).send(eq("test-topic"), anyString(), eq(evento));
     }
 
     @Test
-    void deveLidarComErroSerializacaoGraciosamente() throws JsonProcessingException {
+    void deveLidarComErroSerializacaoGraciosamente() {
         // Arrange
         ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
         evento.setId("test-id-error");
 
-        when(objectMapper.writeValueAsString(any(ConsultaAuditoriaEvent.class)))
-                .thenThrow(new JsonProcessingException("Erro de serialização") {});
+        when(kafkaTemplate.send(anyString(), anyString(), any(ConsultaAuditoriaEvent.class)))
+                .thenThrow(new SerializationException("Erro de serialização"));
 
         // Act & Assert - não deve lançar exceção
         auditoriaPublisher.publicarEventoAuditoria(evento);
 
-        // Verificar que tentou serializar mas não enviou para Kafka
-        verify(objectMapper).writeValueAsString(evento);
-        verify(kafkaTemplate, never()).send(anyString(), anyString(), anyString());
+        // Erro de serialização não é falha do broker: não vai para o spool
+        verify(kafkaTemplate).send("test-topic", "test-id-error", evento);
+        verify(auditoriaSpool, never()).gravar(anyString(), any(byte[].class));
+    }
+
+    @Test
+    void deveGravarNoSpoolQuandoEnvioFalha() {
+        // Arrange
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setId("test-id-falha");
+
+        CompletableFuture<SendResult<String, ConsultaAuditoriaEvent>> future = new CompletableFuture<>();
+        future.completeExceptionally(new RuntimeException("Broker indisponível"));
+
+        when(kafkaTemplate.send("test-topic", "test-id-falha", evento)).thenReturn(future);
+        when(auditoriaSpool.gravar(eq("test-id-falha"), any(byte[].class))).thenReturn(true);
+
+        // Act
+        auditoriaPublisher.publicarEventoAuditoria(evento);
+
+        // Assert
+        verify(auditoriaSpool).gravar("test-id-falha", AuditoriaEventCodec.codificar(evento));
+        assertEquals(1.0, meterRegistry.get("auditoria.publicacao.falhas").counter().count());
+    }
+
+    @Test
+    void deveAbrirCircuitoNoPrimeiroTimeoutDoProducer() {
+        // Arrange: sem metadata do broker o producer falha após max.block.ms
+        ConsultaAuditoriaEvent primeiro = new ConsultaAuditoriaEvent();
+        primeiro.setId("timeout-1");
+        ConsultaAuditoriaEvent segundo = new ConsultaAuditoriaEvent();
+        segundo.setId("timeout-2");
+
+        CompletableFuture<SendResult<String, ConsultaAuditoriaEvent>> future = new CompletableFuture<>();
+        future.completeExceptionally(new KafkaProducerException(null, "Falha no envio",
+                new TimeoutException("Topic test-topic not present in metadata after 1000 ms.")));
+        when(kafkaTemplate.send("test-topic", "timeout-1", primeiro)).thenReturn(future);
+        when(auditoriaSpool.gravar(anyString(), any(byte[].class))).thenReturn(true);
+
+        // Act
+        auditoriaPublisher.publicarEventoAuditoria(primeiro);
+        auditoriaPublisher.publicarEventoAuditoria(segundo);
+
+        // Assert: o segundo vai direto ao spool, sem esperar outro timeout
+        verify(kafkaTemplate, never()).send("test-topic", "timeout-2", segundo);
+        verify(auditoriaSpool).gravar("timeout-1", AuditoriaEventCodec.codificar(primeiro));
+        verify(auditoriaSpool).gravar("timeout-2", AuditoriaEventCodec.codificar(segundo));
+    }
+
+    @Test
+    void deveMedirTempoDesdeAFilaAteAConfirmacaoDoBroker() {
+        // Arrange
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setId("test-id-tempo");
+        evento.setEnfileiradoEmNanos(System.nanoTime());
+
+        CompletableFuture<SendResult<String, ConsultaAuditoriaEvent>> future = new CompletableFuture<>();
+        when(kafkaTemplate.send("test-topic", "test-id-tempo", evento)).thenReturn(future);
+
+        // Act
+        auditoriaPublisher.publicarEventoAuditoria(evento);
+        future.complete(mock(SendResult.class));
+
+        // Assert
+        Timer sucesso = meterRegistry.get("auditoria.publicacao").tag("resultado", "sucesso").timer();
+        assertEquals(1, sucesso.count());
+        assertTrue(sucesso.totalTime(TimeUnit.NANOSECONDS) > 0);
+        assertEquals(0, meterRegistry.get("auditoria.publicacao").tag("resultado", "falha").timer().count());
+    }
+
+    @Test
+    void deveEnfileirarNoSpoolEnquantoHouverPendentes() {
+        // Arrange
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setId("test-id-ordem");
+
+        when(auditoriaSpool.possuiPendentes()).thenReturn(true);
+        when(auditoriaSpool.gravar(eq("test-id-ordem"), any(byte[].class))).thenReturn(true);
+
+        // Act
+        auditoriaPublisher.publicarEventoAuditoria(evento);
+
+        // Assert - não pode ultrapassar os eventos que ainda estão no spool
+        verify(auditoriaSpool).gravar("test-id-ordem", AuditoriaEventCodec.codificar(evento));
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any(ConsultaAuditoriaEvent.class));
+    }
+
+    @Test
+    void deveReenviarEventosDoSpoolEConfirmarPosicao() {
+        // Arrange
+        ConsultaAuditoriaEvent evento = new ConsultaAuditoriaEvent();
+        evento.setId("id-1");
+        evento.setEndpoint("/api/creditos/123");
+
+        AuditoriaSpool.Posicao proxima = new AuditoriaSpool.Posicao(1, 64);
+        AuditoriaSpool.LoteSpool lote = new AuditoriaSpool.LoteSpool(
+                List.of(new AuditoriaSpool.RegistroSpool("id-1", AuditoriaEventCodec.codificar(evento))), proxima);
+        CompletableFuture<SendResult<String, ConsultaAuditoriaEvent>> future =
+                CompletableFuture.completedFuture(mock(SendResult.class));
+
+        when(auditoriaSpool.possuiPendentes()).thenReturn(true, false);
+        when(auditoriaSpool.lerProximos(anyInt())).thenReturn(lote);
+        when(kafkaTemplate.send("test-topic", "id-1", evento)).thenReturn(future);
+
+        // Act
+        auditoriaPublisher.reenviarPendentesDoSpool();
+
+        // Assert
+        verify(auditoriaSpool).confirmar(proxima);
+    }
+
+    @Test
+    void deveGravarResumoNoSpoolEReenviarNoTopicoDeResumos() throws Exception {
+        // Arrange
+        KafkaTemplate<String, byte[]> kafkaTemplateResumo = mock(KafkaTemplate.class);
+        AuditoriaPublisher publisher = new AuditoriaPublisher(kafkaTemplate, kafkaTemplateResumo, objectMapper,
+                auditoriaSpool, meterRegistry);
+        ReflectionTestUtils.setField(publisher, "topicResumo", "resumo-topic");
+        ResumoAuditoriaEvent resumo = new ResumoAuditoriaEvent("resumo-1", null, null, 10, 0, List.of(), List.of());
+        byte[] json = "{\"id\":\"resumo-1\"}".getBytes(StandardCharsets.UTF_8);
+
+        CompletableFuture<SendResult<String, byte[]>> falha = new CompletableFuture<>();
+        falha.completeExceptionally(new RuntimeException("Broker indisponível"));
+        when(objectMapper.writeValueAsBytes(resumo)).thenReturn(json);
+        when(kafkaTemplateResumo.send("resumo-topic", "resumo-1", json)).thenReturn(falha);
+        when(auditoriaSpool.gravar(AuditoriaPublisher.PREFIXO_RESUMO_SPOOL + "resumo-1", json)).thenReturn(true);
+
+        // Act
+        publisher.publicarResumo(resumo);
+
+        // Assert - o resumo vai para o spool e volta ao tópico de resumos, não ao de eventos
+        verify(auditoriaSpool).gravar(AuditoriaPublisher.PREFIXO_RESUMO_SPOOL + "resumo-1", json);
+
+        AuditoriaSpool.Posicao proxima = new AuditoriaSpool.Posicao(1, 64);
+        when(auditoriaSpool.possuiPendentes()).thenReturn(true, false);
+        when(auditoriaSpool.lerProximos(anyInt())).thenReturn(new AuditoriaSpool.LoteSpool(
+                List.of(new AuditoriaSpool.RegistroSpool(AuditoriaPublisher.PREFIXO_RESUMO_SPOOL + "resumo-1", json)),
+                proxima));
+        when(kafkaTemplateResumo.send("resumo-topic", "resumo-1", json))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        publisher.reenviarPendentesDoSpool();
+
+        verify(auditoriaSpool).confirmar(proxima);
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any(ConsultaAuditoriaEvent.class));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,140 @@
+package com.exemplo.credito.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditoriaSpoolTest {
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("Deve devolver os registros em ordem e avançar só após a confirmação")
+    void deveLerEmOrdemEAvancarAposConfirmacao() throws IOException {
+        // Given
+        AuditoriaSpool spool = abrir(DataSize.ofKilobytes(4));
+        spool.gravar("id-1", bytes("evento-1"));
+        spool.gravar("id-2", bytes("evento-2"));
+
+        // When
+        AuditoriaSpool.LoteSpool lote = spool.lerProximos(10);
+        AuditoriaSpool.LoteSpool releitura = spool.lerProximos(10);
+        spool.confirmar(lote.proximaPosicao());
+
+        // Then
+        assertEquals(List.of("id-1", "id-2"), chaves(lote));
+        assertEquals("evento-2", new String(lote.registros().get(1).valor(), StandardCharsets.UTF_8));
+        assertEquals(chaves(lote), chaves(releitura));
+        assertFalse(spool.possuiPendentes());
+        assertTrue(spool.lerProximos(10).registros().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve rotacionar segmentos e apagar os já reenviados")
+    void deveRotacionarEApagarSegmentosReenviados() throws IOException {
+        // Given
+        AuditoriaSpool spool = abrir(DataSize.ofBytes(128));
+        for (int i = 0; i < 10; i++) {
+            assertTrue(spool.gravar("id-" + i, bytes("evento-numero-" + i)));
+        }
+        assertTrue(spool.quantidadeSegmentos() > 1);
+
+        // When
+        AuditoriaSpool.LoteSpool lote = spool.lerProximos(100);
+        spool.confirmar(lote.proximaPosicao());
+
+        // Then
+        assertEquals(10, lote.registros().size());
+        assertEquals("id-9", lote.registros().get(9).chave());
+        assertEquals(1, spool.quantidadeSegmentos());
+        assertFalse(spool.possuiPendentes());
+    }
+
+    @Test
+    @DisplayName("Deve recuperar registros pendentes após reinício e truncar registro incompleto")
+    void deveRecuperarAposReinicioETruncarRegistroIncompleto() throws IOException {
+        // Given
+        AuditoriaSpool spool = abrir(DataSize.ofKilobytes(4));
+        spool.gravar("id-1", bytes("evento-1"));
+        spool.gravar("id-2", bytes("evento-2"));
+        spool.confirmar(spool.lerProximos(1).proximaPosicao());
+        spool.gravar("id-3", bytes("evento-3"));
+        spool.fechar();
+        simularRegistroInterrompido();
+
+        // When
+        AuditoriaSpool reaberto = abrir(DataSize.ofKilobytes(4));
+        reaberto.gravar("id-4", bytes("evento-4"));
+
+        // Then
+        assertTrue(reaberto.possuiPendentes());
+        assertEquals(List.of("id-2", "id-3", "id-4"), chaves(reaberto.lerProximos(10)));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar gravações quando o limite de segmentos é atingido")
+    void deveRejeitarQuandoSpoolCheio() throws IOException {
+        // Given
+        AuditoriaSpool spool = new AuditoriaSpool(true, diretorio, DataSize.ofBytes(64), 1, new SimpleMeterRegistry());
+        spool.recuperar();
+
+        // When
+        boolean primeiro = spool.gravar("id-1", bytes("evento-1"));
+        boolean segundo = spool.gravar("id-2", bytes("evento-2-que-nao-cabe-no-segmento"));
+
+        // Then
+        assertTrue(primeiro);
+        assertFalse(segundo);
+    }
+
+    private AuditoriaSpool abrir(DataSize tamanhoSegmento) throws IOException {
+        AuditoriaSpool spool = new AuditoriaSpool(true, diretorio, tamanhoSegmento, 64, new SimpleMeterRegistry());
+        spool.recuperar();
+        return spool;
+    }
+
+    // Escreve um cabeçalho com tamanho válido mas checksum errado logo após o último registro
+    private void simularRegistroInterrompido() throws IOException {
+        Path segmento;
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            segmento = arquivos.filter(arquivo -> arquivo.toString().endsWith(".seg")).sorted()
+                    .reduce((primeiro, ultimo) -> ultimo).orElseThrow();
+        }
+        try (RandomAccessFile arquivo = new RandomAccessFile(segmento.toFile(), "rw")) {
+            int posicao = 0;
+            while (true) {
+                arquivo.seek(posicao);
+                int tamanho = arquivo.readInt();
+                if (tamanho == 0) {
+                    break;
+                }
+                posicao += 8 + tamanho;
+            }
+            arquivo.seek(posicao);
+            arquivo.writeInt(20);
+            arquivo.writeInt(12345);
+            arquivo.write(bytes("lixo-parcial"));
+        }
+    }
+
+    private static List<String> chaves(AuditoriaSpool.LoteSpool lote) {
+        return lote.registros().stream().map(AuditoriaSpool.RegistroSpool::chave).toList();
+    }
+
+    private static byte[] bytes(String valor) {
+        return valor.getBytes(StandardCharsets.UTF_8);
+    }
+}
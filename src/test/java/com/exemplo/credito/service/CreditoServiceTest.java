@@ -1,23 +1,47 @@
 package com.exemplo.credito.service;
 
-import com.exemplo.credito.entity.Credito;
+import com.exemplo.credito.cache.CreditoCache;
+import com.exemplo.credito.dto.ConsultaLoteRequest;
+import com.exemplo.credito.dto.ConsultaLoteResponse;
+import com.exemplo.credito.dto.CreditoDTO;
+import com.exemplo.credito.exception.ConsultaTimeoutException;
 import com.exemplo.credito.repository.CreditoRepository;
+import com.exemplo.credito.dto.PaginaCreditosResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,39 +50,27 @@ class CreditoServiceTest {
     @Mock
     private CreditoRepository repository;
 
-    @InjectMocks
     private CreditoService service;
 
-    private Credito credito1;
-    private Credito credito2;
+    private SimpleMeterRegistry meterRegistry;
+
+    private CreditoDTO credito1;
+    private CreditoDTO credito2;
 
     @BeforeEach
     void setUp() {
-        credito1 = new Credito();
-        credito1.setId(1L);
-        credito1.setNumeroCredito("123456");
-        credito1.setNumeroNfse("7891011");
-        credito1.setDataConstituicao(LocalDate.of(2024, 2, 25));
-        credito1.setValorIssqn(new BigDecimal("1500.75"));
-        credito1.setTipoCredito("ISSQN");
-        credito1.setSimplesNacional(true);
-        credito1.setAliquota(new BigDecimal("5.0"));
-        credito1.setValorFaturado(new BigDecimal("30000.00"));
-        credito1.setValorDeducao(new BigDecimal("5000.00"));
-        credito1.setBaseCalculo(new BigDecimal("25000.00"));
-
-        credito2 = new Credito();
-        credito2.setId(2L);
-        credito2.setNumeroCredito("789012");
-        credito2.setNumeroNfse("7891011");
-        credito2.setDataConstituicao(LocalDate.of(2024, 2, 26));
-        credito2.setValorIssqn(new BigDecimal("1200.50"));
-        credito2.setTipoCredito("ISSQN");
-        credito2.setSimplesNacional(false);
-        credito2.setAliquota(new BigDecimal("4.5"));
-        credito2.setValorFaturado(new BigDecimal("25000.00"));
-        credito2.setValorDeducao(new BigDecimal("4000.00"));
-        credito2.setBaseCalculo(new BigDecimal("21000.00"));
+        CreditoCache cache = new CreditoCache(true, 100, Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Duration.ofSeconds(5), new SimpleMeterRegistry());
+        meterRegistry = new SimpleMeterRegistry();
+        service = new CreditoService(repository, cache, meterRegistry, null, null);
+
+        credito1 = new CreditoDTO(1L, "123456", "7891011", LocalDate.of(2024, 2, 25),
+                new BigDecimal("1500.75"), "ISSQN", true, new BigDecimal("5.0"),
+                new BigDecimal("30000.00"), new BigDecimal("5000.00"), new BigDecimal("25000.00"), 0, null);
+
+        credito2 = new CreditoDTO(2L, "789012", "7891011", LocalDate.of(2024, 2, 26),
+                new BigDecimal("1200.50"), "ISSQN", false, new BigDecimal("4.5"),
+                new BigDecimal("25000.00"), new BigDecimal("4000.00"), new BigDecimal("21000.00"), 0, null);
     }
 
     @Test
@@ -66,11 +78,11 @@ class CreditoServiceTest {
     void deveBuscarCreditosPorNfseComSucesso() {
         // Given
         String numeroNfse = "7891011";
-        List<Credito> creditosEsperados = Arrays.asList(credito1, credito2);
+        List<CreditoDTO> creditosEsperados = Arrays.asList(credito1, credito2);
         when(repository.findByNumeroNfse(numeroNfse)).thenReturn(creditosEsperados);
 
         // When
-        List<Credito> creditosRetornados = service.buscarPorNfse(numeroNfse);
+        List<CreditoDTO> creditosRetornados = service.buscarPorNfse(numeroNfse);
 
         // Then
         assertNotNull(creditosRetornados);
@@ -87,7 +99,7 @@ class CreditoServiceTest {
         when(repository.findByNumeroNfse(numeroNfse)).thenReturn(Arrays.asList());
 
         // When
-        List<Credito> creditosRetornados = service.buscarPorNfse(numeroNfse);
+        List<CreditoDTO> creditosRetornados = service.buscarPorNfse(numeroNfse);
 
         // Then
         assertNotNull(creditosRetornados);
@@ -103,7 +115,7 @@ class CreditoServiceTest {
         when(repository.findByNumeroCredito(numeroCredito)).thenReturn(Optional.of(credito1));
 
         // When
-        Credito creditoRetornado = service.buscarPorNumeroCredito(numeroCredito);
+        CreditoDTO creditoRetornado = service.buscarPorNumeroCredito(numeroCredito);
 
         // Then
         assertNotNull(creditoRetornado);
@@ -126,5 +138,287 @@ class CreditoServiceTest {
 
         assertEquals("Crédito não encontrado", exception.getMessage());
         verify(repository, times(1)).findByNumeroCredito(numeroCredito);
+        assertEquals(1.0, meterRegistry.get("creditos.nao.encontrados")
+                .tag("consulta", "numero-credito").counter().count());
+    }
+
+    @Test
+    @DisplayName("Deve servir consultas repetidas por NFS-e a partir do cache")
+    void deveServirConsultasRepetidasPorNfseDoCache() {
+        // Given
+        String numeroNfse = "7891011";
+        when(repository.findByNumeroNfse(numeroNfse)).thenReturn(Arrays.asList(credito1, credito2));
+
+        // When
+        List<CreditoDTO> primeira = service.buscarPorNfse(numeroNfse);
+        List<CreditoDTO> segunda = service.buscarPorNfse(numeroNfse);
+
+        // Then
+        assertEquals(primeira, segunda);
+        verify(repository, times(1)).findByNumeroNfse(numeroNfse);
+    }
+
+    @Test
+    @DisplayName("Deve manter em cache o resultado não encontrado por número do crédito")
+    void deveManterEmCacheResultadoNaoEncontrado() {
+        // Given
+        String numeroCredito = "inexistente";
+        when(repository.findByNumeroCredito(numeroCredito)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(EntityNotFoundException.class, () -> service.buscarPorNumeroCredito(numeroCredito));
+        assertThrows(EntityNotFoundException.class, () -> service.buscarPorNumeroCredito(numeroCredito));
+        verify(repository, times(1)).findByNumeroCredito(numeroCredito);
+    }
+
+    @Test
+    @DisplayName("Falha na consulta não deve ficar em cache")
+    void naoDeveManterFalhaDaConsultaEmCache() {
+        // Given
+        String numeroNfse = "7891011";
+        when(repository.findByNumeroNfse(numeroNfse))
+                .thenThrow(new IllegalStateException("banco indisponível"))
+                .thenReturn(List.of(credito1));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> service.buscarPorNfse(numeroNfse));
+        assertEquals(List.of(credito1), service.buscarPorNfse(numeroNfse));
+        verify(repository, times(2)).findByNumeroNfse(numeroNfse);
+    }
+
+    @Test
+    @DisplayName("Deve coalescer consultas simultâneas da mesma NFS-e numa única ida ao banco")
+    void deveCoalescerConsultasSimultaneas() throws Exception {
+        // Given: cache desabilitado, só as consultas em andamento são compartilhadas
+        service = servicoSemCache(Duration.ofSeconds(5));
+        CountDownLatch liberarBanco = new CountDownLatch(1);
+        when(repository.findByNumeroNfse("7891011")).thenAnswer(invocation -> {
+            liberarBanco.await();
+            return List.of(credito1, credito2);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            // When
+            List<Future<List<CreditoDTO>>> resultados = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                resultados.add(executor.submit(() -> service.buscarPorNfse("7891011")));
+            }
+            aguardarContador("compartilhada", 7);
+            liberarBanco.countDown();
+
+            // Then
+            for (Future<List<CreditoDTO>> resultado : resultados) {
+                assertEquals(List.of(credito1, credito2), resultado.get(5, TimeUnit.SECONDS));
+            }
+            verify(repository, times(1)).findByNumeroNfse("7891011");
+            service.buscarPorNfse("7891011");
+            verify(repository, times(2)).findByNumeroNfse("7891011");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve propagar a falha da consulta coalescida e limitar a espera")
+    void devePropagarFalhaELimitarEspera() throws Exception {
+        // Given
+        service = servicoSemCache(Duration.ofMillis(200));
+        CountDownLatch consultaIniciada = new CountDownLatch(1);
+        CountDownLatch liberarBanco = new CountDownLatch(1);
+        when(repository.findByNumeroNfse("7891011")).thenAnswer(invocation -> {
+            consultaIniciada.countDown();
+            liberarBanco.await();
+            throw new IllegalStateException("banco indisponível");
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<?> primeira = executor.submit(() -> service.buscarPorNfse("7891011"));
+            assertTrue(consultaIniciada.await(5, TimeUnit.SECONDS));
+            Future<?> segunda = executor.submit(() -> service.buscarPorNfse("7891011"));
+            aguardarContador("compartilhada", 1);
+
+            // Then: quem aguardava desiste no timeout, e a falha chega a quem fez a consulta
+            ExecutionException expirada = assertThrows(ExecutionException.class, () -> segunda.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(ConsultaTimeoutException.class, expirada.getCause());
+            liberarBanco.countDown();
+            ExecutionException falha = assertThrows(ExecutionException.class, () -> primeira.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, falha.getCause());
+            assertEquals(1.0, meterRegistry.get("creditos.consultas.coalescidas")
+                    .tag("resultado", "expirada").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve agrupar numa consulta IN os créditos pedidos enquanto outra consulta está em andamento")
+    void deveAgruparConsultasQueChegamDuranteOutraConsulta() throws Exception {
+        // Given: janela longa, para que só o fim da consulta em andamento libere o lote; lote máximo de três
+        ReflectionTestUtils.setField(service, "janelaAgrupamento", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "tamanhoMaximoAgrupamento", 3);
+        service.iniciarAgrupamento();
+        CountDownLatch iniciada = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        List<String> individuais = new CopyOnWriteArrayList<>();
+        List<Collection<String>> consultas = new CopyOnWriteArrayList<>();
+        when(repository.findByNumeroCredito(any())).thenAnswer(invocation -> {
+            String numero = invocation.getArgument(0);
+            individuais.add(numero);
+            if ("123456".equals(numero)) {
+                iniciada.countDown();
+                assertTrue(liberar.await(5, TimeUnit.SECONDS));
+                return Optional.of(credito1);
+            }
+            return Optional.empty();
+        });
+        when(repository.findByNumeroCreditoIn(anyCollection())).thenAnswer(invocation -> {
+            consultas.add(List.copyOf(invocation.getArgument(0)));
+            return List.of();
+        });
+        List<String> outros = List.of("A", "B", "C", "D");
+        ExecutorService executor = Executors.newFixedThreadPool(outros.size() + 1);
+
+        try {
+            // When: a primeira consulta sai na hora e fica presa no banco
+            Future<CreditoDTO> primeira = executor.submit(() -> service.buscarPorNumeroCredito("123456"));
+            assertTrue(iniciada.await(5, TimeUnit.SECONDS));
+            List<Future<Optional<CreditoDTO>>> resultados = new ArrayList<>();
+            for (String numero : outros) {
+                resultados.add(executor.submit(() -> {
+                    try {
+                        return Optional.of(service.buscarPorNumeroCredito(numero));
+                    } catch (EntityNotFoundException e) {
+                        return Optional.<CreditoDTO>empty();
+                    }
+                }));
+            }
+            // Três das quatro enchem um lote, que sai sem esperar a primeira terminar
+            while (consultas.isEmpty()) {
+                Thread.sleep(1);
+            }
+            liberar.countDown();
+
+            // Then: a que sobrou sai quando a primeira termina, bem antes da janela
+            assertEquals(credito1, primeira.get(5, TimeUnit.SECONDS));
+            for (Future<Optional<CreditoDTO>> resultado : resultados) {
+                assertEquals(Optional.empty(), resultado.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, consultas.size());
+            assertEquals(3, consultas.get(0).size());
+            assertEquals(2, individuais.size());
+            Set<String> consultados = new HashSet<>(consultas.get(0));
+            consultados.addAll(individuais);
+            assertEquals(Set.of("123456", "A", "B", "C", "D"), consultados);
+        } finally {
+            liberar.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Consulta sem outra em andamento deve sair na hora, pela consulta individual")
+    void deveUsarConsultaIndividualSemEsperarJanela() {
+        ReflectionTestUtils.setField(service, "janelaAgrupamento", Duration.ofSeconds(30));
+        service.iniciarAgrupamento();
+        when(repository.findByNumeroNfse("7891011")).thenReturn(List.of(credito1, credito2));
+
+        List<CreditoDTO> creditos = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> service.buscarPorNfse("7891011"));
+
+        assertEquals(List.of(credito1, credito2), creditos);
+        verify(repository, never()).findByNumeroNfseIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Deve resolver lote em consultas IN particionadas e listar chaves não encontradas")
+    void deveResolverLoteEmConsultasParticionadas() {
+        // Given
+        ReflectionTestUtils.setField(service, "tamanhoChunk", 2);
+        when(repository.findByNumeroNfseIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> chaves = invocation.getArgument(0);
+            return chaves.contains("7891011") ? Arrays.asList(credito1, credito2) : List.of();
+        });
+        when(repository.findByNumeroCreditoIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> chaves = invocation.getArgument(0);
+            return chaves.contains("123456") ? List.of(credito1) : List.of();
+        });
+        ConsultaLoteRequest requisicao = ConsultaLoteRequest.builder()
+                .numerosNfse(Arrays.asList("7891011", "111", "222"))
+                .numerosCredito(Arrays.asList("123456", "999"))
+                .build();
+
+        // When
+        ConsultaLoteResponse resposta = service.buscarEmLote(requisicao);
+
+        // Then
+        assertEquals(List.of(credito1, credito2), resposta.getCreditosPorNfse().get("7891011"));
+        assertEquals(List.of("111", "222"), resposta.getNfsesNaoEncontradas());
+        assertEquals(credito1, resposta.getCreditosPorNumero().get("123456"));
+        assertEquals(List.of("999"), resposta.getCreditosNaoEncontrados());
+        assertEquals(2.0, meterRegistry.get("creditos.nao.encontrados").tag("consulta", "nfse").counter().count());
+        assertEquals(1.0, meterRegistry.get("creditos.nao.encontrados")
+                .tag("consulta", "numero-credito").counter().count());
+        verify(repository, times(2)).findByNumeroNfseIn(anyCollection());
+        verify(repository, times(1)).findByNumeroCreditoIn(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar lote acima do tamanho máximo")
+    void deveRejeitarLoteAcimaDoTamanhoMaximo() {
+        // Given
+        ReflectionTestUtils.setField(service, "tamanhoMaximoLote", 2);
+        ConsultaLoteRequest requisicao = ConsultaLoteRequest.builder()
+                .numerosNfse(Arrays.asList("1", "2", "3"))
+                .build();
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> service.buscarEmLote(requisicao));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("Deve paginar créditos por NFS-e usando o último id como cursor")
+    void devePaginarCreditosPorNfseComCursor() {
+        // Given
+        String numeroNfse = "7891011";
+        when(repository.findByNumeroNfseAndIdGreaterThanOrderByIdAsc(numeroNfse, 0L, Limit.of(2)))
+                .thenReturn(Arrays.asList(credito1, credito2));
+        when(repository.findByNumeroNfseAndIdGreaterThanOrderByIdAsc(numeroNfse, 1L, Limit.of(2)))
+                .thenReturn(List.of(credito2));
+
+        // When
+        PaginaCreditosResponse primeira = service.buscarPaginaPorNfse(numeroNfse, null, 1);
+        PaginaCreditosResponse segunda = service.buscarPaginaPorNfse(numeroNfse, primeira.getProximoCursor(), 1);
+
+        // Then
+        assertEquals(List.of(credito1), primeira.getCreditos());
+        assertNotNull(primeira.getProximoCursor());
+        assertEquals(List.of(credito2), segunda.getCreditos());
+        assertNull(segunda.getProximoCursor());
+    }
+
+    private CreditoService servicoSemCache(Duration timeoutEspera) {
+        CreditoCache semCache = new CreditoCache(false, 100, Duration.ofMinutes(10), Duration.ofSeconds(30),
+                timeoutEspera, meterRegistry);
+        return new CreditoService(repository, semCache, meterRegistry, null, null);
+    }
+
+    private void aguardarContador(String resultado, double esperado) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("creditos.consultas.coalescidas").tag("consulta", "nfse")
+                .tag("resultado", resultado).counter().count() < esperado) {
+            assertTrue(System.nanoTime() < limite, "Requisições não chegaram à consulta em andamento");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar cursor de paginação inválido")
+    void deveRejeitarCursorInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> service.buscarPaginaPorNfse("7891011", "@@@", 10));
+        verify(repository, never()).findByNumeroNfseAndIdGreaterThanOrderByIdAsc(eq("7891011"), anyLong(), any());
     }
-} 
\ No newline at end of file
+}
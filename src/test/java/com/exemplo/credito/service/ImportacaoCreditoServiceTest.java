@@ -0,0 +1,53 @@
+package com.exemplo.credito.service;
+
+import com.exemplo.credito.dto.CreditoDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportacaoCreditoServiceTest {
+
+    @Test
+    @DisplayName("Deve aceitar registros dentro das restrições da tabela")
+    void deveAceitarRegistroValido() {
+        assertNull(ImportacaoCreditoService.validar(credito("123456", new BigDecimal("1500.75"), new BigDecimal("5.50"))));
+        assertNull(ImportacaoCreditoService.validar(credito("123456", new BigDecimal("1500.750"), new BigDecimal("5.5"))));
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar campos obrigatórios ausentes e valores fora de NUMERIC(p, 2)")
+    void deveRejeitarRegistrosInvalidos() {
+        assertEquals("numeroCredito é obrigatório",
+                ImportacaoCreditoService.validar(credito(" ", BigDecimal.ONE, BigDecimal.ONE)));
+        assertEquals("numeroCredito excede 50 caracteres",
+                ImportacaoCreditoService.validar(credito("9".repeat(51), BigDecimal.ONE, BigDecimal.ONE)));
+        assertEquals("valorIssqn tem mais de duas casas decimais",
+                ImportacaoCreditoService.validar(credito("1", new BigDecimal("0.001"), BigDecimal.ONE)));
+        assertEquals("aliquota excede NUMERIC(5, 2)",
+                ImportacaoCreditoService.validar(credito("1", BigDecimal.ONE, new BigDecimal("1000.00"))));
+        assertEquals("valorIssqn é obrigatório",
+                ImportacaoCreditoService.validar(credito("1", null, BigDecimal.ONE)));
+    }
+
+    @Test
+    @DisplayName("Deve gerar o CSV do COPY escapando vírgulas e aspas")
+    void deveGerarCsvDoCopy() {
+        CreditoDTO credito = new CreditoDTO(null, "123456", "NFSE \"A\"", LocalDate.of(2024, 2, 25),
+                new BigDecimal("1500.75"), "ISSQN, retido", true, new BigDecimal("5.50"),
+                new BigDecimal("3E+4"), new BigDecimal("0.00"), new BigDecimal("25000.00"), 0, null);
+
+        assertEquals("123456,\"NFSE \"\"A\"\"\",2024-02-25,1500.75,\"ISSQN, retido\",true,5.50,30000,0.00,25000.00\n",
+                ImportacaoCreditoService.linhasCsv(List.of(credito)));
+    }
+
+    private static CreditoDTO credito(String numeroCredito, BigDecimal valorIssqn, BigDecimal aliquota) {
+        return new CreditoDTO(null, numeroCredito, "7891011", LocalDate.of(2024, 2, 25), valorIssqn, "ISSQN",
+                false, aliquota, new BigDecimal("30000.00"), new BigDecimal("5000.00"), new BigDecimal("25000.00"),
+                0, null);
+    }
+}